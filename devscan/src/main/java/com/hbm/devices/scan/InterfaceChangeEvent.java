@@ -0,0 +1,77 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan;
+
+import java.net.NetworkInterface;
+import java.util.Collection;
+
+/**
+ * This event is emitted by an {@link com.hbm.devices.scan.InterfaceWatcher}.
+ * <p>
+ * The event is notified when the set of network interfaces eligible for
+ * multicast scanning &amp; sending has changed. An interface whose
+ * addresses changed is reported as removed and added again.
+ *
+ * @since 2.3
+ */
+public final class InterfaceChangeEvent {
+
+    private final Collection<NetworkInterface> interfaces;
+    private final Collection<NetworkInterface> added;
+    private final Collection<NetworkInterface> removed;
+
+    InterfaceChangeEvent(Collection<NetworkInterface> interfaces, Collection<NetworkInterface> added,
+            Collection<NetworkInterface> removed) {
+        this.interfaces = interfaces;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    /**
+     * @return all interfaces currently eligible for multicast scanning
+     * &amp; sending.
+     */
+    public Collection<NetworkInterface> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * @return the interfaces that appeared since the last event.
+     */
+    public Collection<NetworkInterface> getAddedInterfaces() {
+        return added;
+    }
+
+    /**
+     * @return the interfaces that disappeared since the last event.
+     */
+    public Collection<NetworkInterface> getRemovedInterfaces() {
+        return removed;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan;
+
+import java.io.Closeable;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Observable;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * This class watches the network interfaces eligible for multicast
+ * scanning &amp; sending (see {@link ScanInterfaces}) and posts an
+ * {@link InterfaceChangeEvent} if they change.
+ * <p>
+ * The interfaces are rescanned periodically in a background thread. If
+ * interfaces appear (e.g. an USB Ethernet adapter is plugged in or a VPN
+ * comes up), disappear or change their addresses, all registered {@link
+ * java.util.Observer}s are notified. {@link MulticastMessageReceiver}
+ * and {@link com.hbm.devices.scan.announce.ConnectionFinder} are able to
+ * observe this class directly, so the receiving chain and its device
+ * state need not be rebuilt.
+ *
+ * @since 2.3
+ */
+public final class InterfaceWatcher extends Observable implements Closeable {
+
+    /**
+     * Default period in milliseconds between two interface scans.
+     */
+    public static final long DEFAULT_PERIOD_MS = 5000;
+
+    private final Predicate<NetworkInterface> ifacePredicate;
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile List<NetworkInterface> interfaces;
+    private volatile boolean stopped;
+
+    private static final Logger LOGGER = Logger.getLogger(ScanConstants.LOGGER_NAME);
+
+    /**
+     * Constructs an {@link InterfaceWatcher} scanning all interfaces
+     * every {@link #DEFAULT_PERIOD_MS} milliseconds.
+     *
+     * @throws SocketException if the initial interface scan fails.
+     */
+    public InterfaceWatcher() throws SocketException {
+        this(Predicates.<NetworkInterface>alwaysTrue(), DEFAULT_PERIOD_MS);
+    }
+
+    /**
+     * Constructs an {@link InterfaceWatcher}.
+     *
+     * @param ifacePredicate custom filter to be applied to each available network interface
+     *        before checking its multicast capability.
+     * @param periodMs the time in ms between two interface scans. Must
+     * be greater than 0.
+     *
+     * @throws SocketException if the initial interface scan fails.
+     */
+    public InterfaceWatcher(Predicate<NetworkInterface> ifacePredicate, long periodMs) throws SocketException {
+        this(ifacePredicate, new ScanInterfaces(ifacePredicate).getInterfaces());
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("periodMs must be greater than 0");
+        }
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                rescan();
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    InterfaceWatcher(Predicate<NetworkInterface> ifacePredicate, Collection<NetworkInterface> initial) {
+        super();
+        this.ifacePredicate = ifacePredicate;
+        this.interfaces = ImmutableList.copyOf(initial);
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    /**
+     * @return the interfaces found in the last scan.
+     */
+    public Collection<NetworkInterface> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Stops watching the network interfaces.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+                if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    LOGGER.log(Level.SEVERE, "Interrupted while waiting for termination of interface scan!\n");
+                }
+            }
+        } catch (InterruptedException ie) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isClosed() {
+        return stopped;
+    }
+
+    private void rescan() {
+        try {
+            update(new ScanInterfaces(ifacePredicate).getInterfaces());
+        } catch (SocketException e) {
+            /*
+             * No error handling by intention. Just try again with the
+             * next scan.
+             */
+            LOGGER.log(Level.INFO, "Can't scan network interfaces!", e);
+        }
+    }
+
+    /*
+     * Observers are notified without holding the monitor of the watcher,
+     * so they may call back into it from any thread. Rescans run on a
+     * single thread, so events are still posted in order.
+     */
+    void update(Collection<NetworkInterface> current) {
+        final InterfaceChangeEvent event;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            final ImmutableList.Builder<NetworkInterface> added = ImmutableList.builder();
+            for (final NetworkInterface iface : current) {
+                if (!interfaces.contains(iface)) {
+                    added.add(iface);
+                }
+            }
+            final ImmutableList.Builder<NetworkInterface> removed = ImmutableList.builder();
+            for (final NetworkInterface iface : interfaces) {
+                if (!current.contains(iface)) {
+                    removed.add(iface);
+                }
+            }
+
+            final List<NetworkInterface> addedList = added.build();
+            final List<NetworkInterface> removedList = removed.build();
+            if (addedList.isEmpty() && removedList.isEmpty()) {
+                return;
+            }
+            interfaces = ImmutableList.copyOf(current);
+            event = new InterfaceChangeEvent(interfaces, addedList, removedList);
+        }
+        setChanged();
+        notifyObservers(event);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class replays the messages recorded in a {@link MessageJournal}.
+ * <p>
+ * Messages are forwarded as {@link java.lang.String}s to all observers,
+ * exactly like a {@link MulticastMessageReceiver} does, so the complete
+ * announce processing chain can be driven by recorded traffic.
+ * <p>
+ * The replay speed is given as a factor relative to the original
+ * timing. A speed of 1 replays at the original pace, 10 replays ten
+ * times faster and 0 replays all messages without any delay. {@link
+ * #run() run()} returns after the last message was replayed or after
+ * {@link #close() close()} was called.
+ *
+ * @since 2.3
+ */
+public final class JournalMessageReceiver extends AbstractMessageReceiver {
+
+    private final File file;
+    private final double speed;
+    private boolean shallRun;
+    private long timestamp;
+    private InetAddress source;
+    private int sourcePort;
+    private static final int IPV4_ADDRESS_LENGTH = 4;
+    private static final int IPV6_ADDRESS_LENGTH = 16;
+    private static final Logger LOGGER = Logger.getLogger(ScanConstants.LOGGER_NAME);
+
+    /**
+     * Creates a {@link JournalMessageReceiver} replaying all messages
+     * without delay.
+     *
+     * @param file the journal file.
+     */
+    public JournalMessageReceiver(File file) {
+        this(file, 0);
+    }
+
+    /**
+     * Creates a {@link JournalMessageReceiver}.
+     *
+     * @param file the journal file.
+     * @param speed the replay speed relative to the original timing, 0
+     * for no delay at all.
+     */
+    public JournalMessageReceiver(File file, double speed) {
+        super();
+        if (file == null) {
+            throw new IllegalArgumentException("No journal file given");
+        }
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Illegal replay speed");
+        }
+        this.file = file;
+        this.speed = speed;
+        this.shallRun = true;
+    }
+
+    /**
+     * Replays the journal.
+     */
+    @Override
+    public void run() {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Can't replay message journal!", e);
+        }
+    }
+
+    /**
+     * Gets the original reception time of the message currently
+     * forwarded to the observers.
+     *
+     * This method is intended to be called from within {@link
+     * java.util.Observer#update}.
+     *
+     * @return the reception time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the source address of the message currently forwarded to the
+     * observers.
+     *
+     * This method is intended to be called from within {@link
+     * java.util.Observer#update}.
+     *
+     * @return the address the message was sent from or {@code null} if
+     * it wasn't recorded.
+     */
+    public InetAddress getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the source port of the message currently forwarded to the
+     * observers.
+     *
+     * This method is intended to be called from within {@link
+     * java.util.Observer#update}.
+     *
+     * @return the port the message was sent from.
+     */
+    public int getSourcePort() {
+        return sourcePort;
+    }
+
+    /**
+     * Stops replaying.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            shallRun = false;
+            this.notifyAll();
+        }
+    }
+
+    private void replay(MappedByteBuffer buffer) throws IOException {
+        MessageJournal.checkHeader(buffer);
+        final Charset charset = Charset.forName("UTF-8");
+        byte[] message = new byte[0];
+        long firstTimestamp = 0;
+        final long start = System.nanoTime();
+        boolean first = true;
+        while (buffer.remaining() >= Integer.BYTES) {
+            final int size = buffer.getInt();
+            if (size < MessageJournal.RECORD_OVERHEAD || size > buffer.remaining()) {
+                return;
+            }
+            final long recordTimestamp = buffer.getLong();
+            final int addressLength = buffer.get() & 0xff;
+            final int length = size - MessageJournal.RECORD_OVERHEAD - addressLength;
+            if (length < 0 || !validAddressLength(addressLength)) {
+                LOGGER.warning("Corrupted message journal record, replay stopped");
+                return;
+            }
+            InetAddress recordSource = null;
+            if (addressLength > 0) {
+                final byte[] address = new byte[addressLength];
+                buffer.get(address);
+                recordSource = InetAddress.getByAddress(address);
+            }
+            final int recordPort = buffer.getShort() & 0xffff;
+            if (length > message.length) {
+                message = new byte[length];
+            }
+            buffer.get(message, 0, length);
+
+            if (first) {
+                firstTimestamp = recordTimestamp;
+                first = false;
+            }
+            if (!waitFor(start, recordTimestamp - firstTimestamp)) {
+                return;
+            }
+            timestamp = recordTimestamp;
+            source = recordSource;
+            sourcePort = recordPort;
+            setChanged();
+            notifyObservers(new String(message, 0, length, charset));
+        }
+    }
+
+    private static boolean validAddressLength(int addressLength) {
+        return addressLength == 0 || addressLength == IPV4_ADDRESS_LENGTH || addressLength == IPV6_ADDRESS_LENGTH;
+    }
+
+    private synchronized boolean waitFor(long start, long offsetMillis) {
+        if (speed > 0) {
+            final long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(offsetMillis) / speed);
+            long delay = due - System.nanoTime();
+            while (shallRun && delay > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                delay = due - System.nanoTime();
+            }
+        }
+        return shallRun;
+    }
+}
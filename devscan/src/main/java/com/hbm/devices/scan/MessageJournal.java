@@ -0,0 +1,212 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only journal of received multicast messages.
+ * <p>
+ * Each record holds the reception time, the source address and port
+ * and the raw bytes of a message. Records are written into a memory
+ * mapped file which grows in chunks, so appending a record is a plain
+ * memory copy. A journal can be replayed by a {@link
+ * JournalMessageReceiver}.
+ * <p>
+ * Opening an existing journal appends to it. If the application
+ * terminated without closing the journal, the zero filled tail of
+ * the last chunk marks the end of the journal.
+ *
+ * @since 2.3
+ */
+public final class MessageJournal implements Closeable {
+
+    static final int MAGIC = 0x48424D4A;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    /*
+     * Size of the fixed part of a record following the record size:
+     * timestamp, address length and port.
+     */
+    static final int RECORD_OVERHEAD = 8 + 1 + 2;
+
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final Logger LOGGER = Logger.getLogger(ScanConstants.LOGGER_NAME);
+
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private long mapPosition;
+    private boolean closed;
+
+    /**
+     * Opens a journal for appending. The journal file is created if it
+     * does not exist.
+     *
+     * @param file the journal file.
+     * @throws IOException if the journal file can't be opened or is no
+     * valid journal.
+     */
+    public MessageJournal(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("No journal file given");
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            final long end;
+            if (channel.size() == 0) {
+                end = HEADER_SIZE;
+            } else {
+                end = findEnd(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, end + CHUNK_SIZE);
+            mapPosition = 0;
+            map.putInt(MAGIC);
+            map.putShort(VERSION);
+            map.putShort((short) 0);
+            map.position((int) end);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a message received now.
+     *
+     * @param source the address the message was sent from, might be
+     * {@code null}.
+     * @param port the port the message was sent from.
+     * @param message the buffer holding the message.
+     * @param offset the offset of the message in the buffer.
+     * @param length the length of the message in bytes.
+     * @throws IOException if the journal can't be extended.
+     */
+    public void append(InetAddress source, int port, byte[] message, int offset, int length) throws IOException {
+        append(System.currentTimeMillis(), source, port, message, offset, length);
+    }
+
+    /**
+     * Appends a message.
+     *
+     * @param timestamp the reception time in milliseconds since the epoch.
+     * @param source the address the message was sent from, might be
+     * {@code null}.
+     * @param port the port the message was sent from.
+     * @param message the buffer holding the message.
+     * @param offset the offset of the message in the buffer.
+     * @param length the length of the message in bytes.
+     * @throws IOException if the journal can't be extended.
+     */
+    public synchronized void append(long timestamp, InetAddress source, int port, byte[] message,
+        int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Journal already closed");
+        }
+        final byte[] address = source == null ? new byte[0] : source.getAddress();
+        final int size = RECORD_OVERHEAD + address.length + length;
+        if (map.remaining() < Integer.BYTES + size) {
+            mapPosition += map.position();
+            map = channel.map(FileChannel.MapMode.READ_WRITE, mapPosition, Math.max(CHUNK_SIZE, Integer.BYTES + size));
+        }
+        map.putInt(size);
+        map.putLong(timestamp);
+        map.put((byte) address.length);
+        map.put(address);
+        map.putShort((short) port);
+        map.put(message, offset, length);
+    }
+
+    /**
+     * Flushes all records to the storage device.
+     */
+    public synchronized void flush() {
+        if (!closed) {
+            map.force();
+        }
+    }
+
+    /**
+     * Closes the journal and truncates the journal file to the records
+     * written.
+     *
+     * @throws IOException if the journal file can't be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        map.force();
+        try {
+            channel.truncate(mapPosition + map.position());
+        } catch (IOException e) {
+            /*
+             * No error handling by intention. Some platforms refuse to
+             * truncate mapped files, the zero filled tail is skipped
+             * when reading the journal.
+             */
+            LOGGER.log(Level.INFO, "Can't truncate message journal!", e);
+        }
+        channel.close();
+    }
+
+    static void checkHeader(MappedByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("No message journal");
+        }
+        final short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported message journal version " + version);
+        }
+        buffer.getShort();
+    }
+
+    private static long findEnd(MappedByteBuffer buffer) throws IOException {
+        checkHeader(buffer);
+        while (buffer.remaining() >= Integer.BYTES) {
+            final int size = buffer.getInt();
+            if (size <= 0 || size > buffer.remaining()) {
+                return buffer.position() - Integer.BYTES;
+            }
+            buffer.position(buffer.position() + size);
+        }
+        return buffer.position();
+    }
+}
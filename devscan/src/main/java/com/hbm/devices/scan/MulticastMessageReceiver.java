@@ -36,6 +36,11 @@ import java.net.MulticastSocket;
 import java.net.NetworkInterface;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -56,16 +61,23 @@ import com.google.common.base.Predicates;
  * {@link java.util.Observable}. So objects which are interested in String multicast messages have
  * to implement the {@link java.util.Observer} interface and register themselves to an instance of
  * this class with addObserver().
+ * <p>
+ * Objects of this class can observe an {@link InterfaceWatcher}. On an
+ * {@link InterfaceChangeEvent} the multicast group is joined on new
+ * interfaces and left on interfaces that disappeared, without closing
+ * the socket.
  *
  * @since 1.0
  */
-public class MulticastMessageReceiver extends AbstractMessageReceiver {
+public class MulticastMessageReceiver extends AbstractMessageReceiver implements Observer {
 
     private final InetAddress multicastIP;
     private final int port;
     private final Predicate<NetworkInterface> ifacePredicate;
-    private boolean shallRun = true;
+    private volatile boolean shallRun = true;
     private final MulticastSocket socket;
+    private final Set<NetworkInterface> joinedInterfaces;
+    private volatile MessageJournal journal;
     private static final Logger LOGGER = Logger.getLogger(ScanConstants.LOGGER_NAME);
     private static final int MAX_UDP_SIZE = 65507;
 
@@ -125,6 +137,7 @@ public class MulticastMessageReceiver extends AbstractMessageReceiver {
         this.multicastIP = multicastIP;
         this.port = port;
         this.ifacePredicate = ifacePredicate;
+        this.joinedInterfaces = new HashSet<>();
         this.socket = setupMulticastSocket();
     }
 
@@ -142,6 +155,7 @@ public class MulticastMessageReceiver extends AbstractMessageReceiver {
         while (shallRun) {
             try {
                 socket.receive(packet);
+                record(packet);
                 final String message = new String(buffer, 0, packet.getLength(), charset);
                 setChanged();
                 notifyObservers(message);
@@ -161,6 +175,34 @@ public class MulticastMessageReceiver extends AbstractMessageReceiver {
         }
     }
 
+    /**
+     * Records all received messages in a journal.
+     *
+     * @param journal the journal the received messages are appended
+     * to, {@code null} to stop recording.
+     *
+     * @since 2.3
+     */
+    public void setJournal(MessageJournal journal) {
+        this.journal = journal;
+    }
+
+    private void record(DatagramPacket packet) {
+        final MessageJournal currentJournal = journal;
+        if (currentJournal != null) {
+            try {
+                currentJournal.append(packet.getAddress(), packet.getPort(), packet.getData(),
+                    packet.getOffset(), packet.getLength());
+            } catch (IOException e) {
+                /*
+                 * No error handling by intention. Recording is a
+                 * diagnostic aid and must not disturb receiving.
+                 */
+                LOGGER.log(Level.WARNING, "Can't record multicast message!", e);
+            }
+        }
+    }
+
     /**
      * This method closes the listening socket and cancels the infinite receiving loop.
      */
@@ -178,6 +220,65 @@ public class MulticastMessageReceiver extends AbstractMessageReceiver {
         }
     }
 
+    /**
+     * Joins the multicast group on interfaces that appeared and leaves
+     * it on interfaces that disappeared.
+     *
+     * @param observable the observable object.
+     * @param arg an {@link InterfaceChangeEvent}, other objects are ignored.
+     */
+    @Override
+    public void update(Observable observable, Object arg) {
+        if (arg instanceof InterfaceChangeEvent) {
+            updateInterfaces(((InterfaceChangeEvent) arg).getInterfaces());
+        }
+    }
+
+    Set<NetworkInterface> getJoinedInterfaces() {
+        synchronized (joinedInterfaces) {
+            return new HashSet<>(joinedInterfaces);
+        }
+    }
+
+    private void updateInterfaces(Collection<NetworkInterface> interfaces) {
+        final InetSocketAddress socketAddress = new InetSocketAddress(multicastIP, port);
+        synchronized (joinedInterfaces) {
+            if (!shallRun) {
+                return;
+            }
+            final Iterator<NetworkInterface> iterator = joinedInterfaces.iterator();
+            while (iterator.hasNext()) {
+                final NetworkInterface ni = iterator.next();
+                if (!interfaces.contains(ni)) {
+                    iterator.remove();
+                    try {
+                        socket.leaveGroup(socketAddress, ni);
+                    } catch (IOException e) {
+                        /*
+                         * No error handling by intention. The interface
+                         * might already be gone.
+                         */
+                        LOGGER.log(Level.INFO, "Can't leave multicast group!", e);
+                    }
+                }
+            }
+            for (final NetworkInterface ni : interfaces) {
+                if (!joinedInterfaces.contains(ni) && ifacePredicate.apply(ni)) {
+                    try {
+                        socket.joinGroup(socketAddress, ni);
+                        joinedInterfaces.add(ni);
+                    } catch (IOException e) {
+                        /*
+                         * No error handling by intention. The join is
+                         * retried on the next change.
+                         */
+                        LOGGER.log(Level.INFO, "Can't join multicast group!", e);
+                    }
+                }
+            }
+        }
+    }
+
     private MulticastSocket setupMulticastSocket() throws IOException {
         final MulticastSocket sock = new MulticastSocket(port);
         sock.setReuseAddress(true);
@@ -189,16 +290,21 @@ public class MulticastMessageReceiver extends AbstractMessageReceiver {
     private void joinOnAllInterfaces(MulticastSocket socket) throws IOException {
         final InetSocketAddress socketAddress = new InetSocketAddress(multicastIP, port);
         final Collection<NetworkInterface> interfaces = new ScanInterfaces(ifacePredicate).getInterfaces();
-        for (final NetworkInterface ni : interfaces) {
-            socket.joinGroup(socketAddress, ni);
+        synchronized (joinedInterfaces) {
+            for (final NetworkInterface ni : interfaces) {
+                socket.joinGroup(socketAddress, ni);
+                joinedInterfaces.add(ni);
+            }
         }
     }
 
     private void leaveOnAllInterfaces(MulticastSocket socket) throws IOException {
-        final Collection<NetworkInterface> interfaces = new ScanInterfaces(ifacePredicate).getInterfaces();
         final InetSocketAddress socketAddress = new InetSocketAddress(multicastIP, port);
-        for (final NetworkInterface ni : interfaces) {
-            socket.leaveGroup(socketAddress, ni);
+        synchronized (joinedInterfaces) {
+            for (final NetworkInterface ni : joinedInterfaces) {
+                socket.leaveGroup(socketAddress, ni);
+            }
+            joinedInterfaces.clear();
         }
     }
 }
@@ -0,0 +1,231 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+/**
+ * Strict parser for literal IPv4 and IPv6 addresses.
+ * <p>
+ * In contrast to {@link java.net.InetAddress#getByName(String)}, only
+ * address literals are accepted, so parsing never consults the name
+ * resolver. IPv4 addresses must be given in dotted-quad notation, IPv6
+ * addresses in the notation of RFC 4291, optionally followed by a zone
+ * id which is ignored.
+ * <p>
+ * Parsed addresses are stored in two longs holding the 128 address bits
+ * in network byte order. IPv4 addresses are stored IPv4-mapped, like in
+ * {@link Interface}.
+ *
+ * @since 2.3
+ */
+final class AddressLiteral {
+
+    private static final int IPV4_MAPPED = 0xffff;
+    private static final int IPV4_PARTS = 4;
+    private static final int IPV6_GROUPS = 8;
+    private static final int MAX_GROUP_DIGITS = 4;
+    private static final int MAX_PART_DIGITS = 3;
+    private static final int MAX_PART = 255;
+    private static final int GROUP_BITS = 16;
+
+    private AddressLiteral() {
+    }
+
+    /**
+     * @param literal the address literal.
+     * @param address receives the high and low 64 bits of the address.
+     * @return true if {@code literal} is a valid IPv4 or IPv6 literal.
+     */
+    static boolean parse(String literal, long[] address) {
+        if (literal.indexOf(':') < 0) {
+            final long ipv4 = parseIPv4(literal, 0, literal.length());
+            if (ipv4 < 0) {
+                return false;
+            }
+            address[0] = 0;
+            address[1] = ((long) IPV4_MAPPED << Integer.SIZE) | ipv4;
+            return true;
+        }
+        return parseIPv6(literal, address);
+    }
+
+    static boolean isIPv4(long high, long low) {
+        return (high == 0) && ((int) (low >>> Integer.SIZE) == IPV4_MAPPED);
+    }
+
+    /**
+     * @return the number of bits set in a netmask, counting only the 32
+     * address bits of an IPv4 netmask.
+     */
+    static int bitCount(long high, long low) {
+        if (isIPv4(high, low)) {
+            return Integer.bitCount((int) low);
+        }
+        return Long.bitCount(high) + Long.bitCount(low);
+    }
+
+    /*
+     * Returns the address as unsigned 32 bit value or -1 if the range of
+     * literal is no dotted-quad IPv4 address.
+     */
+    private static long parseIPv4(String literal, int start, int end) {
+        long value = 0;
+        int part = 0;
+        int digits = 0;
+        int parts = 0;
+        for (int i = start; i < end; i++) {
+            final char c = literal.charAt(i);
+            if (c == '.') {
+                if (digits == 0) {
+                    return -1;
+                }
+                value = (value << Byte.SIZE) | part;
+                parts++;
+                part = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                part = part * 10 + (c - '0');
+                digits++;
+                if (digits > MAX_PART_DIGITS || part > MAX_PART) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || parts != IPV4_PARTS - 1) {
+            return -1;
+        }
+        return (value << Byte.SIZE) | part;
+    }
+
+    private static boolean parseIPv6(String literal, long[] address) {
+        int end = literal.indexOf('%');
+        if (end < 0) {
+            end = literal.length();
+        } else if (end == literal.length() - 1) {
+            return false;
+        }
+        final int[] groups = new int[IPV6_GROUPS];
+        int count = 0;
+        int compressed = -1;
+        int i = 0;
+        if (literal.startsWith("::")) {
+            compressed = 0;
+            i = 2;
+            if (i == end) {
+                return pack(groups, count, compressed, address);
+            }
+        }
+        while (i < end) {
+            final int groupEnd = nextColon(literal, i, end);
+            if (groupEnd == i) {
+                return false;
+            }
+            if (groupEnd == end && literal.lastIndexOf('.', end - 1) >= i) {
+                if (count > IPV6_GROUPS - 2) {
+                    return false;
+                }
+                final long ipv4 = parseIPv4(literal, i, end);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                groups[count++] = (int) (ipv4 >>> GROUP_BITS);
+                groups[count++] = (int) (ipv4 & 0xffff);
+                break;
+            }
+            if (count == IPV6_GROUPS || groupEnd - i > MAX_GROUP_DIGITS) {
+                return false;
+            }
+            int group = 0;
+            for (int j = i; j < groupEnd; j++) {
+                final int digit = hexDigit(literal.charAt(j));
+                if (digit < 0) {
+                    return false;
+                }
+                group = (group << 4) | digit;
+            }
+            groups[count++] = group;
+            if (groupEnd == end) {
+                break;
+            }
+            i = groupEnd + 1;
+            if (i < end && literal.charAt(i) == ':') {
+                if (compressed >= 0) {
+                    return false;
+                }
+                compressed = count;
+                i++;
+            } else if (i == end) {
+                return false;
+            }
+        }
+        return pack(groups, count, compressed, address);
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static int nextColon(String literal, int start, int end) {
+        final int colon = literal.indexOf(':', start);
+        return (colon < 0 || colon > end) ? end : colon;
+    }
+
+    private static boolean pack(int[] groups, int count, int compressed, long[] address) {
+        if (compressed < 0 ? count != IPV6_GROUPS : count > IPV6_GROUPS - 1) {
+            return false;
+        }
+        final int[] expanded = new int[IPV6_GROUPS];
+        if (compressed < 0) {
+            System.arraycopy(groups, 0, expanded, 0, IPV6_GROUPS);
+        } else {
+            System.arraycopy(groups, 0, expanded, 0, compressed);
+            final int tail = count - compressed;
+            System.arraycopy(groups, compressed, expanded, IPV6_GROUPS - tail, tail);
+        }
+        long high = 0;
+        long low = 0;
+        for (int g = 0; g < IPV6_GROUPS / 2; g++) {
+            high = (high << GROUP_BITS) | expanded[g];
+            low = (low << GROUP_BITS) | expanded[g + IPV6_GROUPS / 2];
+        }
+        address[0] = high;
+        address[1] = low;
+        return true;
+    }
+}
@@ -28,9 +28,24 @@
 
 package com.hbm.devices.scan.announce;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Ints;
 
 import com.hbm.devices.scan.JsonRpc;
+import com.hbm.devices.scan.ScanConstants;
 
 /**
  * This class holds all information required to implement the HBM network
@@ -38,17 +53,41 @@ import com.hbm.devices.scan.JsonRpc;
  */
 public final class Announce extends JsonRpc implements Serializable {
 
-    private AnnounceParams params;
+    private volatile AnnounceParams params;
     private String path;
+    private transient AnnounceDeserializer decoder;
+    private transient int announcedExpiration;
     private transient Object cookie;
+    private transient volatile byte[] contentHash;
+    private transient byte[] compressedJson;
 
     private static final long serialVersionUID = 3398751494808132238L;
 
+    /*
+     * The content hash and the compressed JSON string are transient, so
+     * Gson never fills them from a received message, but they are part
+     * of the serialized form.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("params", AnnounceParams.class),
+        new ObjectStreamField("path", String.class),
+        new ObjectStreamField("contentHash", byte[].class),
+        new ObjectStreamField("compressedJson", byte[].class),
+    };
+
     private static final int INITIAL_HASHCODE_BUFFER_SIZE = 100;
+    private static final int INFLATE_BUFFER_SIZE = 1024;
+    private static final int HASH_LENGTH = 16;
+    private static final Charset CHARSET = Charset.forName("UTF-8");
 
     Announce() {
         super("announce");
     }
+
+    Announce(AnnounceParams params) {
+        this();
+        this.params = params;
+    }
     
     /**
      * Get the parameters of an announce message.
@@ -57,9 +96,56 @@ public final class Announce extends JsonRpc implements Serializable {
      * AnnounceDeserializer} that only valid announces are forwarded
      * through the chain of observers, so a null reference is never
      * returned from this method.
+     * @throws IllegalStateException if the parameters of a lazily
+     * decoded announce can't be decoded, see {@link
+     * AnnounceDeserializer#setLazyDecoding(boolean)}.
      */
     public AnnounceParams getParams() {
-        return params;
+        AnnounceParams current = params;
+        if (current == null) {
+            synchronized (this) {
+                current = params;
+                if (current == null && decoder != null) {
+                    current = decoder.materialize(this);
+                    params = current;
+                    decoder = null;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Defers decoding of the parameters until {@link #getParams()} is
+     * called for the first time.
+     *
+     * @param lazyDecoder the deserializer which decodes the parameters
+     * from the JSON string.
+     * @param communicationPath the already identified communication path.
+     * @param expiration the announced expiration in seconds, 0 if not
+     * announced.
+     */
+    void decodeLazily(AnnounceDeserializer lazyDecoder, String communicationPath, int expiration) {
+        this.decoder = lazyDecoder;
+        this.path = communicationPath;
+        this.announcedExpiration = expiration;
+    }
+
+    /**
+     * @return the expiration in seconds, without decoding the parameters
+     * of a lazily decoded announce.
+     */
+    int getExpiration() {
+        synchronized (this) {
+            if (params == null && decoder != null) {
+                return announcedExpiration == 0 ? ScanConstants.DEFAULT_EXPIRATION_S : announcedExpiration;
+            }
+        }
+        return getParams().getExpiration();
+    }
+
+    boolean isDecoded() {
+        return params != null;
     }
     
     /**
@@ -115,12 +201,124 @@ public final class Announce extends JsonRpc implements Serializable {
             return false;
         }
         final Announce rhs = (Announce)obj;
-        return this.getJSONString().equals(rhs.getJSONString());
+        return Arrays.equals(getContentHash(), rhs.getContentHash());
     }
 
     @Override
     public int hashCode() {
-        return getJSONString().hashCode();
+        final byte[] hash = getContentHash();
+        return Ints.fromBytes(hash[0], hash[1], hash[2], hash[3]);
+    }
+
+    /**
+     * Gets the JSON representation of the announce.
+     *
+     * Depending on the {@link JsonRetention} of the {@link
+     * AnnounceDeserializer}, the JSON string is returned as received,
+     * inflated from its compressed form or rebuilt from the parsed
+     * fields.
+     *
+     * @return the JSON representation of the announce.
+     */
+    @Override
+    public String getJSONString() {
+        final String json = super.getJSONString();
+        if (json != null) {
+            return json;
+        }
+        if (compressedJson != null) {
+            return inflate(compressedJson);
+        }
+        if (params != null) {
+            return AnnounceCodec.toJson(params).toString();
+        }
+        return null;
+    }
+
+    /**
+     * Computes the content hash and drops or compresses the JSON string
+     * according to {@code retention}.
+     */
+    void retainJson(JsonRetention retention) {
+        if (retention == JsonRetention.FULL) {
+            return;
+        }
+        final String json = super.getJSONString();
+        if (json == null) {
+            return;
+        }
+        getContentHash();
+        if (retention == JsonRetention.COMPRESSED) {
+            compressedJson = deflate(json);
+        }
+        setJSONString(null);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getParams();
+        out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (contentHash != null && contentHash.length != HASH_LENGTH) {
+            throw new InvalidObjectException("Invalid content hash in serialized announce");
+        }
+    }
+
+    /*
+     * The hash of the JSON string as received. It identifies the content
+     * of the announce even if the JSON string is not retained or was
+     * rebuilt from the parsed fields.
+     */
+    byte[] getContentHash() {
+        byte[] hash = contentHash;
+        if (hash == null) {
+            hash = Hashing.murmur3_128().hashString(getJSONString(), CHARSET).asBytes();
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    void setContentHash(byte[] hash) {
+        contentHash = hash;
+    }
+
+    private static byte[] deflate(String json) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(json.getBytes(CHARSET));
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(json.length() / 2);
+            final byte[] buffer = new byte[INFLATE_BUFFER_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] compressed) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            final byte[] buffer = new byte[INFLATE_BUFFER_SIZE];
+            while (!inflater.finished()) {
+                final int length = inflater.inflate(buffer);
+                if (length == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Truncated compressed JSON");
+                }
+                out.write(buffer, 0, length);
+            }
+            return new String(out.toByteArray(), CHARSET);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed JSON", e);
+        } finally {
+            inflater.end();
+        }
     }
 
     String getPath() {
@@ -28,9 +28,6 @@
 
 package com.hbm.devices.scan.announce;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-
 /*
  * This class caches parsed Announce messages to avoid unnecessary JSON
  * parsing.
@@ -39,7 +36,8 @@ import java.util.Map;
  * LRU (least recently used) cache. So old announce messages will be
  * removed if the capacity of the cache exceeds.
  *
- * Parsed JSON messages are stored in parsedMessages.
+ * Parsed JSON messages are stored in parsedMessages. The key is either
+ * the message itself or, in memory-lean mode, a hash of the message.
  * 
  * There is a second cache called lastDeviceAnnounce. This cache is used to
  * check if a device already announced messages previously. This
@@ -50,8 +48,8 @@ final class AnnounceCache {
 
     private static final int DEFAULT_CACHE_SIZE = 100;
 
-    private final LRUCache<String, Announce> parsedMessages;
-    private final LRUCache<String, String> lastDeviceAnnounce;
+    private final LRUCache<Object, Announce> parsedMessages;
+    private final LRUCache<String, Object> lastDeviceAnnounce;
 
     AnnounceCache() {
         this(DEFAULT_CACHE_SIZE);
@@ -62,8 +60,8 @@ final class AnnounceCache {
         lastDeviceAnnounce = new LRUCache<>(cacheSize);
     }
 
-    Announce get(String string) {
-        return parsedMessages.get(string);
+    Announce get(Object key) {
+        return parsedMessages.get(key);
     }
 
     int size() {
@@ -74,41 +72,19 @@ final class AnnounceCache {
         return lastDeviceAnnounce.size();
     }
 
-    void put(String announceString, Announce announce) {
+    void put(Object announceKey, Announce announce) {
         final String path = announce.getPath();
         if (lastDeviceAnnounce.containsKey(path)) {
             // device has send an announce earlier, but it has changed its announce content (e.g.
             // its running services changed)
-            final String lastAnnounceString = lastDeviceAnnounce.get(path);
-            parsedMessages.remove(lastAnnounceString);
-            parsedMessages.put(announceString, announce);
-            lastDeviceAnnounce.put(path, announceString);
+            final Object lastAnnounceKey = lastDeviceAnnounce.get(path);
+            parsedMessages.remove(lastAnnounceKey);
+            parsedMessages.put(announceKey, announce);
+            lastDeviceAnnounce.put(path, announceKey);
         } else {
             // the device has not sent an announce message earlier
-            lastDeviceAnnounce.put(path, announceString);
-            parsedMessages.put(announceString, announce);
+            lastDeviceAnnounce.put(path, announceKey);
+            parsedMessages.put(announceKey, announce);
         }
     }
 }
-
-final class LRUCache<K, V> extends LinkedHashMap<K, V> {
-
-    private static final long serialVersionUID = -8301636009829845575L;
-
-    /**
-     * By default the cache size is 100.
-     */
-    private static final float LOAD_FACTOR = 0.75F;
-
-    private final int maxSize;
-
-    LRUCache(int maxSize) {
-        super(maxSize + 1, LOAD_FACTOR, true);
-        this.maxSize = maxSize;
-    }
-
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-        return size() > maxSize;
-    }
-}
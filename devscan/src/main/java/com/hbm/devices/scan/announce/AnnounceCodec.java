@@ -0,0 +1,487 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Compact, versioned binary encoding of {@link Announce} objects.
+ * <p>
+ * The encoding only contains the parsed fields of an announce. Strings
+ * are stored as length prefixed UTF-8, integers as variable length
+ * quantities and IP addresses as raw address bytes, so an encoded
+ * announce is considerably smaller than both its JSON representation
+ * and its Java serialized form.
+ * <p>
+ * The original JSON string of an announce is not part of the encoding.
+ * A decoded announce carries a canonical JSON representation rebuilt
+ * from its fields instead. The content hash of the original announce
+ * is encoded though, so a decoded announce is equal to the announce
+ * received from the network. A check hash over the content hash and
+ * the canonical JSON representation binds both together, so an
+ * encoding whose fields don't match its content hash is rejected.
+ * <p>
+ * All lengths and counts in the encoding are checked against upper
+ * bounds, and against the remaining data when decoding a byte array,
+ * before anything is allocated, so corrupt or hostile data is rejected
+ * with an {@link IOException}.
+ *
+ * @since 2.3
+ */
+public final class AnnounceCodec {
+
+    /**
+     * The version of the encoding written by this class.
+     */
+    public static final int VERSION = 3;
+
+    /*
+     * An announce fits into a single UDP datagram, so no string and no
+     * list in it can be longer.
+     */
+    static final int MAX_LENGTH = 65535;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int IPV4_LENGTH = 4;
+    private static final int IPV6_LENGTH = 16;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int HASH_LENGTH = 16;
+    private static final int VERSION_WITHOUT_HASH = 1;
+    private static final int VERSION_WITHOUT_CHECK = 2;
+
+    private AnnounceCodec() {
+    }
+
+    /**
+     * Encodes an announce.
+     *
+     * @param announce the announce to encode.
+     * @return the encoded announce.
+     */
+    public static byte[] encode(Announce announce) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try {
+            encode(announce, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't write to byte array", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes an announce.
+     *
+     * @param announce the announce to encode.
+     * @param out the destination of the encoded announce.
+     * @throws IOException if writing to {@code out} fails.
+     */
+    public static void encode(Announce announce, DataOutput out) throws IOException {
+        if (announce == null || announce.getParams() == null) {
+            throw new IllegalArgumentException("No announce given");
+        }
+        final AnnounceParams params = announce.getParams();
+        final byte[] hash = announce.getContentHash();
+        out.writeByte(VERSION);
+        out.write(hash);
+        out.write(checkHash(hash, toJson(params).toString()));
+        writeString(out, params.apiVersion);
+        writeVarInt(out, params.expiration);
+        writeDevice(out, params.device);
+        writeNetSettings(out, params.netSettings);
+        writeString(out, params.router == null ? null : params.router.uuid);
+        writeServices(out, params.serviceTypes == null ? null : params.getServices());
+    }
+
+    /**
+     * Decodes an announce.
+     *
+     * @param data the encoded announce.
+     * @return the decoded announce.
+     * @throws IOException if {@code data} is no valid encoded announce.
+     */
+    public static Announce decode(byte[] data) throws IOException {
+        return decode(new BoundedInput(data));
+    }
+
+    /**
+     * Decodes an announce.
+     *
+     * @param in the source of the encoded announce.
+     * @return the decoded announce.
+     * @throws IOException if reading from {@code in} fails or the data
+     * read is no valid encoded announce.
+     */
+    public static Announce decode(DataInput in) throws IOException {
+        final int version = in.readUnsignedByte();
+        if (version != VERSION && version != VERSION_WITHOUT_CHECK && version != VERSION_WITHOUT_HASH) {
+            throw new IOException("Unsupported announce encoding version " + version);
+        }
+        /*
+         * A content hash without a check hash can't be verified, so
+         * it's skipped and the hash of the canonical JSON is used.
+         */
+        byte[] hash = null;
+        byte[] check = null;
+        if (version != VERSION_WITHOUT_HASH) {
+            hash = new byte[HASH_LENGTH];
+            in.readFully(hash);
+        }
+        if (version == VERSION) {
+            check = new byte[HASH_LENGTH];
+            in.readFully(check);
+        } else {
+            hash = null;
+        }
+        final AnnounceParams params = new AnnounceParams();
+        params.apiVersion = readString(in);
+        params.expiration = readVarInt(in);
+        params.device = readDevice(in);
+        params.netSettings = readNetSettings(in);
+        final String routerUuid = readString(in);
+        if (routerUuid != null) {
+            params.router = new Router();
+            params.router.uuid = routerUuid;
+        }
+        params.setServices(readServices(in));
+
+        final String json = toJson(params).toString();
+        if (check != null && !Arrays.equals(check, checkHash(hash, json))) {
+            throw new IOException("Content hash doesn't match the encoded announce");
+        }
+        final Announce announce = new Announce(params);
+        announce.setJSONString(json);
+        announce.setContentHash(hash);
+        try {
+            announce.identifyCommunicationPath();
+        } catch (MissingDataException e) {
+            throw new IOException("Incomplete announce encoding", e);
+        }
+        return announce;
+    }
+
+    private static byte[] checkHash(byte[] contentHash, String json) {
+        return Hashing.murmur3_128().newHasher()
+            .putBytes(contentHash)
+            .putString(json, CHARSET)
+            .hash().asBytes();
+    }
+
+    private static void writeDevice(DataOutput out, Device device) throws IOException {
+        out.writeBoolean(device != null);
+        if (device != null) {
+            writeString(out, device.uuid);
+            writeString(out, device.name);
+            writeString(out, device.type);
+            writeString(out, device.label);
+            writeString(out, device.familyType);
+            writeString(out, device.firmwareVersion);
+            writeString(out, device.hardwareId);
+            out.writeBoolean(device.router);
+        }
+    }
+
+    private static Device readDevice(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        final Device device = new Device();
+        device.uuid = readString(in);
+        device.name = readString(in);
+        device.type = readString(in);
+        device.label = readString(in);
+        device.familyType = readString(in);
+        device.firmwareVersion = readString(in);
+        device.hardwareId = readString(in);
+        device.router = in.readBoolean();
+        return device;
+    }
+
+    private static void writeNetSettings(DataOutput out, NetSettings settings) throws IOException {
+        out.writeBoolean(settings != null);
+        if (settings == null) {
+            return;
+        }
+        final DefaultGateway gateway = settings.defaultGateway;
+        out.writeBoolean(gateway != null);
+        if (gateway != null) {
+            writeString(out, gateway.ipv4Address);
+            writeString(out, gateway.ipv6Address);
+        }
+        final Interface iface = settings.iface;
+        out.writeBoolean(iface != null);
+        if (iface != null) {
+            writeString(out, iface.name);
+            writeString(out, iface.type);
+            writeString(out, iface.description);
+            final List<IPEntry> ipList = iface.getIPList();
+            writeVarInt(out, ipList.size());
+            for (final IPEntry entry : ipList) {
+                final byte[] address = entry.getAddress().getAddress();
+                out.writeByte(address.length);
+                out.write(address);
+                out.writeByte(entry.getPrefix());
+            }
+        }
+    }
+
+    private static NetSettings readNetSettings(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        final NetSettings settings = new NetSettings();
+        if (in.readBoolean()) {
+            settings.defaultGateway = new DefaultGateway();
+            settings.defaultGateway.ipv4Address = readString(in);
+            settings.defaultGateway.ipv6Address = readString(in);
+        }
+        if (in.readBoolean()) {
+            final Interface iface = new Interface();
+            iface.name = readString(in);
+            iface.type = readString(in);
+            iface.description = readString(in);
+            final int count = readLength(in, readVarInt(in));
+            final List<IPEntry> ipList = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final int length = in.readUnsignedByte();
+                if (length != IPV4_LENGTH && length != IPV6_LENGTH) {
+                    throw new IOException("Illegal IP address length " + length);
+                }
+                final byte[] address = new byte[length];
+                in.readFully(address);
+                final IPEntry entry = new IPEntry();
+                entry.address = InetAddress.getByAddress(address);
+                entry.prefix = in.readUnsignedByte();
+                ipList.add(entry);
+            }
+            iface.setIPList(ipList);
+            settings.iface = iface;
+        }
+        return settings;
+    }
+
+    private static void writeServices(DataOutput out, List<ServiceEntry> services) throws IOException {
+        if (services == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, services.size() + 1);
+        for (final ServiceEntry service : services) {
+            writeString(out, service.type);
+            writeVarInt(out, service.port);
+        }
+    }
+
+    private static List<ServiceEntry> readServices(DataInput in) throws IOException {
+        final int value = readVarInt(in);
+        if (value == 0) {
+            return null;
+        }
+        final int count = readLength(in, value - 1);
+        final List<ServiceEntry> services = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final ServiceEntry service = new ServiceEntry();
+            service.type = readString(in);
+            service.port = readVarInt(in);
+            services.add(service);
+        }
+        return services;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        final byte[] bytes = value.getBytes(CHARSET);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        final int value = readVarInt(in);
+        if (value == 0) {
+            return null;
+        }
+        final int length = readLength(in, value - 1);
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    /*
+     * Checks a length or count read from the encoding. Every element
+     * counted occupies at least one byte, so the count can't exceed the
+     * remaining data either.
+     */
+    private static int readLength(DataInput in, int length) throws IOException {
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Illegal length " + length + " in announce encoding");
+        }
+        if (in instanceof BoundedInput && length > ((BoundedInput) in).remaining()) {
+            throw new IOException("Length " + length + " exceeds announce encoding");
+        }
+        return length;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7f) != 0) {
+            out.writeByte((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static final class BoundedInput extends DataInputStream {
+        private final ByteArrayInputStream bytes;
+
+        BoundedInput(byte[] data) {
+            this(new ByteArrayInputStream(data));
+        }
+
+        private BoundedInput(ByteArrayInputStream bytes) {
+            super(bytes);
+            this.bytes = bytes;
+        }
+
+        int remaining() {
+            return bytes.available();
+        }
+    }
+
+    static JsonObject toJson(AnnounceParams params) {
+        final JsonObject json = new JsonObject();
+        json.addProperty("jsonrpc", "2.0");
+        json.addProperty("method", "announce");
+        final JsonObject p = new JsonObject();
+        p.addProperty("apiVersion", params.apiVersion);
+        if (params.device != null) {
+            final Device device = params.device;
+            final JsonObject d = new JsonObject();
+            d.addProperty("uuid", device.uuid);
+            d.addProperty("name", device.name);
+            d.addProperty("type", device.type);
+            d.addProperty("label", device.label);
+            d.addProperty("familyType", device.familyType);
+            d.addProperty("firmwareVersion", device.firmwareVersion);
+            d.addProperty("hardwareId", device.hardwareId);
+            d.addProperty("isRouter", device.router);
+            p.add("device", d);
+        }
+        if (params.netSettings != null) {
+            p.add("netSettings", toJson(params.netSettings));
+        }
+        if (params.router != null) {
+            final JsonObject r = new JsonObject();
+            r.addProperty("uuid", params.router.uuid);
+            p.add("router", r);
+        }
+        if (params.serviceTypes != null) {
+            final JsonArray services = new JsonArray();
+            for (final ServiceEntry service : params.getServices()) {
+                final JsonObject s = new JsonObject();
+                s.addProperty("type", service.type);
+                s.addProperty("port", service.port);
+                services.add(s);
+            }
+            p.add("services", services);
+        }
+        if (params.expiration != 0) {
+            p.addProperty("expiration", params.expiration);
+        }
+        json.add("params", p);
+        return json;
+    }
+
+    private static JsonObject toJson(NetSettings settings) {
+        final JsonObject n = new JsonObject();
+        if (settings.defaultGateway != null) {
+            final JsonObject g = new JsonObject();
+            g.addProperty("ipv4Address", settings.defaultGateway.ipv4Address);
+            g.addProperty("ipv6Address", settings.defaultGateway.ipv6Address);
+            n.add("defaultGateway", g);
+        }
+        if (settings.iface != null) {
+            final Interface iface = settings.iface;
+            final JsonObject i = new JsonObject();
+            i.addProperty("name", iface.name);
+            i.addProperty("type", iface.type);
+            i.addProperty("description", iface.description);
+            final JsonArray ipv4 = new JsonArray();
+            final JsonArray ipv6 = new JsonArray();
+            for (final IPEntry entry : iface.getIPList()) {
+                final JsonObject e = new JsonObject();
+                e.addProperty("address", entry.getAddress().getHostAddress());
+                if (entry.getAddress().getAddress().length == IPV4_LENGTH) {
+                    e.addProperty("netmask", toNetmask(entry.getPrefix()));
+                    ipv4.add(e);
+                } else {
+                    e.addProperty("prefix", entry.getPrefix());
+                    ipv6.add(e);
+                }
+            }
+            i.add("ipv4", ipv4);
+            i.add("ipv6", ipv6);
+            n.add("interface", i);
+        }
+        return n;
+    }
+
+    private static String toNetmask(int prefix) {
+        final long mask = prefix == 0 ? 0 : (0xffffffffL << (Integer.SIZE - prefix)) & 0xffffffffL;
+        return ((mask >> 24) & 0xff) + "." + ((mask >> 16) & 0xff) + "." + ((mask >> 8) & 0xff) + "." + (mask & 0xff);
+    }
+}
@@ -28,13 +28,16 @@
 package com.hbm.devices.scan.announce;
 
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
@@ -48,7 +51,7 @@ import com.hbm.devices.scan.ScanConstants;
 
 import java.net.InetAddress;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -66,13 +69,35 @@ public final class AnnounceDeserializer extends Observable implements Observer {
 
     private final Gson gson;
     private final AnnounceCache announceCache;
+    private final StringInterner interner;
+    private final JsonRetention retention;
+    private volatile boolean lazy;
+    private static final int INTERNED_STRINGS = 1024;
     private static final Logger LOGGER = Logger.getLogger(ScanConstants.LOGGER_NAME);
 
     /**
      * Constructs a {@link AnnounceDeserializer} object.
      */
     public AnnounceDeserializer() {
+        this(JsonRetention.FULL);
+    }
+
+    /**
+     * Constructs a {@link AnnounceDeserializer} object.
+     *
+     * @param retention determines how the JSON representation of
+     * parsed announces is retained. With anything but {@link
+     * JsonRetention#FULL}, received messages are also cached by their
+     * hash instead of by the message itself.
+     *
+     * @since 2.3
+     */
+    public AnnounceDeserializer(JsonRetention retention) {
         super();
+        if (retention == null) {
+            throw new IllegalArgumentException("No JSON retention given");
+        }
+        this.retention = retention;
 
         final GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(JsonRpc.class, new JsonRpcDeserializer());
@@ -86,6 +111,35 @@ public final class AnnounceDeserializer extends Observable implements Observer {
         gson = builder.create();
 
         this.announceCache = new AnnounceCache();
+        this.interner = new StringInterner(INTERNED_STRINGS);
+    }
+
+    /**
+     * Enables or disables lazy decoding of announces.
+     * <p>
+     * With lazy decoding, a received message is validated in a single
+     * streaming pass, which checks all sections with the same rules as
+     * eager decoding but doesn't build any objects besides the
+     * communication path and the expiration. The sections are decoded
+     * on the first call of {@link Announce#getParams()}. So announces
+     * which only re-arm the timers of a {@link DeviceMonitor} are cheap
+     * to process.
+     * <p>
+     * The JSON string of a lazily decoded announce is the message as
+     * received. Lazy decoding drops every message eager decoding would
+     * drop, so a lazily decoded announce always decodes completely.
+     * Should that fail nevertheless, {@link Announce#getParams()} throws
+     * an {@link IllegalStateException} instead of returning partially
+     * decoded parameters.
+     * <p>
+     * Lazy decoding only takes effect with {@link JsonRetention#FULL}.
+     *
+     * @param lazy true to enable lazy decoding.
+     *
+     * @since 2.3
+     */
+    public void setLazyDecoding(boolean lazy) {
+        this.lazy = lazy;
     }
 
     AnnounceCache getCache() {
@@ -95,34 +149,14 @@ public final class AnnounceDeserializer extends Observable implements Observer {
     @Override
     public void update(Observable observable, Object arg) {
         final String message = (String) arg;
-        Announce announce = announceCache.get(message);
+        final Object key = cacheKey(message);
+        Announce announce = announceCache.get(key);
         if (announce == null) {
-            try {
-                announce = (Announce) gson.fromJson(message, JsonRpc.class);
-                if (announce != null) {
-                    announce.identifyCommunicationPath();
-                    if (announce.getParams().getExpiration() < 0) {
-                        return;
-                    }
-                    announceCache.put(message, announce);
-                    setChanged();
-                    notifyObservers(announce);
-                }
-            } catch (JsonSyntaxException e) {
-                /*
-                 * There is no error handling necessary in this case. If somebody sends us invalid JSON,
-                 * we just ignore the packet and go ahead.
-                 */
-                LOGGER.log(Level.SEVERE, "Can't parse JSON!", e);
-            } catch (MissingDataException e) {
-                /*
-                 * During the creation of an Announce object it is required that some
-                 * sub-objects are created in the parsed JSON object (i.e. the device's UUID). If these
-                 * sub-objects are not created, the construction of the Announce object fails.
-                 *
-                 * Go ahead with the next packet.
-                 */
-                LOGGER.log(Level.SEVERE, "Some information is missing in JSON!", e);
+            announce = parse(message);
+            if (announce != null) {
+                announceCache.put(key, announce);
+                setChanged();
+                notifyObservers(announce);
             }
         } else {
             setChanged();
@@ -130,6 +164,128 @@ public final class AnnounceDeserializer extends Observable implements Observer {
         }
     }
 
+    /**
+     * Parses an announce message without notifying observers.
+     *
+     * @param message the JSON announce message.
+     * @return the parsed announce, or null if the message is no valid
+     * announce.
+     */
+    Announce parse(String message) {
+        if (lazy && retention == JsonRetention.FULL) {
+            return parseLazily(message);
+        }
+        try {
+            final Announce announce = (Announce) gson.fromJson(message, JsonRpc.class);
+            if (announce != null) {
+                announce.identifyCommunicationPath();
+                if (announce.getParams().getExpiration() < 0) {
+                    return null;
+                }
+                intern(announce.getParams());
+                announce.retainJson(retention);
+            }
+            return announce;
+        } catch (JsonParseException e) {
+            /*
+             * There is no error handling necessary in this case. If somebody sends us invalid JSON,
+             * we just ignore the packet and go ahead.
+             */
+            LOGGER.log(Level.SEVERE, "Can't parse JSON!", e);
+        } catch (MissingDataException e) {
+            /*
+             * During the creation of an Announce object it is required that some
+             * sub-objects are created in the parsed JSON object (i.e. the device's UUID). If these
+             * sub-objects are not created, the construction of the Announce object fails.
+             *
+             * Go ahead with the next packet.
+             */
+            LOGGER.log(Level.SEVERE, "Some information is missing in JSON!", e);
+        }
+        return null;
+    }
+
+    private Announce parseLazily(String message) {
+        if (message == null) {
+            return null;
+        }
+        try {
+            final AnnounceValidator validator = AnnounceValidator.validate(message);
+            if (validator == null || validator.getExpiration() < 0) {
+                return null;
+            }
+            final Announce announce = new Announce();
+            announce.setJSONString(message);
+            announce.decodeLazily(this, validator.getCommunicationPath(), validator.getExpiration());
+            return announce;
+        } catch (JsonParseException e) {
+            LOGGER.log(Level.SEVERE, "Can't parse JSON!", e);
+        } catch (MissingDataException e) {
+            LOGGER.log(Level.SEVERE, "Some information is missing in JSON!", e);
+        }
+        return null;
+    }
+
+    /*
+     * Decodes the parameters of a lazily decoded announce. The message
+     * was validated completely when it was received, so a failure is a
+     * bug and no partially decoded parameters are handed out.
+     */
+    AnnounceParams materialize(Announce announce) {
+        final Announce decoded;
+        try {
+            decoded = (Announce) gson.fromJson(announce.getJSONString(), JsonRpc.class);
+        } catch (JsonParseException e) {
+            throw new IllegalStateException("Can't decode validated announce!", e);
+        }
+        if (decoded == null || decoded.getParams() == null) {
+            throw new IllegalStateException("Can't decode validated announce!");
+        }
+        final AnnounceParams params = decoded.getParams();
+        intern(params);
+        return params;
+    }
+
+    private Object cacheKey(String message) {
+        if (retention == JsonRetention.FULL || message == null) {
+            return message;
+        }
+        return Hashing.murmur3_128().hashString(message, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Replaces the highly repetitive strings of an announce, like
+     * family types, firmware versions or service types, by shared
+     * instances. UUIDs and labels are unique per device and not worth
+     * interning.
+     */
+    private void intern(AnnounceParams params) {
+        params.apiVersion = interner.intern(params.apiVersion);
+        final Device device = params.device;
+        if (device != null) {
+            device.name = interner.intern(device.name);
+            device.type = interner.intern(device.type);
+            device.familyType = interner.intern(device.familyType);
+            device.firmwareVersion = interner.intern(device.firmwareVersion);
+            device.hardwareId = interner.intern(device.hardwareId);
+        }
+        if (params.router != null) {
+            params.router.uuid = interner.intern(params.router.uuid);
+        }
+        if (params.netSettings != null && params.netSettings.iface != null) {
+            final Interface iface = params.netSettings.iface;
+            iface.name = interner.intern(iface.name);
+            iface.type = interner.intern(iface.type);
+            iface.description = interner.intern(iface.description);
+        }
+        final String[] serviceTypes = params.serviceTypes;
+        if (serviceTypes != null) {
+            for (int i = 0; i < serviceTypes.length; i++) {
+                serviceTypes[i] = interner.intern(serviceTypes[i]);
+            }
+        }
+    }
+
     private static final class JsonRpcDeserializer implements JsonDeserializer<JsonRpc> {
 
         JsonRpcDeserializer() {
@@ -185,43 +341,69 @@ public final class AnnounceDeserializer extends Observable implements Observer {
                 }
             }
 
-            iface.ipList = new LinkedList<>();
-            JsonElement ipv4 = jsonObject.get("ipv4");
-            if (ipv4 != null) {
-                for (JsonElement e : ipv4.getAsJsonArray()) {
-                    JsonElement address = e.getAsJsonObject().get("address");
-                    JsonElement netMask = e.getAsJsonObject().get("netmask");
-                    if ((address != null) && (netMask != null)) {
-                        InetAddress value = context.deserialize(address, InetAddress.class);
-                        InetAddress mask = context.deserialize(netMask, InetAddress.class);
-                        if ((value != null) && (mask != null)) {
-                            IPEntry entry = new IPEntry();
-                            entry.address = value;
-                            entry.prefix = calculatePrefix(mask);
-                            iface.ipList.add(entry);
-                        }
-                    }
+            parseAddresses(jsonObject, iface);
+            return iface;
+        }
+    }
+
+    /*
+     * Parses the ipv4 and ipv6 sections of an interface straight into
+     * the packed representation used by Interface. Only address
+     * literals are accepted, so the name resolver is never consulted.
+     */
+    static void parseAddresses(JsonObject jsonObject, Interface iface) {
+        final JsonArray ipv4 = getArray(jsonObject, "ipv4");
+        final JsonArray ipv6 = getArray(jsonObject, "ipv6");
+        final int capacity = (ipv4 == null ? 0 : ipv4.size()) + (ipv6 == null ? 0 : ipv6.size());
+        final long[] addresses = new long[2 * capacity];
+        final int[] prefixes = new int[capacity];
+        final long[] address = new long[2];
+        int count = 0;
+        if (ipv4 != null) {
+            for (final JsonElement e : ipv4) {
+                final JsonElement literal = e.getAsJsonObject().get("address");
+                final JsonElement netMask = e.getAsJsonObject().get("netmask");
+                if (isPresent(literal) && isPresent(netMask)) {
+                    parseLiteral(netMask, address);
+                    final int prefix = AddressLiteral.bitCount(address[0], address[1]);
+                    parseLiteral(literal, address);
+                    addresses[2 * count] = address[0];
+                    addresses[2 * count + 1] = address[1];
+                    prefixes[count++] = prefix;
                 }
             }
-
-            JsonElement ipv6 = jsonObject.get("ipv6");
-            if (ipv6 != null) {
-                for (JsonElement e : ipv6.getAsJsonArray()) {
-                    JsonElement address = e.getAsJsonObject().get("address");
-                    JsonElement prefix = e.getAsJsonObject().get("prefix");
-                    if ((address != null) && (prefix != null)) {
-                        InetAddress value = context.deserialize(address, InetAddress.class);
-                        if (value != null) {
-                            IPEntry entry = new IPEntry();
-                            entry.address = value;
-                            entry.prefix = prefix.getAsInt();
-                            iface.ipList.add(entry);
-                        }
-                    }
+        }
+        if (ipv6 != null) {
+            for (final JsonElement e : ipv6) {
+                final JsonElement literal = e.getAsJsonObject().get("address");
+                final JsonElement prefix = e.getAsJsonObject().get("prefix");
+                if (isPresent(literal) && (prefix != null)) {
+                    parseLiteral(literal, address);
+                    addresses[2 * count] = address[0];
+                    addresses[2 * count + 1] = address[1];
+                    prefixes[count++] = prefix.getAsInt();
                 }
             }
+        }
+        if (count == capacity) {
+            iface.setAddresses(addresses, prefixes);
+        } else {
+            iface.setAddresses(Arrays.copyOf(addresses, 2 * count), Arrays.copyOf(prefixes, count));
+        }
+    }
 
-            return iface;
+    private static JsonArray getArray(JsonObject parent, String name) {
+        final JsonElement element = parent.get(name);
+        return element == null ? null : element.getAsJsonArray();
+    }
+
+    private static boolean isPresent(JsonElement element) {
+        return (element != null) && !element.isJsonNull();
+    }
+
+    private static void parseLiteral(JsonElement element, long[] address) {
+        if (!isStringElement(element) || !AddressLiteral.parse(element.getAsString(), address)) {
+            throw new JsonParseException("No IP address literal: " + element);
         }
     }
 
@@ -274,7 +456,7 @@ public final class AnnounceDeserializer extends Observable implements Observer {
                     params.router = router;
                     JsonElement e = jsonObject.get("services");
                     List<ServiceEntry> services = context.deserialize(e, serviceListType);
-                    params.services = services;
+                    params.setServices(services);
                     e = jsonObject.get("expiration");
                     if (e != null) {
                         params.expiration = e.getAsInt();
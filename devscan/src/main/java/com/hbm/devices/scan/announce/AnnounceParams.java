@@ -28,6 +28,9 @@
 
 package com.hbm.devices.scan.announce;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -49,9 +52,16 @@ public final class AnnounceParams implements Serializable {
     Device device;
     NetSettings netSettings;
     Router router;
-    List<ServiceEntry> services;
     int expiration;
 
+    /*
+     * Services are stored flattened as parallel arrays of (interned)
+     * type strings and ports. A null serviceTypes array means no
+     * services section was announced.
+     */
+    String[] serviceTypes;
+    private int[] servicePorts;
+
     private static final long serialVersionUID = 2532013264163413436L;
 
     AnnounceParams() {
@@ -105,10 +115,90 @@ public final class AnnounceParams implements Serializable {
      * announced, an empty {@link java.util.List} is returned.
      */
     public List<ServiceEntry> getServices() {
-        if (services == null) {
+        if (serviceTypes == null) {
             return new ArrayList<>();
+        }
+        final List<ServiceEntry> services = new ArrayList<>(serviceTypes.length);
+        for (int i = 0; i < serviceTypes.length; i++) {
+            final ServiceEntry entry = new ServiceEntry();
+            entry.type = serviceTypes[i];
+            entry.port = servicePorts[i];
+            services.add(entry);
+        }
+        return Collections.unmodifiableList(services);
+    }
+
+    /**
+     * Checks if a service of a given type was announced.
+     *
+     * @param type the service type to look for.
+     * @return true if at least one service of {@code type} was
+     * announced.
+     *
+     * @since 2.3
+     */
+    public boolean hasServiceType(String type) {
+        if (serviceTypes != null) {
+            for (final String serviceType : serviceTypes) {
+                if (type.equals(serviceType)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void setServices(List<ServiceEntry> services) {
+        if (services == null) {
+            serviceTypes = null;
+            servicePorts = null;
+            return;
+        }
+        final int size = services.size();
+        serviceTypes = new String[size];
+        servicePorts = new int[size];
+        for (int i = 0; i < size; i++) {
+            serviceTypes[i] = services.get(i).type;
+            servicePorts[i] = services.get(i).port;
+        }
+    }
+
+    /*
+     * Parameters serialized before the services were packed carry a
+     * services list instead of the type and port arrays.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        apiVersion = (String) fields.get("apiVersion", null);
+        device = (Device) fields.get("device", null);
+        netSettings = (NetSettings) fields.get("netSettings", null);
+        router = (Router) fields.get("router", null);
+        expiration = fields.get("expiration", 0);
+        if (fields.defaulted("serviceTypes")) {
+            final Object services = fields.get("services", null);
+            if (services == null) {
+                setServices(null);
+                return;
+            }
+            if (!(services instanceof List)) {
+                throw new InvalidObjectException("Invalid services in serialized announce parameters");
+            }
+            final List<ServiceEntry> entries = new ArrayList<>();
+            for (final Object entry : (List<?>) services) {
+                if (!(entry instanceof ServiceEntry)) {
+                    throw new InvalidObjectException("Invalid service in serialized announce parameters");
+                }
+                entries.add((ServiceEntry) entry);
+            }
+            setServices(entries);
         } else {
-            return Collections.unmodifiableList(services);
+            final String[] types = (String[]) fields.get("serviceTypes", null);
+            final int[] ports = (int[]) fields.get("servicePorts", null);
+            if ((types == null) != (ports == null) || (types != null && types.length != ports.length)) {
+                throw new InvalidObjectException("Invalid services in serialized announce parameters");
+            }
+            serviceTypes = types;
+            servicePorts = ports;
         }
     }
 
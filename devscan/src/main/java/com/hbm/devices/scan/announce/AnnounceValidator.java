@@ -0,0 +1,518 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Validates an announce message in a single streaming pass, without
+ * building a JSON tree.
+ * <p>
+ * Every section read by the {@link AnnounceDeserializer} is checked
+ * with the same rules it applies, so a message accepted here can always
+ * be decoded completely later on. While validating, the communication
+ * path and the expiration of the announce are collected.
+ *
+ * @since 2.3
+ */
+final class AnnounceValidator {
+
+    private final JsonReader reader;
+    private final long[] address = new long[2];
+    private String method;
+    private boolean hasParams;
+    private String apiVersion;
+    private String deviceUUID;
+    private boolean hasRouter;
+    private String routerUUID;
+    private String interfaceName;
+    private int expiration;
+
+    private AnnounceValidator(String message) {
+        reader = new JsonReader(new StringReader(message));
+        reader.setLenient(true);
+    }
+
+    /**
+     * Validates an announce message.
+     *
+     * @param message the JSON message.
+     * @return the validator holding the communication path and the
+     * expiration, or null if the message is no announce.
+     * @throws JsonSyntaxException if the message is malformed.
+     * @throws MissingDataException if required information is missing.
+     */
+    static AnnounceValidator validate(String message) throws MissingDataException {
+        final AnnounceValidator validator = new AnnounceValidator(message);
+        try {
+            if (!validator.readRoot()) {
+                return null;
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+        if (!"announce".equals(validator.method)) {
+            return null;
+        }
+        validator.checkRequired();
+        return validator;
+    }
+
+    /**
+     * @return the communication path, like built by
+     * {@link Announce#identifyCommunicationPath()}.
+     */
+    String getCommunicationPath() {
+        final StringBuilder path = new StringBuilder(deviceUUID);
+        if (hasRouter) {
+            path.append(routerUUID);
+        }
+        return path.append(interfaceName).toString();
+    }
+
+    /**
+     * @return the announced expiration in seconds, 0 if not announced.
+     */
+    int getExpiration() {
+        return expiration;
+    }
+
+    private void checkRequired() throws MissingDataException {
+        if (!hasParams || !"1.0".equals(apiVersion)) {
+            throw new MissingDataException("No valid parameters in announce!");
+        }
+        if (deviceUUID == null || deviceUUID.length() == 0) {
+            throw new MissingDataException("No device UUID in announce!");
+        }
+        if (hasRouter && (routerUUID == null || routerUUID.length() == 0)) {
+            throw new MissingDataException("Router uuid either null or of zero length!");
+        }
+        if (interfaceName == null) {
+            throw new MissingDataException("No valid interface section in announce!");
+        }
+        if (interfaceName.length() == 0) {
+            throw new MissingDataException("No interface name in announce!");
+        }
+    }
+
+    /*
+     * Besides method and params, Gson fills the string fields of
+     * JsonRpc and Announce from the message, so their values have to
+     * be readable as well.
+     */
+    private boolean readRoot() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("method".equals(name)) {
+                method = readString();
+            } else if ("params".equals(name)) {
+                readParams();
+            } else if ("jsonrpc".equals(name) || "json".equals(name) || "path".equals(name)) {
+                readString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("JSON document was not fully consumed.");
+        }
+        return true;
+    }
+
+    /*
+     * Values of duplicate names replace the earlier ones, like in a
+     * JSON tree, so every section resets what it collects.
+     */
+    private void readParams() throws IOException {
+        apiVersion = null;
+        deviceUUID = null;
+        hasRouter = false;
+        routerUUID = null;
+        interfaceName = null;
+        expiration = 0;
+        hasParams = !skipNull();
+        if (!hasParams) {
+            return;
+        }
+        beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("apiVersion".equals(name)) {
+                apiVersion = readPrimitive();
+            } else if ("device".equals(name)) {
+                readDevice();
+            } else if ("netSettings".equals(name)) {
+                readNetSettings();
+            } else if ("router".equals(name)) {
+                readRouter();
+            } else if ("services".equals(name)) {
+                readServices();
+            } else if ("expiration".equals(name)) {
+                expiration = readInt(false);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readDevice() throws IOException {
+        deviceUUID = null;
+        if (skipNull()) {
+            return;
+        }
+        beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("uuid".equals(name)) {
+                deviceUUID = readString();
+            } else if ("isRouter".equals(name)) {
+                readBoolean();
+            } else if ("name".equals(name) || "type".equals(name) || "label".equals(name)
+                || "familyType".equals(name) || "firmwareVersion".equals(name) || "hardwareId".equals(name)) {
+                readString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readRouter() throws IOException {
+        hasRouter = false;
+        routerUUID = null;
+        if (skipNull()) {
+            return;
+        }
+        hasRouter = true;
+        beginObject();
+        while (reader.hasNext()) {
+            if ("uuid".equals(reader.nextName())) {
+                routerUUID = readString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readNetSettings() throws IOException {
+        interfaceName = null;
+        if (skipNull()) {
+            return;
+        }
+        beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("interface".equals(name)) {
+                readInterface();
+            } else if ("defaultGateway".equals(name)) {
+                readDefaultGateway();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readDefaultGateway() throws IOException {
+        if (skipNull()) {
+            return;
+        }
+        beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("ipv4Address".equals(name) || "ipv6Address".equals(name)) {
+                readString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /*
+     * Like the InterfaceDeserializer, an interface with a name which is
+     * no string, or with a type or description which is no string, is
+     * dropped, which makes the announce invalid.
+     */
+    private void readInterface() throws IOException {
+        interfaceName = null;
+        if (skipNull()) {
+            return;
+        }
+        beginObject();
+        String name = null;
+        boolean valid = true;
+        while (reader.hasNext()) {
+            final String key = reader.nextName();
+            if ("name".equals(key)) {
+                name = readStrictString();
+            } else if ("type".equals(key) || "description".equals(key)) {
+                valid &= readStrictString() != null;
+            } else if ("ipv4".equals(key)) {
+                readIPv4Addresses();
+            } else if ("ipv6".equals(key)) {
+                readIPv6Addresses();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (valid) {
+            interfaceName = name;
+        }
+    }
+
+    private void readIPv4Addresses() throws IOException {
+        beginArray();
+        while (reader.hasNext()) {
+            beginObject();
+            Object literal = null;
+            Object netmask = null;
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if ("address".equals(name)) {
+                    literal = readLiteral();
+                } else if ("netmask".equals(name)) {
+                    netmask = readLiteral();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (literal != null && netmask != null) {
+                checkLiteral(netmask);
+                checkLiteral(literal);
+            }
+        }
+        reader.endArray();
+    }
+
+    private void readIPv6Addresses() throws IOException {
+        beginArray();
+        while (reader.hasNext()) {
+            beginObject();
+            Object literal = null;
+            boolean hasPrefix = false;
+            boolean validPrefix = false;
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if ("address".equals(name)) {
+                    literal = readLiteral();
+                } else if ("prefix".equals(name)) {
+                    hasPrefix = true;
+                    validPrefix = skipInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (literal != null && hasPrefix) {
+                checkLiteral(literal);
+                if (!validPrefix) {
+                    throw new JsonSyntaxException("No valid IPv6 prefix");
+                }
+            }
+        }
+        reader.endArray();
+    }
+
+    /*
+     * Like the ServiceDeserializer, a services section which is no
+     * array is ignored and null entries are skipped.
+     */
+    private void readServices() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (skipNull()) {
+                continue;
+            }
+            beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if ("type".equals(name)) {
+                    readString();
+                } else if ("port".equals(name)) {
+                    readInt(true);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    /*
+     * Reads a value the way Gson reads a String field.
+     */
+    private String readString() throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(reader.nextBoolean());
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            default:
+                throw new JsonSyntaxException("Expected a string but was " + reader.peek());
+        }
+    }
+
+    /*
+     * Reads a value the way JsonElement.getAsString() does.
+     */
+    private String readPrimitive() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            throw new JsonSyntaxException("Expected a primitive but was NULL");
+        }
+        return readString();
+    }
+
+    /*
+     * Returns a string value or null for any other value.
+     */
+    private String readStrictString() throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /*
+     * Returns a string value, a non string marker object for any other
+     * present value, or null if the value is null.
+     */
+    private Object readLiteral() throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return token == JsonToken.NULL ? null : token;
+    }
+
+    private void checkLiteral(Object literal) {
+        if (!(literal instanceof String) || !AddressLiteral.parse((String) literal, address)) {
+            throw new JsonSyntaxException("No IP address literal: " + literal);
+        }
+    }
+
+    private void readBoolean() throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+            case STRING:
+            case BOOLEAN:
+                reader.skipValue();
+                break;
+            default:
+                throw new JsonSyntaxException("Expected a boolean but was " + reader.peek());
+        }
+    }
+
+    /*
+     * Reads a value the way JsonElement.getAsInt(), or Gson for an int
+     * field if nullable, does.
+     */
+    private int readInt(boolean nullable) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                if (!nullable) {
+                    throw new JsonSyntaxException("Expected an int but was NULL");
+                }
+                reader.nextNull();
+                return 0;
+            case NUMBER:
+                return new BigDecimal(reader.nextString()).intValue();
+            case STRING:
+                return Integer.parseInt(reader.nextString());
+            default:
+                throw new JsonSyntaxException("Expected an int but was " + reader.peek());
+        }
+    }
+
+    /*
+     * Skips the next value and returns whether it was readable by
+     * readInt(false).
+     */
+    private boolean skipInt() throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.STRING) {
+            try {
+                Integer.parseInt(reader.nextString());
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        reader.skipValue();
+        return token == JsonToken.NUMBER;
+    }
+
+    private boolean skipNull() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private void beginObject() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonSyntaxException("Expected an object but was " + reader.peek());
+        }
+        reader.beginObject();
+    }
+
+    private void beginArray() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            throw new JsonSyntaxException("Expected an array but was " + reader.peek());
+        }
+        reader.beginArray();
+    }
+}
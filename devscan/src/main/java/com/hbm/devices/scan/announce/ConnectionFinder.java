@@ -40,16 +40,37 @@ import java.net.NetworkInterface;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.google.common.collect.ImmutableList;
+import com.hbm.devices.scan.InterfaceChangeEvent;
 
 /**
  * Convenience class for checking if an IP connection is possible to an announced device.
+ * <p>
+ * The addresses of the local network interfaces are converted once
+ * into integer network/prefix pairs (IPv4) or pairs of longs (IPv6), so
+ * checking an announce does not need to allocate anything for the
+ * interface side. Results are cached per communication path of the
+ * {@link Announce} and are reused as long as the device announces the
+ * same interface.
+ * <p>
+ * A {@link ConnectionFinder} can observe an {@link
+ * com.hbm.devices.scan.InterfaceWatcher} to follow changes of the local
+ * network interfaces.
  * 
  * @since 1.0
  */
-public final class ConnectionFinder {
+public final class ConnectionFinder implements Observer {
+
+    private static final int CACHE_SIZE = 1000;
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
+    private volatile Networks networks;
+    private final LRUCache<String, CachedAddresses> cache;
 
-    private final Collection<NetworkInterfaceAddress> ipv4AddressList;
-    private final Collection<NetworkInterfaceAddress> ipv6AddressList;
     /**
      * Constructs a new {@link ConnectionFinder} object.
      *
@@ -59,27 +80,45 @@ public final class ConnectionFinder {
      *
      */
     public ConnectionFinder(Collection<NetworkInterface> interfaces) {
-        this.ipv4AddressList = new LinkedList<>();
-        this.ipv6AddressList = new LinkedList<>();
-        
-        for (final NetworkInterface iface : interfaces) {
-            final List<InterfaceAddress> niAddresses = iface.getInterfaceAddresses();
-            for (final InterfaceAddress niAddress : niAddresses) {
-                final InetAddress interfaceAddress = niAddress.getAddress();
-                final NetworkInterfaceAddress address =
-                    new NetworkInterfaceAddress(interfaceAddress, niAddress.getNetworkPrefixLength());
-                if (interfaceAddress instanceof Inet4Address) {
-                    ipv4AddressList.add(address);
-                } else {
-                    ipv6AddressList.add(address);
-                }
-            }
-        }
+        this(getInterfaceAddresses(interfaces, true), getInterfaceAddresses(interfaces, false));
     }
 
     ConnectionFinder(Collection<NetworkInterfaceAddress> ipv4List, Collection<NetworkInterfaceAddress> ipv6List) {
-        this.ipv4AddressList = ipv4List;
-        this.ipv6AddressList = ipv6List;
+        networks = new Networks(ipv4List, ipv6List);
+        cache = new LRUCache<>(CACHE_SIZE);
+    }
+
+    /**
+     * Replaces the {@link NetworkInterface}s used to check {@link
+     * Announce} objects against. Cached results are discarded.
+     *
+     * @param interfaces A {@link Collection} of {@link
+     * NetworkInterface}s used to check {@link Announce} objects against
+     * in {@link #getSameNetworkAddresses(Announce)}.
+     *
+     * @since 2.3
+     */
+    public void setInterfaces(Collection<NetworkInterface> interfaces) {
+        networks = new Networks(getInterfaceAddresses(interfaces, true), getInterfaceAddresses(interfaces, false));
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Refreshes the local interfaces if an {@link InterfaceChangeEvent}
+     * was received from an {@link com.hbm.devices.scan.InterfaceWatcher}.
+     *
+     * @param observable the observable object.
+     * @param arg an {@link InterfaceChangeEvent}, other objects are ignored.
+     *
+     * @since 2.3
+     */
+    @Override
+    public void update(Observable observable, Object arg) {
+        if (arg instanceof InterfaceChangeEvent) {
+            setInterfaces(((InterfaceChangeEvent) arg).getInterfaces());
+        }
     }
 
     /**
@@ -99,62 +138,48 @@ public final class ConnectionFinder {
      * @param announce The {@link Announce} containing the device we
      * want to communicate with.
      *
-     * @return An {@link InetAddress} if a connectable IP address was
-     * found, null otherwise.
+     * @return A {@link List} of the announced addresses lying in the
+     * same IP network as one of the local interfaces. The list is empty
+     * if the device is not connectable. The list belongs to the caller
+     * and may be modified.
      */
     public List<InetAddress> getSameNetworkAddresses(Announce announce) {
-        final Iterable<IPEntry> announceAddresses = announce.getParams().getNetSettings()
-            .getInterface().getIPList();
-        final List<InetAddress> list = new LinkedList<>();
-        
-        for (final Object ipEntry : announceAddresses) {
-            IPEntry entry = (IPEntry) ipEntry;
-            final InetAddress announceAddress = entry.getAddress();
-            final int announcePrefix = entry.getPrefix();
-            if ((announceAddress instanceof Inet4Address)) {
-                for (final NetworkInterfaceAddress iface : this.ipv4AddressList) {
-                    final InetAddress ifaceAddress = iface.getAddress();
-                    final int ifaceAddressPrefix = iface.getPrefix();
-                    if (sameIPv4Net(announceAddress, announcePrefix, ifaceAddress, ifaceAddressPrefix)) {
-                        list.add(announceAddress);
-                    } 
-                }
-            } else {
-                for (final NetworkInterfaceAddress iface : this.ipv6AddressList) {
-                    final InetAddress ifaceAddress = iface.getAddress();
-                    final int ifaceAddressPrefix = iface.getPrefix();
-                    if (sameIPv6Net(announceAddress, announcePrefix, ifaceAddress, ifaceAddressPrefix)) {
-                        list.add(announceAddress);
-                    } 
-                }
-            }
+        return new LinkedList<>(findSameNetworkAddresses(announce));
+    }
+
+    List<InetAddress> findSameNetworkAddresses(Announce announce) {
+        final Interface iface = announce.getParams().getNetSettings().getInterface();
+        final Networks current = networks;
+        final String path = announce.getPath();
+        if (path == null) {
+            return current.findSameNetworkAddresses(iface);
         }
 
-        return list;
+        synchronized (cache) {
+            final CachedAddresses cached = cache.get(path);
+            if ((cached != null) && (cached.iface == iface) && (cached.networks == current)) {
+                return cached.addresses;
+            }
+        }
+        final List<InetAddress> addresses = current.findSameNetworkAddresses(iface);
+        synchronized (cache) {
+            cache.put(path, new CachedAddresses(iface, current, addresses));
+        }
+        return addresses;
     }
-    
+
     static boolean sameIPv4Net(InetAddress announceAddress, int announcePrefix,
             InetAddress interfaceAddress, int interfacePrefix) {
-        final byte[] announceBytes = announceAddress.getAddress();
-        final byte[] interfaceBytes = interfaceAddress.getAddress();
-        int announceInteger = convertToInteger(announceBytes);
-        int interfaceInteger = convertToInteger(interfaceBytes);
-        announceInteger = announceInteger >>> (Integer.SIZE - announcePrefix);
-        interfaceInteger = interfaceInteger >>> (Integer.SIZE - interfacePrefix);
-        return announceInteger == interfaceInteger;
-    }
-    
-    private static int convertToInteger(byte... address) {
-        int value = 0;
-        for (final byte b: address) {
-            value = (value << Byte.SIZE) | (b & 0xff);
+        if ((announcePrefix != interfacePrefix) || !validPrefix(announcePrefix, IPV4_BITS)) {
+            return false;
         }
-        return value;
+        final int mask = ipv4Mask(announcePrefix);
+        return (toInt(announceAddress.getAddress()) & mask) == (toInt(interfaceAddress.getAddress()) & mask);
     }
-    
+
     static boolean sameIPv6Net(InetAddress announceAddress, int announcePrefixLength,
             InetAddress interfaceAddress, int interfacePrefixLength) {
-        if (announcePrefixLength != interfacePrefixLength) {
+        if ((announcePrefixLength != interfacePrefixLength) || !validPrefix(announcePrefixLength, IPV6_BITS)) {
             return false;
         }
 
@@ -164,14 +189,157 @@ public final class ConnectionFinder {
 
         final byte[] announceAddr = announceAddress.getAddress();
         final byte[] interfaceAddr = interfaceAddress.getAddress();
+        final long maskHigh = ipv6MaskHigh(announcePrefixLength);
+        final long maskLow = ipv6MaskLow(announcePrefixLength);
+        return ((toLong(announceAddr, 0) & maskHigh) == (toLong(interfaceAddr, 0) & maskHigh))
+            && ((toLong(announceAddr, Long.BYTES) & maskLow) == (toLong(interfaceAddr, Long.BYTES) & maskLow));
+    }
+
+    static boolean validPrefix(int prefix, int bits) {
+        return (prefix >= 0) && (prefix <= bits);
+    }
+
+    static int ipv4Mask(int prefix) {
+        if (prefix <= 0) {
+            return 0;
+        }
+        return -1 << (IPV4_BITS - prefix);
+    }
 
-        for (int i = 0; i < (announcePrefixLength / Byte.SIZE); i++) {
-            if (announceAddr[i] != interfaceAddr[i]) {
-                return false;
+    static long ipv6MaskHigh(int prefix) {
+        if (prefix <= 0) {
+            return 0L;
+        }
+        if (prefix >= Long.SIZE) {
+            return -1L;
+        }
+        return -1L << (Long.SIZE - prefix);
+    }
+
+    static long ipv6MaskLow(int prefix) {
+        return ipv6MaskHigh(prefix - Long.SIZE);
+    }
+
+    static int toInt(byte... address) {
+        int value = 0;
+        for (final byte b: address) {
+            value = (value << Byte.SIZE) | (b & 0xff);
+        }
+        return value;
+    }
+
+    static long toLong(byte[] address, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = (value << Byte.SIZE) | (address[i] & 0xff);
+        }
+        return value;
+    }
+
+    private static Collection<NetworkInterfaceAddress> getInterfaceAddresses(Collection<NetworkInterface> interfaces,
+            boolean ipv4) {
+        final Collection<NetworkInterfaceAddress> list = new LinkedList<>();
+        for (final NetworkInterface iface : interfaces) {
+            final List<InterfaceAddress> niAddresses = iface.getInterfaceAddresses();
+            for (final InterfaceAddress niAddress : niAddresses) {
+                final InetAddress interfaceAddress = niAddress.getAddress();
+                if ((interfaceAddress instanceof Inet4Address) == ipv4) {
+                    list.add(new NetworkInterfaceAddress(interfaceAddress, niAddress.getNetworkPrefixLength()));
+                }
             }
         }
+        return list;
+    }
+
+    private static final class Networks {
+        private final int[] ipv4Networks;
+        private final int[] ipv4Prefixes;
+        private final long[] ipv6NetworksHigh;
+        private final long[] ipv6NetworksLow;
+        private final int[] ipv6Prefixes;
 
-        return true;
+        Networks(Collection<NetworkInterfaceAddress> ipv4List, Collection<NetworkInterfaceAddress> ipv6List) {
+            ipv4Networks = new int[ipv4List.size()];
+            ipv4Prefixes = new int[ipv4List.size()];
+            int i = 0;
+            for (final NetworkInterfaceAddress address : ipv4List) {
+                final int prefix = address.getPrefix();
+                ipv4Prefixes[i] = prefix;
+                ipv4Networks[i] = toInt(address.getAddress().getAddress()) & ipv4Mask(prefix);
+                i++;
+            }
+
+            ipv6NetworksHigh = new long[ipv6List.size()];
+            ipv6NetworksLow = new long[ipv6List.size()];
+            ipv6Prefixes = new int[ipv6List.size()];
+            i = 0;
+            for (final NetworkInterfaceAddress address : ipv6List) {
+                final int prefix = address.getPrefix();
+                final byte[] bytes = address.getAddress().getAddress();
+                ipv6Prefixes[i] = prefix;
+                ipv6NetworksHigh[i] = toLong(bytes, 0) & ipv6MaskHigh(prefix);
+                ipv6NetworksLow[i] = toLong(bytes, Long.BYTES) & ipv6MaskLow(prefix);
+                i++;
+            }
+        }
+
+        List<InetAddress> findSameNetworkAddresses(Interface iface) {
+            final ImmutableList.Builder<InetAddress> builder = ImmutableList.builder();
+            final int count = iface.getAddressCount();
+            for (int i = 0; i < count; i++) {
+                final int announcePrefix = iface.getPrefix(i);
+                final boolean found;
+                if (iface.isIPv4(i)) {
+                    found = findIPv4Net(iface.getIPv4Address(i), announcePrefix) >= 0;
+                } else {
+                    found = findIPv6Net(iface.getAddressHigh(i), iface.getAddressLow(i), announcePrefix) >= 0;
+                }
+                if (found) {
+                    builder.add(iface.getAddress(i));
+                }
+            }
+            return builder.build();
+        }
+
+        int findIPv4Net(int announceAddress, int announcePrefix) {
+            if (!validPrefix(announcePrefix, IPV4_BITS)) {
+                return -1;
+            }
+            final int network = announceAddress & ipv4Mask(announcePrefix);
+            for (int i = 0; i < ipv4Networks.length; i++) {
+                if ((ipv4Prefixes[i] == announcePrefix) && (ipv4Networks[i] == network)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int findIPv6Net(long announceHigh, long announceLow, int announcePrefix) {
+            if (!validPrefix(announcePrefix, IPV6_BITS)) {
+                return -1;
+            }
+            final long high = announceHigh & ipv6MaskHigh(announcePrefix);
+            final long low = announceLow & ipv6MaskLow(announcePrefix);
+            for (int i = 0; i < ipv6Prefixes.length; i++) {
+                if ((ipv6Prefixes[i] == announcePrefix) && (ipv6NetworksHigh[i] == high)
+                    && (ipv6NetworksLow[i] == low)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class CachedAddresses {
+        private final Interface iface;
+        private final Networks networks;
+        private final List<InetAddress> addresses;
+
+        CachedAddresses(Interface iface, Networks networks, List<InetAddress> addresses) {
+            this.iface = iface;
+            this.networks = networks;
+            this.addresses = addresses;
+        }
     }
 }
 
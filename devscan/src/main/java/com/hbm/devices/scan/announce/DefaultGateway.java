@@ -40,12 +40,12 @@ import java.io.Serializable;
  */
 public final class DefaultGateway implements Serializable {
 
-    private String ipv6Address;
-    private String ipv4Address;
+    String ipv6Address;
+    String ipv4Address;
 
     private static final long serialVersionUID = -9171516639732825413L;
 
-    private DefaultGateway() {
+    DefaultGateway() {
     }
 
     /**
@@ -29,7 +29,9 @@
 package com.hbm.devices.scan.announce;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
@@ -60,6 +62,7 @@ public final class DeviceMonitor extends Observable implements Observer, Closeab
 
     private final Map<String, TimerContainer> deviceMap;
     private final ScheduledThreadPoolExecutor executor;
+    private DeviceRegistry registry;
     private boolean stopped;
 
     private static final Logger LOGGER = 
@@ -126,6 +129,9 @@ public final class DeviceMonitor extends Observable implements Observer, Closeab
                             TimeUnit.MILLISECONDS);
                     container = new TimerContainer(task, newFuture);
                     deviceMap.put(path, container);
+                    if (registry != null) {
+                        registry.put(announce);
+                    }
                     setChanged();
                     notifyObservers(new NewDeviceEvent(announce));
                 } else {
@@ -136,6 +142,9 @@ public final class DeviceMonitor extends Observable implements Observer, Closeab
                         executor.schedule(container.task, getExpiration(announce), TimeUnit.MILLISECONDS);
                     container.future = future;
                     if (!oldAnnounce.equals(announce)) {
+                        if (registry != null) {
+                            registry.put(announce);
+                        }
                         setChanged();
                         notifyObservers(new UpdateDeviceEvent(oldAnnounce, announce));
                     }
@@ -151,10 +160,105 @@ public final class DeviceMonitor extends Observable implements Observer, Closeab
         }
     }
 
+    /**
+     * Inserts a previously known device without notifying a {@link
+     * NewDeviceEvent}.
+     *
+     * The device is kept for the remainder of its expiration period,
+     * counted from {@code lastSeen}. A subsequently received {@link
+     * Announce} for the same device only refreshes the timer or notifies
+     * an {@link UpdateDeviceEvent} if the announce changed.
+     *
+     * @param announce the announce restored from a snapshot.
+     * @param lastSeen the time in milliseconds since the epoch the
+     * announce was last received.
+     * @return true if the device was inserted, false if it is already
+     * known, already expired or the monitor is closed.
+     */
+    boolean restore(Announce announce, long lastSeen) {
+        if (stopped) {
+            return false;
+        }
+        final long remaining = getExpiration(announce) - (System.currentTimeMillis() - lastSeen);
+        if (remaining <= 0) {
+            return false;
+        }
+        synchronized (deviceMap) {
+            final String path = announce.getPath();
+            if (deviceMap.containsKey(path)) {
+                return false;
+            }
+            try {
+                final AnnounceTimerTask task = new AnnounceTimerTask(announce, lastSeen);
+                final ScheduledFuture<Void> future = executor.schedule(task, remaining, TimeUnit.MILLISECONDS);
+                deviceMap.put(path, new TimerContainer(task, future));
+                if (registry != null) {
+                    registry.put(announce);
+                }
+                return true;
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.WARNING, "Task scheduled in shutdown executor!", e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link DeviceRegistry} holding all devices currently
+     * known to this monitor.
+     * <p>
+     * The registry is created on the first call and populated with the
+     * devices known at that time. From then on it is updated before the
+     * corresponding events are notified. As indexing needs the complete
+     * announce, lazily decoded announces are decoded when their device
+     * is added to the registry.
+     *
+     * @return the registry of this monitor.
+     *
+     * @since 2.3
+     */
+    public DeviceRegistry getRegistry() {
+        synchronized (deviceMap) {
+            if (registry == null) {
+                registry = new DeviceRegistry();
+                final List<Announce> known = new ArrayList<>(deviceMap.size());
+                for (final TimerContainer container : deviceMap.values()) {
+                    known.add(container.task.getAnnounce());
+                }
+                registry.putAll(known);
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * Takes a consistent copy of all currently known devices.
+     *
+     * @return the known announces together with the time they were last
+     * received.
+     */
+    List<SnapshotEntry> snapshotEntries() {
+        synchronized (deviceMap) {
+            final List<SnapshotEntry> entries = new ArrayList<>(deviceMap.size());
+            for (final TimerContainer container : deviceMap.values()) {
+                entries.add(new SnapshotEntry(container.task.getAnnounce(), container.task.lastSeen));
+            }
+            return entries;
+        }
+    }
+
+    static final class SnapshotEntry {
+        final Announce announce;
+        final long lastSeen;
+
+        SnapshotEntry(Announce announce, long lastSeen) {
+            this.announce = announce;
+            this.lastSeen = lastSeen;
+        }
+    }
+
     private static long getExpiration(Announce announce) {
-        int expiration;
-        expiration = announce.getParams().getExpiration();
-        return TimeUnit.SECONDS.toMillis(expiration);
+        return TimeUnit.SECONDS.toMillis(announce.getExpiration());
     }
 
     private class TimerContainer {
@@ -169,15 +273,24 @@ public final class DeviceMonitor extends Observable implements Observer, Closeab
 
     private class AnnounceTimerTask implements Callable<Void> {
         private Announce announce;
+        private long lastSeen;
 
         AnnounceTimerTask(Announce announce) {
+            this(announce, System.currentTimeMillis());
+        }
+
+        AnnounceTimerTask(Announce announce, long lastSeen) {
             this.announce = announce;
+            this.lastSeen = lastSeen;
         }
 
         @Override
         public Void call() throws Exception {
             synchronized (deviceMap) {
                 deviceMap.remove(announce.getPath());
+                if (registry != null) {
+                    registry.remove(announce);
+                }
                 setChanged();
                 notifyObservers(new LostDeviceEvent(announce));
                 return null;
@@ -190,6 +303,7 @@ public final class DeviceMonitor extends Observable implements Observer, Closeab
 
         void setAnnounce(Announce announce) {
             this.announce = announce;
+            this.lastSeen = System.currentTimeMillis();
         }
     }
 }
@@ -0,0 +1,714 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.hbm.devices.scan.announce.filter.Matcher;
+
+/**
+ * A queryable view of the devices currently known to a {@link
+ * DeviceMonitor}.
+ * <p>
+ * The registry is kept up to date by the {@link DeviceMonitor} it was
+ * obtained from (see {@link DeviceMonitor#getRegistry()}), so it always
+ * holds exactly the devices for which a {@link NewDeviceEvent} but no
+ * {@link LostDeviceEvent} was notified, plus devices restored by a
+ * {@link DeviceSnapshot}.
+ * <p>
+ * Besides the communication path, devices are indexed by family type,
+ * device type, firmware version, service type, router UUID and by the IP
+ * networks of their announced addresses. A {@link Query} combining
+ * several of these criteria only visits the devices in the intersection
+ * of the respective indexes.
+ * <p>
+ * The device set and its indexes are published as immutable {@link
+ * Snapshot}s after each change, so readers in any number of threads get
+ * consistent views without locking and never block the announce
+ * pipeline.
+ *
+ * @since 2.3
+ */
+public final class DeviceRegistry {
+
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+    private static final long IPV4_MAPPED = 0xffffL << Integer.SIZE;
+
+    /*
+     * Orders firmware versions like "1.10.2" numerically part by part,
+     * so that "1.9" sorts before "1.10". Non-numeric parts are compared
+     * lexicographically.
+     */
+    static final Comparator<String> FIRMWARE_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.length() && j < b.length()) {
+                final int endA = runEnd(a, i);
+                final int endB = runEnd(b, j);
+                final int result;
+                if (isDigit(a.charAt(i)) && isDigit(b.charAt(j))) {
+                    result = compareNumbers(a.substring(i, endA), b.substring(j, endB));
+                } else {
+                    result = a.substring(i, endA).compareTo(b.substring(j, endB));
+                }
+                if (result != 0) {
+                    return result;
+                }
+                i = endA;
+                j = endB;
+            }
+            return Integer.compare(a.length() - i, b.length() - j);
+        }
+    };
+
+    private volatile Snapshot current;
+
+    DeviceRegistry() {
+        current = new Snapshot();
+    }
+
+    /**
+     * Returns the current version of the device set.
+     * <p>
+     * A snapshot is immutable. Readers get it without any locking and
+     * may iterate or query it for as long as they like, while the
+     * registry publishes newer versions in the background. Consecutive
+     * versions share all unchanged parts of their indexes, so
+     * publishing a change never copies the whole device set.
+     *
+     * @return the current snapshot of all known devices.
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * @return the number of currently known devices.
+     */
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * @param path the communication path of a device as returned by
+     * {@link Announce#getPath()}.
+     * @return the last {@link Announce} of the device or {@code null} if
+     * the device is not known.
+     */
+    public Announce get(String path) {
+        return current.get(path);
+    }
+
+    /**
+     * Creates a new query on the current snapshot. A query without any
+     * criteria matches all known devices.
+     *
+     * @return an empty {@link Query} on the current snapshot.
+     */
+    public Query query() {
+        return current.query();
+    }
+
+    /*
+     * Writers are serialized by the DeviceMonitor, the synchronization
+     * only guards against a publication getting lost. Readers never
+     * synchronize.
+     */
+    synchronized void put(Announce announce) {
+        current = current.plus(announce);
+    }
+
+    synchronized void putAll(Iterable<Announce> announces) {
+        Snapshot next = current;
+        for (final Announce announce : announces) {
+            next = next.plus(announce);
+        }
+        current = next.publish(current);
+    }
+
+    synchronized void remove(Announce announce) {
+        current = current.minus(announce.getPath());
+    }
+
+    /**
+     * An immutable version of the devices known to a {@link
+     * DeviceRegistry}.
+     *
+     * @since 2.3
+     */
+    public static final class Snapshot implements Iterable<Announce> {
+
+        private final long version;
+        private final PersistentMap<String, Announce> devices;
+        private final Index<String> familyTypes;
+        private final Index<String> deviceTypes;
+        private final Index<String> firmwareVersions;
+        private final Index<String> serviceTypes;
+        private final Index<String> routers;
+        private final Index<Subnet> subnets;
+
+        Snapshot() {
+            this(0, PersistentMap.<String, Announce>empty(), new Index<String>(), new Index<String>(),
+                new Index<String>(), new Index<String>(), new Index<String>(), new Index<Subnet>());
+        }
+
+        private Snapshot(long version, PersistentMap<String, Announce> devices, Index<String> familyTypes,
+                Index<String> deviceTypes, Index<String> firmwareVersions, Index<String> serviceTypes,
+                Index<String> routers, Index<Subnet> subnets) {
+            this.version = version;
+            this.devices = devices;
+            this.familyTypes = familyTypes;
+            this.deviceTypes = deviceTypes;
+            this.firmwareVersions = firmwareVersions;
+            this.serviceTypes = serviceTypes;
+            this.routers = routers;
+            this.subnets = subnets;
+        }
+
+        /**
+         * @return the version of this snapshot. Each change published by
+         * the registry increments the version, so readers can cheaply
+         * check whether anything changed since their last snapshot.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the number of devices in this snapshot.
+         */
+        public int size() {
+            return devices.size();
+        }
+
+        /**
+         * @param path the communication path of a device as returned by
+         * {@link Announce#getPath()}.
+         * @return the {@link Announce} of the device or {@code null} if
+         * the device is not contained in this snapshot.
+         */
+        public Announce get(String path) {
+            return path == null ? null : devices.get(path);
+        }
+
+        /**
+         * @return an iterator over the announces of all devices in this
+         * snapshot in no particular order.
+         */
+        @Override
+        public Iterator<Announce> iterator() {
+            return values(devices);
+        }
+
+        /**
+         * Creates a new query on this snapshot. A query without any
+         * criteria matches all devices in the snapshot.
+         *
+         * @return an empty {@link Query} on this snapshot.
+         */
+        public Query query() {
+            return new Query(this);
+        }
+
+        Snapshot plus(Announce announce) {
+            final String path = announce.getPath();
+            final Announce old = devices.get(path);
+            final Snapshot removed = old == null ? this : index(old, path, null);
+            return removed.index(announce, path, announce).with(devices.plus(path, announce), version + 1);
+        }
+
+        Snapshot minus(String path) {
+            final Announce old = devices.get(path);
+            if (old == null) {
+                return this;
+            }
+            return index(old, path, null).with(devices.minus(path), version + 1);
+        }
+
+        /*
+         * Collapses the versions created by a batch of changes into the
+         * version following previous.
+         */
+        Snapshot publish(Snapshot previous) {
+            if (this == previous) {
+                return this;
+            }
+            return with(devices, previous.version + 1);
+        }
+
+        private Snapshot with(PersistentMap<String, Announce> newDevices, long newVersion) {
+            return new Snapshot(newVersion, newDevices, familyTypes, deviceTypes, firmwareVersions,
+                serviceTypes, routers, subnets);
+        }
+
+        /*
+         * Adds path to, or removes it from if announce is null, all
+         * index buckets of the given announce.
+         */
+        private Snapshot index(Announce indexed, String path, Announce announce) {
+            final AnnounceParams params = indexed.getParams();
+            final Device device = params.getDevice();
+            Index<String> newServiceTypes = serviceTypes;
+            if (params.serviceTypes != null) {
+                for (final String serviceType : params.serviceTypes) {
+                    newServiceTypes = newServiceTypes.update(serviceType, path, announce);
+                }
+            }
+            final Index<String> newRouters = params.getRouter() == null
+                ? routers : routers.update(params.getRouter().getUuid(), path, announce);
+            final Interface iface = params.getNetSettings().getInterface();
+            Index<Subnet> newSubnets = subnets;
+            for (int i = 0; i < iface.getAddressCount(); i++) {
+                newSubnets = newSubnets.update(Subnet.of(iface.getAddressHigh(i), iface.getAddressLow(i),
+                    iface.getPrefix(i)), path, announce);
+            }
+            return new Snapshot(version, devices,
+                familyTypes.update(device.getFamilyType(), path, announce),
+                deviceTypes.update(device.getType(), path, announce),
+                firmwareVersions.update(device.getFirmwareVersion(), path, announce),
+                newServiceTypes, newRouters, newSubnets);
+        }
+    }
+
+    private static int runEnd(String version, int start) {
+        final boolean digits = isDigit(version.charAt(start));
+        int end = start + 1;
+        while (end < version.length() && isDigit(version.charAt(end)) == digits) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int compareNumbers(String a, String b) {
+        final String strippedA = stripLeadingZeros(a);
+        final String strippedB = stripLeadingZeros(b);
+        if (strippedA.length() != strippedB.length()) {
+            return Integer.compare(strippedA.length(), strippedB.length());
+        }
+        return strippedA.compareTo(strippedB);
+    }
+
+    private static String stripLeadingZeros(String number) {
+        int start = 0;
+        while (start < number.length() - 1 && number.charAt(start) == '0') {
+            start++;
+        }
+        return number.substring(start);
+    }
+
+    /**
+     * A query for devices in a {@link Snapshot} of a {@link
+     * DeviceRegistry}.
+     * <p>
+     * All criteria given are combined with a logical and. Setting the
+     * same criterion twice replaces the former value, except for {@link
+     * #subnet} and {@link #reachableOn}, which accumulate networks the
+     * device must be in one of.
+     *
+     * @since 2.3
+     */
+    public static final class Query {
+
+        private final Snapshot snapshot;
+        private String familyType;
+        private String deviceType;
+        private String firmwareVersion;
+        private String firmwareBelow;
+        private String serviceType;
+        private String routerUuid;
+        private Set<Subnet> networks;
+        private Matcher matcher;
+
+        Query(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * @param type the family type, for instance "QuantumX".
+         * @return this query.
+         */
+        public Query familyType(String type) {
+            familyType = checkArgument(type, "family type");
+            return this;
+        }
+
+        /**
+         * @param type the device type, for instance "MX840".
+         * @return this query.
+         */
+        public Query deviceType(String type) {
+            deviceType = checkArgument(type, "device type");
+            return this;
+        }
+
+        /**
+         * @param version the exact firmware version.
+         * @return this query.
+         */
+        public Query firmwareVersion(String version) {
+            firmwareVersion = checkArgument(version, "firmware version");
+            return this;
+        }
+
+        /**
+         * Restricts the query to devices announcing a firmware version
+         * lower than {@code version}. Versions are compared part by part,
+         * numeric parts are compared by their value.
+         *
+         * @param version the exclusive upper bound of the firmware version.
+         * @return this query.
+         */
+        public Query firmwareBelow(String version) {
+            firmwareBelow = checkArgument(version, "firmware version");
+            return this;
+        }
+
+        /**
+         * @param type a service type the device must announce, for
+         * instance "http".
+         * @return this query.
+         */
+        public Query serviceType(String type) {
+            serviceType = checkArgument(type, "service type");
+            return this;
+        }
+
+        /**
+         * @param uuid the UUID of the router the device is announced by.
+         * @return this query.
+         */
+        public Query routerUuid(String uuid) {
+            routerUuid = checkArgument(uuid, "router UUID");
+            return this;
+        }
+
+        /**
+         * Restricts the query to devices having an announced address
+         * in the given network. Like in {@link ConnectionFinder}, the
+         * announced prefix must equal {@code prefix}.
+         *
+         * @param address an address in the network.
+         * @param prefix the length of the network prefix.
+         * @return this query.
+         */
+        public Query subnet(InetAddress address, int prefix) {
+            if (address == null) {
+                throw new IllegalArgumentException("No address given");
+            }
+            final Subnet net = Subnet.of(address.getAddress(), prefix);
+            if (net == null) {
+                throw new IllegalArgumentException("Illegal prefix " + prefix + " for " + address);
+            }
+            addNetwork(net);
+            return this;
+        }
+
+        /**
+         * Restricts the query to devices having an announced address in
+         * one of the networks of {@code iface}. A device is considered
+         * reachable if {@link ConnectionFinder} would find a connectable
+         * address for it on this interface.
+         *
+         * @param iface the local network interface.
+         * @return this query.
+         */
+        public Query reachableOn(NetworkInterface iface) {
+            if (iface == null) {
+                throw new IllegalArgumentException("No network interface given");
+            }
+            if (networks == null) {
+                networks = new HashSet<>();
+            }
+            for (final InterfaceAddress address : iface.getInterfaceAddresses()) {
+                addNetwork(Subnet.of(address.getAddress().getAddress(), address.getNetworkPrefixLength()));
+            }
+            return this;
+        }
+
+        /**
+         * Applies an additional {@link Matcher} to all devices matching the
+         * indexed criteria.
+         *
+         * @param announceMatcher the matcher the announces must fulfill.
+         * @return this query.
+         */
+        public Query matching(Matcher announceMatcher) {
+            if (announceMatcher == null) {
+                throw new IllegalArgumentException("No matcher given");
+            }
+            matcher = announceMatcher;
+            return this;
+        }
+
+        /**
+         * Executes the query.
+         *
+         * @return an immutable list of the {@link Announce}s of all
+         * matching devices in no particular order.
+         */
+        public List<Announce> list() {
+            final List<PersistentMap<String, Announce>> constraints = new ArrayList<>();
+            addConstraint(constraints, familyType, snapshot.familyTypes);
+            addConstraint(constraints, deviceType, snapshot.deviceTypes);
+            addConstraint(constraints, firmwareVersion, snapshot.firmwareVersions);
+            addConstraint(constraints, serviceType, snapshot.serviceTypes);
+            addConstraint(constraints, routerUuid, snapshot.routers);
+            if (firmwareBelow != null) {
+                final List<PersistentMap<String, Announce>> buckets = new ArrayList<>();
+                for (final Map.Entry<String, PersistentMap<String, Announce>> entry : snapshot.firmwareVersions) {
+                    if (FIRMWARE_ORDER.compare(entry.getKey(), firmwareBelow) < 0) {
+                        buckets.add(entry.getValue());
+                    }
+                }
+                constraints.add(union(buckets));
+            }
+            if (networks != null) {
+                final List<PersistentMap<String, Announce>> buckets = new ArrayList<>(networks.size());
+                for (final Subnet net : networks) {
+                    buckets.add(snapshot.subnets.get(net));
+                }
+                constraints.add(union(buckets));
+            }
+            return collect(constraints);
+        }
+
+        private void addNetwork(Subnet net) {
+            if (networks == null) {
+                networks = new HashSet<>();
+            }
+            if (net != null) {
+                networks.add(net);
+            }
+        }
+
+        private List<Announce> collect(List<PersistentMap<String, Announce>> constraints) {
+            PersistentMap<String, Announce> smallest = snapshot.devices;
+            for (final PersistentMap<String, Announce> constraint : constraints) {
+                if (constraint.size() < smallest.size()) {
+                    smallest = constraint;
+                }
+            }
+            final ImmutableList.Builder<Announce> result = ImmutableList.builder();
+            for (final Map.Entry<String, Announce> entry : smallest) {
+                if (containedInAll(entry.getKey(), constraints)) {
+                    addMatching(result, entry.getValue());
+                }
+            }
+            return result.build();
+        }
+
+        private void addMatching(ImmutableList.Builder<Announce> result, Announce announce) {
+            if (matcher == null || matcher.match(announce)) {
+                result.add(announce);
+            }
+        }
+    }
+
+    private static void addConstraint(List<PersistentMap<String, Announce>> constraints, String key,
+            Index<String> index) {
+        if (key != null) {
+            constraints.add(index.get(key));
+        }
+    }
+
+    private static boolean containedInAll(String path, List<PersistentMap<String, Announce>> constraints) {
+        for (final PersistentMap<String, Announce> constraint : constraints) {
+            if (!constraint.containsKey(path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static PersistentMap<String, Announce> union(List<PersistentMap<String, Announce>> buckets) {
+        PersistentMap<String, Announce> union = PersistentMap.empty();
+        for (final PersistentMap<String, Announce> bucket : buckets) {
+            if (bucket.size() > union.size()) {
+                final PersistentMap<String, Announce> smaller = union;
+                union = bucket;
+                for (final Map.Entry<String, Announce> entry : smaller) {
+                    union = union.plus(entry.getKey(), entry.getValue());
+                }
+            } else {
+                for (final Map.Entry<String, Announce> entry : bucket) {
+                    union = union.plus(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return union;
+    }
+
+    private static Iterator<Announce> values(PersistentMap<String, Announce> map) {
+        final Iterator<Map.Entry<String, Announce>> entries = map.iterator();
+        return new Iterator<Announce>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Announce next() {
+                return entries.next().getValue();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Snapshots are immutable");
+            }
+        };
+    }
+
+    private static String checkArgument(String value, String what) {
+        if (value == null) {
+            throw new IllegalArgumentException("No " + what + " given");
+        }
+        return value;
+    }
+
+    /*
+     * Maps the values of an indexed attribute to the devices having
+     * them. Updating an index returns a new index sharing all untouched
+     * buckets with the original one.
+     */
+    private static final class Index<K> implements Iterable<Map.Entry<K, PersistentMap<String, Announce>>> {
+        private final PersistentMap<K, PersistentMap<String, Announce>> buckets;
+
+        Index() {
+            this(PersistentMap.<K, PersistentMap<String, Announce>>empty());
+        }
+
+        private Index(PersistentMap<K, PersistentMap<String, Announce>> buckets) {
+            this.buckets = buckets;
+        }
+
+        /*
+         * Adds path with announce to the bucket of key, or removes path
+         * from it if announce is null.
+         */
+        Index<K> update(K key, String path, Announce announce) {
+            if (key == null) {
+                return this;
+            }
+            final PersistentMap<String, Announce> bucket = get(key);
+            if (announce != null) {
+                return new Index<>(buckets.plus(key, bucket.plus(path, announce)));
+            }
+            final PersistentMap<String, Announce> remaining = bucket.minus(path);
+            if (remaining == bucket) {
+                return this;
+            }
+            return new Index<>(remaining.isEmpty() ? buckets.minus(key) : buckets.plus(key, remaining));
+        }
+
+        PersistentMap<String, Announce> get(K key) {
+            final PersistentMap<String, Announce> bucket = buckets.get(key);
+            return bucket == null ? PersistentMap.<String, Announce>empty() : bucket;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, PersistentMap<String, Announce>>> iterator() {
+            return buckets.iterator();
+        }
+    }
+
+    /*
+     * The network of an announced address, i.e. the address with all
+     * host bits cleared, together with its prefix. IPv4 networks are
+     * kept IPv4-mapped like the addresses in Interface.
+     */
+    private static final class Subnet {
+        private final long high;
+        private final long low;
+        private final int prefix;
+        private final boolean ipv4;
+
+        private Subnet(long high, long low, int prefix, boolean ipv4) {
+            this.high = high;
+            this.low = low;
+            this.prefix = prefix;
+            this.ipv4 = ipv4;
+        }
+
+        static Subnet of(long high, long low, int prefix) {
+            if (AddressLiteral.isIPv4(high, low)) {
+                if (!ConnectionFinder.validPrefix(prefix, IPV4_BITS)) {
+                    return null;
+                }
+                final long mask = ConnectionFinder.ipv4Mask(prefix) & 0xffffffffL;
+                return new Subnet(0, IPV4_MAPPED | (low & mask), prefix, true);
+            }
+            if (!ConnectionFinder.validPrefix(prefix, IPV6_BITS)) {
+                return null;
+            }
+            return new Subnet(high & ConnectionFinder.ipv6MaskHigh(prefix),
+                low & ConnectionFinder.ipv6MaskLow(prefix), prefix, false);
+        }
+
+        static Subnet of(byte[] address, int prefix) {
+            if (address.length == Integer.BYTES) {
+                return of(0, IPV4_MAPPED | (ConnectionFinder.toInt(address) & 0xffffffffL), prefix);
+            }
+            return of(ConnectionFinder.toLong(address, 0), ConnectionFinder.toLong(address, Long.BYTES), prefix);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Subnet)) {
+                return false;
+            }
+            final Subnet other = (Subnet) o;
+            return high == other.high && low == other.low && prefix == other.prefix && ipv4 == other.ipv4;
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(high) * 31 + Long.hashCode(low)) * 31 + prefix;
+        }
+    }
+}
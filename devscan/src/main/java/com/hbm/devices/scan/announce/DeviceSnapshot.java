@@ -0,0 +1,246 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.io.Closeable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.hbm.devices.scan.ScanConstants;
+
+/**
+ * Persists the devices known to a {@link DeviceMonitor} to a file and
+ * restores them on the next start.
+ * <p>
+ * Restored devices are inserted into the {@link DeviceMonitor} without
+ * notifying {@link NewDeviceEvent}s, so a device announcing itself
+ * unchanged after a restart does not produce any event. Devices whose
+ * expiration period elapsed while the application was down are not
+ * restored.
+ * <p>
+ * Snapshots are written to a temporary file which is then atomically
+ * renamed, so a crash during writing never leaves a truncated snapshot.
+ * Devices are stored as {@link AnnounceCodec} records, so restoring
+ * them does not parse any JSON. A snapshot written with a different
+ * {@link AnnounceCodec#VERSION} is ignored.
+ *
+ * @since 2.3
+ */
+public final class DeviceSnapshot implements Closeable {
+
+    static final int MAGIC = 0x48424D53;
+    static final short VERSION = 2;
+
+    private static final int HEADER_SIZE = 12;
+    private static final Logger LOGGER = Logger.getLogger(ScanConstants.LOGGER_NAME);
+
+    private final DeviceMonitor monitor;
+    private final File file;
+    private final ScheduledThreadPoolExecutor executor;
+    private boolean closed;
+
+    /**
+     * Creates a snapshot which is only written on {@link #write()} and
+     * {@link #close()}.
+     *
+     * @param monitor the {@link DeviceMonitor} to persist.
+     * @param file the snapshot file.
+     */
+    public DeviceSnapshot(DeviceMonitor monitor, File file) {
+        this(monitor, file, 0);
+    }
+
+    /**
+     * Creates a snapshot which is additionally written periodically.
+     *
+     * @param monitor the {@link DeviceMonitor} to persist.
+     * @param file the snapshot file.
+     * @param period the write period in milliseconds, 0 disables
+     * periodic writing.
+     */
+    public DeviceSnapshot(DeviceMonitor monitor, File file, long period) {
+        if (monitor == null) {
+            throw new IllegalArgumentException("No device monitor given");
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("No snapshot file given");
+        }
+        if (period < 0) {
+            throw new IllegalArgumentException("Negative snapshot period");
+        }
+        this.monitor = monitor;
+        this.file = file;
+        if (period > 0) {
+            executor = new ScheduledThreadPoolExecutor(1);
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        write();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Can't write device snapshot!", e);
+                    }
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Reads the snapshot file and inserts all devices which are not yet
+     * expired into the {@link DeviceMonitor}.
+     *
+     * @return the restored announces. The list is empty if the snapshot
+     * file does not exist.
+     * @throws IOException if the snapshot file can't be read or is no
+     * valid snapshot.
+     */
+    public List<Announce> restore() throws IOException {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        final List<Announce> restored = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("No device snapshot: " + file);
+            }
+            final short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported device snapshot version " + version);
+            }
+            final short codecVersion = buffer.getShort();
+            if (codecVersion != AnnounceCodec.VERSION) {
+                LOGGER.log(Level.INFO, "Ignoring device snapshot with announce encoding version {0}",
+                    codecVersion);
+                return restored;
+            }
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                final long lastSeen = buffer.getLong();
+                final int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IOException("Corrupted device snapshot: " + file);
+                }
+                final byte[] record = new byte[length];
+                buffer.get(record);
+                final Announce announce;
+                try {
+                    announce = AnnounceCodec.decode(record);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Skipping corrupted device in snapshot!", e);
+                    continue;
+                }
+                if (monitor.restore(announce, lastSeen)) {
+                    restored.add(announce);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated device snapshot: " + file, e);
+        }
+        return restored;
+    }
+
+    /**
+     * Writes all devices currently known to the {@link DeviceMonitor}
+     * to the snapshot file.
+     *
+     * @throws IOException if the snapshot file can't be written.
+     */
+    public synchronized void write() throws IOException {
+        final List<DeviceMonitor.SnapshotEntry> entries = monitor.snapshotEntries();
+        final File dir = file.getAbsoluteFile().getParentFile();
+        final File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeShort(AnnounceCodec.VERSION);
+                out.writeInt(entries.size());
+                for (final DeviceMonitor.SnapshotEntry entry : entries) {
+                    final byte[] record = AnnounceCodec.encode(entry.announce);
+                    out.writeLong(entry.lastSeen);
+                    out.writeInt(record.length);
+                    out.write(record);
+                }
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Stops periodic writing and writes a final snapshot.
+     *
+     * @throws IOException if the final snapshot can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        write();
+    }
+}
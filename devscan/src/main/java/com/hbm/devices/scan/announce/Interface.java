@@ -28,9 +28,14 @@
 
 package com.hbm.devices.scan.announce;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -43,10 +48,22 @@ public final class Interface implements Serializable {
 
     private static final long serialVersionUID = 8110401485735664487L;
 
+    private static final int IPV4_MAPPED = 0xffff;
+    private static final int[] NO_PREFIXES = new int[0];
+    private static final long[] NO_ADDRESSES = new long[0];
+
     String name;
     String type;
     String description;
-    List<IPEntry> ipList;
+
+    /*
+     * The announced addresses are stored flattened to keep the footprint
+     * of a retained announce small and to allow allocation free network
+     * matching. Each address occupies two longs holding its 128 bits in
+     * network byte order, IPv4 addresses are stored IPv4-mapped.
+     */
+    private long[] addresses = NO_ADDRESSES;
+    private int[] prefixes = NO_PREFIXES;
 
     Interface() {
     }
@@ -95,10 +112,118 @@ public final class Interface implements Serializable {
      *      an empty {@link java.util.List} is returned.
      */
     public List<IPEntry> getIPList() {
-        if (ipList == null) {
-            return Collections.unmodifiableList(new LinkedList<IPEntry>());
+        final List<IPEntry> list = new ArrayList<>(prefixes.length);
+        for (int i = 0; i < prefixes.length; i++) {
+            final IPEntry entry = new IPEntry();
+            entry.address = getAddress(i);
+            entry.prefix = prefixes[i];
+            list.add(entry);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    void setIPList(List<IPEntry> ipList) {
+        final int size = ipList.size();
+        addresses = new long[2 * size];
+        prefixes = new int[size];
+        for (int i = 0; i < size; i++) {
+            final IPEntry entry = ipList.get(i);
+            final byte[] bytes = entry.getAddress().getAddress();
+            if (bytes.length == Integer.BYTES) {
+                addresses[2 * i + 1] = ((long) IPV4_MAPPED << Integer.SIZE) | (ConnectionFinder.toInt(bytes) & 0xffffffffL);
+            } else {
+                addresses[2 * i] = ConnectionFinder.toLong(bytes, 0);
+                addresses[2 * i + 1] = ConnectionFinder.toLong(bytes, Long.BYTES);
+            }
+            prefixes[i] = entry.getPrefix();
+        }
+    }
+
+    void setAddresses(long[] packedAddresses, int[] packedPrefixes) {
+        addresses = packedAddresses;
+        prefixes = packedPrefixes;
+    }
+
+    /*
+     * Interfaces serialized before the addresses were packed carry an
+     * ipList field instead of the address and prefix arrays.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        type = (String) fields.get("type", null);
+        description = (String) fields.get("description", null);
+        if (fields.defaulted("addresses")) {
+            final Object ipList = fields.get("ipList", null);
+            if (ipList != null && !(ipList instanceof List)) {
+                throw new InvalidObjectException("Invalid IP list in serialized interface");
+            }
+            final List<IPEntry> entries = new ArrayList<>();
+            for (final Object entry : ipList == null ? Collections.emptyList() : (List<?>) ipList) {
+                if (!(entry instanceof IPEntry) || ((IPEntry) entry).getAddress() == null) {
+                    throw new InvalidObjectException("Invalid IP entry in serialized interface");
+                }
+                entries.add((IPEntry) entry);
+            }
+            setIPList(entries);
+        } else {
+            final long[] packedAddresses = (long[]) fields.get("addresses", null);
+            final int[] packedPrefixes = (int[]) fields.get("prefixes", null);
+            if (packedAddresses == null || packedPrefixes == null
+                    || packedAddresses.length != 2 * packedPrefixes.length) {
+                throw new InvalidObjectException("Invalid addresses in serialized interface");
+            }
+            setAddresses(packedAddresses, packedPrefixes);
+        }
+    }
+
+    int getAddressCount() {
+        return prefixes.length;
+    }
+
+    boolean isIPv4(int index) {
+        return (addresses[2 * index] == 0) && ((int) (addresses[2 * index + 1] >>> Integer.SIZE) == IPV4_MAPPED);
+    }
+
+    int getIPv4Address(int index) {
+        return (int) addresses[2 * index + 1];
+    }
+
+    long getAddressHigh(int index) {
+        return addresses[2 * index];
+    }
+
+    long getAddressLow(int index) {
+        return addresses[2 * index + 1];
+    }
+
+    int getPrefix(int index) {
+        return prefixes[index];
+    }
+
+    InetAddress getAddress(int index) {
+        final byte[] bytes;
+        if (isIPv4(index)) {
+            bytes = toBytes(getIPv4Address(index), Integer.BYTES);
         } else {
-            return Collections.unmodifiableList(ipList);
+            bytes = new byte[2 * Long.BYTES];
+            System.arraycopy(toBytes(addresses[2 * index], Long.BYTES), 0, bytes, 0, Long.BYTES);
+            System.arraycopy(toBytes(addresses[2 * index + 1], Long.BYTES), 0, bytes, Long.BYTES, Long.BYTES);
+        }
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Illegal address length", e);
+        }
+    }
+
+    private static byte[] toBytes(long value, int length) {
+        final byte[] bytes = new byte[length];
+        long remaining = value;
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[i] = (byte) remaining;
+            remaining >>>= Byte.SIZE;
         }
+        return bytes;
     }
 }
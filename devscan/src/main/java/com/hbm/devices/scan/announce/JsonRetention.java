@@ -0,0 +1,60 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+/**
+ * Determines how an {@link AnnounceDeserializer} retains the JSON
+ * representation of parsed {@link Announce}s.
+ * <p>
+ * Equality of announces is based on a hash of their JSON representation
+ * computed at parse time, so it does not depend on the retention.
+ *
+ * @since 2.3
+ */
+public enum JsonRetention {
+
+    /**
+     * The JSON string is kept as is. This is the default.
+     */
+    FULL,
+
+    /**
+     * The JSON string is kept deflate compressed and inflated on every
+     * call of {@link Announce#getJSONString()}.
+     */
+    COMPRESSED,
+
+    /**
+     * The JSON string is dropped. {@link Announce#getJSONString()}
+     * returns a canonical JSON representation rebuilt from the parsed
+     * fields, which might differ from the message received in key order
+     * and formatting.
+     */
+    NONE
+}
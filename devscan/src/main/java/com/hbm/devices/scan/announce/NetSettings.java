@@ -36,14 +36,14 @@ import java.io.Serializable;
  */
 public final class NetSettings implements Serializable {
 
-    private DefaultGateway defaultGateway;
+    DefaultGateway defaultGateway;
 
     private static final long serialVersionUID = 7399836134150394297L;
 
     @SerializedName("interface")
-    private Interface iface;
+    Interface iface;
 
-    private NetSettings() {
+    NetSettings() {
     }
 
     /**
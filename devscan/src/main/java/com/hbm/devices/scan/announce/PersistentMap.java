@@ -0,0 +1,378 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/*
+ * An immutable hash map with structural sharing (a hash array mapped
+ * trie). Adding or removing a mapping copies only the nodes on the path
+ * to the mapping, at most seven small arrays, and shares everything else
+ * with the original map. So a writer can publish a new version after
+ * each change without copying the whole map, and readers holding an
+ * older version are never affected.
+ *
+ * Neither keys nor values may be null.
+ */
+final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_DEPTH = Integer.SIZE / BITS + 2;
+
+    private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        if (root == null || key == null) {
+            return null;
+        }
+        return (V) root.get(key, hash(key), 0);
+    }
+
+    boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /*
+     * Returns a map additionally containing the given mapping, or this
+     * map if the mapping is already present.
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Neither key nor value may be null");
+        }
+        final int hash = hash(key);
+        if (root == null) {
+            return new PersistentMap<>(BitmapNode.single(key, value, hash, 0), 1);
+        }
+        final Node node = root.put(key, value, hash, 0);
+        if (node == root) {
+            return this;
+        }
+        return new PersistentMap<>(node, root.get(key, hash, 0) == null ? size + 1 : size);
+    }
+
+    /*
+     * Returns a map without a mapping for key, or this map if there is
+     * no such mapping.
+     */
+    PersistentMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        final Node node = root.remove(key, hash(key), 0);
+        if (node == root) {
+            return this;
+        }
+        return new PersistentMap<>(node, size - 1);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /*
+     * Both node types store their content in slots, two per entry: a key
+     * followed by its value, or null followed by a child node.
+     */
+    private abstract static class Node {
+        final Object[] slots;
+
+        Node(Object... slots) {
+            this.slots = slots;
+        }
+
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node put(Object key, Object value, int hash, int shift);
+
+        abstract Node remove(Object key, int hash, int shift);
+    }
+
+    private static final class BitmapNode extends Node {
+        private final int bitmap;
+
+        BitmapNode(int bitmap, Object... slots) {
+            super(slots);
+            this.bitmap = bitmap;
+        }
+
+        static Node single(Object key, Object value, int hash, int shift) {
+            return new BitmapNode(bit(hash, shift), key, value);
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final int i = index(bit);
+            final Object k = slots[i];
+            if (k == null) {
+                return ((Node) slots[i + 1]).get(key, hash, shift + BITS);
+            }
+            return key.equals(k) ? slots[i + 1] : null;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift) {
+            final int bit = bit(hash, shift);
+            final int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                final Object[] copy = new Object[slots.length + 2];
+                System.arraycopy(slots, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(slots, i, copy, i + 2, slots.length - i);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            final Object k = slots[i];
+            final Object v = slots[i + 1];
+            if (k == null) {
+                final Node child = ((Node) v).put(key, value, hash, shift + BITS);
+                return child == v ? this : replace(i, null, child);
+            }
+            if (key.equals(k)) {
+                return v == value ? this : replace(i, k, value);
+            }
+            return replace(i, null, merge(k, v, hash(k), key, value, hash, shift + BITS));
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int i = index(bit);
+            final Object k = slots[i];
+            if (k == null) {
+                final Node child = (Node) slots[i + 1];
+                final Node newChild = child.remove(key, hash, shift + BITS);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild == null) {
+                    return without(bit, i);
+                }
+                if (newChild.slots.length == 2 && newChild.slots[0] != null) {
+                    return replace(i, newChild.slots[0], newChild.slots[1]);
+                }
+                return replace(i, null, newChild);
+            }
+            return key.equals(k) ? without(bit, i) : this;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Node replace(int i, Object key, Object value) {
+            final Object[] copy = slots.clone();
+            copy[i] = key;
+            copy[i + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private Node without(int bit, int i) {
+            if (slots.length == 2) {
+                return null;
+            }
+            final Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        private static Node merge(Object key1, Object value1, int hash1,
+                Object key2, Object value2, int hash2, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new CollisionNode(key1, value1, key2, value2);
+            }
+            final int bit1 = bit(hash1, shift);
+            final int bit2 = bit(hash2, shift);
+            if (bit1 == bit2) {
+                return new BitmapNode(bit1, null, merge(key1, value1, hash1, key2, value2, hash2, shift + BITS));
+            }
+            if (Integer.compareUnsigned(bit1, bit2) < 0) {
+                return new BitmapNode(bit1 | bit2, key1, value1, key2, value2);
+            }
+            return new BitmapNode(bit1 | bit2, key2, value2, key1, value1);
+        }
+    }
+
+    /*
+     * Holds keys whose hashes are completely equal.
+     */
+    private static final class CollisionNode extends Node {
+
+        CollisionNode(Object... slots) {
+            super(slots);
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            final int i = find(key);
+            return i < 0 ? null : slots[i + 1];
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift) {
+            final int i = find(key);
+            if (i >= 0) {
+                if (slots[i + 1] == value) {
+                    return this;
+                }
+                final Object[] copy = slots.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(copy);
+            }
+            final Object[] copy = new Object[slots.length + 2];
+            System.arraycopy(slots, 0, copy, 0, slots.length);
+            copy[slots.length] = key;
+            copy[slots.length + 1] = value;
+            return new CollisionNode(copy);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            final int i = find(key);
+            if (i < 0) {
+                return this;
+            }
+            if (slots.length == 2) {
+                return null;
+            }
+            final Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new CollisionNode(copy);
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < slots.length; i += 2) {
+                if (key.equals(slots[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] stack;
+        private final int[] positions;
+        private int depth;
+
+        EntryIterator(Node root) {
+            stack = new Object[MAX_DEPTH][];
+            positions = new int[MAX_DEPTH];
+            depth = -1;
+            if (root != null) {
+                push(root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (depth >= 0) {
+                final Object[] slots = stack[depth];
+                final int i = positions[depth];
+                if (i == slots.length) {
+                    depth--;
+                } else if (slots[i] == null) {
+                    positions[depth] = i + 2;
+                    push((Node) slots[i + 1]);
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Object[] slots = stack[depth];
+            final int i = positions[depth];
+            positions[depth] = i + 2;
+            return new AbstractMap.SimpleImmutableEntry<>((K) slots[i], (V) slots[i + 1]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("PersistentMap is immutable");
+        }
+
+        private void push(Node node) {
+            depth++;
+            stack[depth] = node.slots;
+            positions[depth] = 0;
+        }
+    }
+}
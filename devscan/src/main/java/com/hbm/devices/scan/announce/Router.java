@@ -35,11 +35,11 @@ import java.io.Serializable;
  */
 public final class Router implements Serializable {
 
-    private String uuid;
+    String uuid;
 
     private static final long serialVersionUID = -3904823671758702259L;
 
-    private Router() {
+    Router() {
     }
 
     /**
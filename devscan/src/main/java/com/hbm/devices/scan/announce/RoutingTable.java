@@ -0,0 +1,280 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Longest-prefix-match table answering which local network interface can
+ * reach a device address.
+ * <p>
+ * The table is built once from the {@link InterfaceAddress}es of the
+ * given {@link NetworkInterface}s and stores the networks in a binary
+ * trie per address family. A lookup walks at most 32 (IPv4) or 128
+ * (IPv6) levels, independent of the number of local interfaces.
+ * <p>
+ * If several local addresses share the same network (e.g. IPv6 link
+ * local networks on multiple interfaces), all of them are kept and the
+ * interface added first is the preferred one.
+ * <p>
+ * Objects of this class are immutable after construction and can be
+ * shared between threads.
+ *
+ * @since 2.3
+ */
+public final class RoutingTable {
+
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
+    private final Node ipv4Root;
+    private final Node ipv6Root;
+
+    /**
+     * Constructs a {@link RoutingTable} containing the networks of all
+     * addresses configured on the given interfaces.
+     *
+     * @param interfaces A {@link Collection} of {@link
+     * NetworkInterface}s, typically from {@link
+     * com.hbm.devices.scan.ScanInterfaces#getInterfaces()}.
+     */
+    public RoutingTable(Collection<NetworkInterface> interfaces) {
+        this();
+        for (final NetworkInterface iface : interfaces) {
+            for (final InterfaceAddress address : iface.getInterfaceAddresses()) {
+                add(iface, address.getAddress(), address.getNetworkPrefixLength());
+            }
+        }
+    }
+
+    RoutingTable() {
+        ipv4Root = new Node();
+        ipv6Root = new Node();
+    }
+
+    void add(NetworkInterface iface, InetAddress sourceAddress, int prefix) {
+        final Node root;
+        final int bits;
+        if (sourceAddress instanceof Inet4Address) {
+            root = ipv4Root;
+            bits = IPV4_BITS;
+        } else if (sourceAddress instanceof Inet6Address) {
+            root = ipv6Root;
+            bits = IPV6_BITS;
+        } else {
+            return;
+        }
+        if (!ConnectionFinder.validPrefix(prefix, bits)) {
+            return;
+        }
+
+        final byte[] address = sourceAddress.getAddress();
+        Node node = root;
+        for (int i = 0; i < prefix; i++) {
+            node = node.child(bit(address, i), true);
+        }
+        node.add(new Route(iface, sourceAddress, prefix));
+    }
+
+    /**
+     * Looks up the route to a device address.
+     *
+     * @param deviceAddress the IP address of the device.
+     *
+     * @return the preferred {@link Route} of the longest matching local
+     * network or {@code null} if no local interface is in a network
+     * containing {@code deviceAddress}.
+     */
+    public Route lookup(InetAddress deviceAddress) {
+        final Route[] routes = longestMatch(deviceAddress);
+        if (routes == null) {
+            return null;
+        }
+        return routes[0];
+    }
+
+    /**
+     * Looks up the best route to an announced device.
+     *
+     * @param announce The {@link Announce} containing the device we
+     * want to communicate with.
+     *
+     * @return the preferred {@link Route} with the longest prefix over all
+     * announced addresses or {@code null} if the device can't be reached
+     * directly.
+     */
+    public Route lookup(Announce announce) {
+        Route best = null;
+        for (final IPEntry entry : announce.getParams().getNetSettings().getInterface().getIPList()) {
+            final Route route = lookup(entry.getAddress());
+            if ((route != null) && ((best == null) || (route.getPrefix() > best.getPrefix()))) {
+                best = route;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Collects all local interfaces which are in a network of one of the
+     * announced addresses.
+     *
+     * @param announce The {@link Announce} containing the device we
+     * want to communicate with.
+     *
+     * @return a {@link Collection} of {@link NetworkInterface}s able to
+     * reach the device without a gateway. The collection is empty if the
+     * device can't be reached directly.
+     */
+    public Collection<NetworkInterface> getReachingInterfaces(Announce announce) {
+        final Set<NetworkInterface> interfaces = new LinkedHashSet<>();
+        for (final IPEntry entry : announce.getParams().getNetSettings().getInterface().getIPList()) {
+            final Route[] routes = longestMatch(entry.getAddress());
+            if (routes != null) {
+                for (final Route route : routes) {
+                    if (route.getInterface() != null) {
+                        interfaces.add(route.getInterface());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(interfaces);
+    }
+
+    private Route[] longestMatch(InetAddress deviceAddress) {
+        final Node root;
+        final int bits;
+        if (deviceAddress instanceof Inet4Address) {
+            root = ipv4Root;
+            bits = IPV4_BITS;
+        } else if (deviceAddress instanceof Inet6Address) {
+            root = ipv6Root;
+            bits = IPV6_BITS;
+        } else {
+            return null;
+        }
+
+        final byte[] address = deviceAddress.getAddress();
+        Route[] match = root.routes;
+        Node node = root;
+        for (int i = 0; i < bits; i++) {
+            node = node.child(bit(address, i), false);
+            if (node == null) {
+                break;
+            }
+            if (node.routes != null) {
+                match = node.routes;
+            }
+        }
+        return match;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index / Byte.SIZE] >>> (Byte.SIZE - 1 - (index % Byte.SIZE))) & 1;
+    }
+
+    /**
+     * A route from a local interface address to a device network.
+     *
+     * @since 2.3
+     */
+    public static final class Route {
+        private final NetworkInterface iface;
+        private final InetAddress sourceAddress;
+        private final int prefix;
+
+        Route(NetworkInterface iface, InetAddress sourceAddress, int prefix) {
+            this.iface = iface;
+            this.sourceAddress = sourceAddress;
+            this.prefix = prefix;
+        }
+
+        /**
+         * @return the local {@link NetworkInterface} reaching the device.
+         */
+        public NetworkInterface getInterface() {
+            return iface;
+        }
+
+        /**
+         * @return the local address that should be used as source address
+         * when communicating with the device.
+         */
+        public InetAddress getSourceAddress() {
+            return sourceAddress;
+        }
+
+        /**
+         * @return the prefix length of the local network.
+         */
+        public int getPrefix() {
+            return prefix;
+        }
+    }
+
+    private static final class Node {
+        private Node zero;
+        private Node one;
+        private Route[] routes;
+
+        Node() {
+            // This constructor is only use by the outer class.
+        }
+
+        Node child(int bit, boolean create) {
+            if (bit == 0) {
+                if ((zero == null) && create) {
+                    zero = new Node();
+                }
+                return zero;
+            }
+            if ((one == null) && create) {
+                one = new Node();
+            }
+            return one;
+        }
+
+        void add(Route route) {
+            if (routes == null) {
+                routes = new Route[] {route};
+            } else {
+                routes = Arrays.copyOf(routes, routes.length + 1);
+                routes[routes.length - 1] = route;
+            }
+        }
+    }
+}
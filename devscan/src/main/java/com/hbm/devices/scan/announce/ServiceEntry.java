@@ -45,12 +45,12 @@ public final class ServiceEntry implements Serializable {
     public static final String SERVICE_SSH = "ssh";
     public static final String SERVICE_DAQ = "daq";
 
-    private String type;
-    private int port;
+    String type;
+    int port;
 
     private static final long serialVersionUID = 8891307656812767172L;
 
-    private ServiceEntry() {
+    ServiceEntry() {
     }
 
     /**
@@ -0,0 +1,84 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free string interner.
+ * <p>
+ * Strings are kept in a fixed size hash table. A string colliding
+ * with a different one simply replaces it, so the interner never
+ * grows beyond its capacity and never blocks. Interning is therefore
+ * best effort: equal strings usually, but not always, end up as the
+ * same instance.
+ *
+ * @since 2.3
+ */
+final class StringInterner {
+
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+
+    /**
+     * @param capacity the number of table slots, rounded up to the next
+     * power of two.
+     */
+    StringInterner(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        table = new AtomicReferenceArray<>(Math.max(size, 1));
+        mask = table.length() - 1;
+    }
+
+    /**
+     * @param value the string to intern, might be {@code null}.
+     * @return a string equal to {@code value}, preferably one that was
+     * interned before.
+     */
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        final int hash = value.hashCode();
+        final int index = (hash ^ (hash >>> 16)) & mask;
+        final String existing = table.get(index);
+        if (value.equals(existing)) {
+            return existing;
+        }
+        table.set(index, value);
+        return value;
+    }
+
+    int capacity() {
+        return table.length();
+    }
+}
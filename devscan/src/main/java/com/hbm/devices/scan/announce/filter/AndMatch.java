@@ -0,0 +1,66 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce.filter;
+
+import com.hbm.devices.scan.announce.Announce;
+
+/**
+ * This class matches if all of the given {@link Matcher} objects match.
+ * <p>
+ * Evaluation stops at the first matcher not matching, so a single
+ * {@link Filter} using this class replaces a chain of stacked
+ * {@link Filter} objects.
+ *
+ * @since 2.3
+ */
+public final class AndMatch extends CompositeMatch {
+
+    /**
+     * Creates a {@link Matcher} object that matches if all given
+     * matchers match an {@link Announce} object.
+     *
+     * @param matchers the {@link Matcher} objects to be combined.
+     *
+     * @throws IllegalArgumentException if no matchers are given or a
+     * matcher is {@code null}.
+     */
+    public AndMatch(Matcher... matchers) {
+        super(matchers);
+    }
+
+    @Override
+    public boolean match(Announce announce) {
+        for (final Matcher matcher : orderedMatchers()) {
+            if (!matcher.match(announce)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce.filter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.hbm.devices.scan.announce.Announce;
+
+/**
+ * Base class for matchers combining several {@link Matcher} objects
+ * into a single one.
+ * <p>
+ * The combined matchers are evaluated cheapest first, so checks on
+ * device properties like the UUID or the family type are done before
+ * scanning the service list of an {@link Announce}. Matchers with equal
+ * costs are evaluated in the order they were given.
+ *
+ * @since 2.3
+ */
+abstract class CompositeMatch implements Matcher {
+
+    static final int PROPERTY_COST = 1;
+    static final int SERVICE_SCAN_COST = 8;
+    static final int UNKNOWN_COST = 64;
+
+    private final Matcher[] matchers;
+    private final int cost;
+
+    CompositeMatch(Matcher... matchers) {
+        if ((matchers == null) || (matchers.length == 0)) {
+            throw new IllegalArgumentException("No matchers given!");
+        }
+        this.matchers = matchers.clone();
+        int sum = 0;
+        for (final Matcher matcher : this.matchers) {
+            if (matcher == null) {
+                throw new IllegalArgumentException("matcher must not be null");
+            }
+            sum += costOf(matcher);
+        }
+        Arrays.sort(this.matchers, new CostComparator());
+        cost = sum;
+    }
+
+    @Override
+    public String[] getFilterStrings() {
+        int length = 0;
+        for (final Matcher matcher : matchers) {
+            length += matcher.getFilterStrings().length;
+        }
+        final String[] filterStrings = new String[length];
+        int pos = 0;
+        for (final Matcher matcher : matchers) {
+            final String[] strings = matcher.getFilterStrings();
+            System.arraycopy(strings, 0, filterStrings, pos, strings.length);
+            pos += strings.length;
+        }
+        return filterStrings;
+    }
+
+    /**
+     * @return the combined matchers in the order they are evaluated.
+     */
+    public Matcher[] getMatchers() {
+        return matchers.clone();
+    }
+
+    final Matcher[] orderedMatchers() {
+        return matchers;
+    }
+
+    final int getCost() {
+        return cost;
+    }
+
+    static int costOf(Matcher matcher) {
+        if (matcher instanceof CompositeMatch) {
+            return ((CompositeMatch) matcher).getCost();
+        }
+        if ((matcher instanceof UUIDMatch) || (matcher instanceof FamilytypeMatch)) {
+            return PROPERTY_COST * matcher.getFilterStrings().length;
+        }
+        if (matcher instanceof ServicetypeMatch) {
+            return SERVICE_SCAN_COST * matcher.getFilterStrings().length;
+        }
+        return UNKNOWN_COST;
+    }
+
+    private static final class CostComparator implements Comparator<Matcher> {
+
+        CostComparator() {
+            // This constructor is only use by the outer class.
+        }
+
+        @Override
+        public int compare(Matcher lhs, Matcher rhs) {
+            return Integer.compare(costOf(lhs), costOf(rhs));
+        }
+    }
+}
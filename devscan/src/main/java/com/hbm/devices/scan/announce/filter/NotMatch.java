@@ -0,0 +1,56 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce.filter;
+
+import com.hbm.devices.scan.announce.Announce;
+
+/**
+ * This class inverts the result of another {@link Matcher} object.
+ *
+ * @since 2.3
+ */
+public final class NotMatch extends CompositeMatch {
+
+    /**
+     * Creates a {@link Matcher} object that matches if the given
+     * matcher does not match an {@link Announce} object.
+     *
+     * @param matcher the {@link Matcher} to be inverted.
+     *
+     * @throws IllegalArgumentException if {@code matcher} is {@code null}.
+     */
+    public NotMatch(Matcher matcher) {
+        super(matcher);
+    }
+
+    @Override
+    public boolean match(Announce announce) {
+        return !orderedMatchers()[0].match(announce);
+    }
+}
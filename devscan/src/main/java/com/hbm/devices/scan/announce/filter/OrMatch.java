@@ -0,0 +1,65 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce.filter;
+
+import com.hbm.devices.scan.announce.Announce;
+
+/**
+ * This class matches if at least one of the given {@link Matcher}
+ * objects matches.
+ * <p>
+ * Evaluation stops at the first matcher that matches.
+ *
+ * @since 2.3
+ */
+public final class OrMatch extends CompositeMatch {
+
+    /**
+     * Creates a {@link Matcher} object that matches if any of the given
+     * matchers matches an {@link Announce} object.
+     *
+     * @param matchers the {@link Matcher} objects to be combined.
+     *
+     * @throws IllegalArgumentException if no matchers are given or a
+     * matcher is {@code null}.
+     */
+    public OrMatch(Matcher... matchers) {
+        super(matchers);
+    }
+
+    @Override
+    public boolean match(Announce announce) {
+        for (final Matcher matcher : orderedMatchers()) {
+            if (matcher.match(announce)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce.filter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * This class filters raw announce messages before they are parsed by
+ * {@link com.hbm.devices.scan.announce.AnnounceDeserializer}.
+ * <p>
+ * The class reads {@link String} messages, extracts only the device
+ * UUID and the family type with a streaming JSON reader and notifies
+ * the message if the {@link Matcher} given in the constructor might
+ * match. Messages from devices that will be discarded anyway do not
+ * pay the cost of a full deserialization.
+ * <p>
+ * Only {@link UUIDMatch}, {@link FamilytypeMatch} and the composite
+ * matchers {@link AndMatch}, {@link OrMatch} and {@link NotMatch} can be
+ * decided before parsing. If the result depends on other matchers (e.g.
+ * {@link ServicetypeMatch}), the message is forwarded, so a {@link
+ * Filter} with the same {@link Matcher} has to be put behind the
+ * deserializer to get exact results. Messages that can't be pre-parsed
+ * are also forwarded and left to the deserializer.
+ *
+ * @since 2.3
+ */
+public final class PreParseFilter extends Observable implements Observer {
+
+    private final Matcher matcher;
+
+    /**
+     * Constructs a {@link PreParseFilter} object.
+     *
+     * @param matcher The matcher object that decides if a message is
+     * filtered out or not.
+     */
+    public PreParseFilter(Matcher matcher) {
+        super();
+
+        this.matcher = matcher;
+    }
+
+    public Matcher getMatcher() {
+        return this.matcher;
+    }
+
+    @Override
+    public void update(Observable observable, Object arg) {
+        final String message = (String)arg;
+        if (mightMatch(message)) {
+            setChanged();
+            notifyObservers(message);
+        }
+    }
+
+    boolean mightMatch(String message) {
+        if (message == null) {
+            return true;
+        }
+        final DeviceFields fields = DeviceFields.extract(message);
+        if (fields == null) {
+            return true;
+        }
+        return decide(matcher, fields) != Decision.NO_MATCH;
+    }
+
+    static Decision decide(Matcher matcher, DeviceFields fields) {
+        if (matcher instanceof UUIDMatch) {
+            return contains(matcher.getFilterStrings(), fields.uuid);
+        }
+        if (matcher instanceof FamilytypeMatch) {
+            return contains(matcher.getFilterStrings(), fields.familyType);
+        }
+        if (matcher instanceof NotMatch) {
+            return decide(((NotMatch) matcher).orderedMatchers()[0], fields).invert();
+        }
+        if (matcher instanceof AndMatch) {
+            Decision result = Decision.MATCH;
+            for (final Matcher m : ((AndMatch) matcher).orderedMatchers()) {
+                final Decision decision = decide(m, fields);
+                if (decision == Decision.NO_MATCH) {
+                    return Decision.NO_MATCH;
+                }
+                if (decision == Decision.UNDECIDED) {
+                    result = Decision.UNDECIDED;
+                }
+            }
+            return result;
+        }
+        if (matcher instanceof OrMatch) {
+            Decision result = Decision.NO_MATCH;
+            for (final Matcher m : ((OrMatch) matcher).orderedMatchers()) {
+                final Decision decision = decide(m, fields);
+                if (decision == Decision.MATCH) {
+                    return Decision.MATCH;
+                }
+                if (decision == Decision.UNDECIDED) {
+                    result = Decision.UNDECIDED;
+                }
+            }
+            return result;
+        }
+        return Decision.UNDECIDED;
+    }
+
+    private static Decision contains(String[] filterStrings, String value) {
+        for (final String s : filterStrings) {
+            if (s.equals(value)) {
+                return Decision.MATCH;
+            }
+        }
+        return Decision.NO_MATCH;
+    }
+
+    enum Decision {
+        MATCH, NO_MATCH, UNDECIDED;
+
+        Decision invert() {
+            if (this == MATCH) {
+                return NO_MATCH;
+            }
+            if (this == NO_MATCH) {
+                return MATCH;
+            }
+            return UNDECIDED;
+        }
+    }
+
+    static final class DeviceFields {
+        private String uuid;
+        private String familyType;
+
+        private DeviceFields() {
+        }
+
+        /*
+         * Walks through the message until the device section of the
+         * announce parameters was read. Everything else is skipped
+         * without building any objects. Returns null if the message is
+         * no valid announce, so the decision is left to the deserializer.
+         */
+        static DeviceFields extract(String message) {
+            try (JsonReader reader = new JsonReader(new StringReader(message))) {
+                reader.setLenient(true);
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    return null;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("params".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        return readParams(reader);
+                    }
+                    reader.skipValue();
+                }
+            } catch (IOException | IllegalStateException e) {
+                /*
+                 * No error handling by intention. Invalid messages are
+                 * forwarded and dropped by the deserializer.
+                 */
+            }
+            return null;
+        }
+
+        private static DeviceFields readParams(JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("device".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    return readDevice(reader);
+                }
+                reader.skipValue();
+            }
+            return null;
+        }
+
+        private static DeviceFields readDevice(JsonReader reader) throws IOException {
+            final DeviceFields fields = new DeviceFields();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if ("uuid".equals(name)) {
+                    fields.uuid = readString(reader);
+                } else if ("familyType".equals(name)) {
+                    fields.familyType = readString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return fields;
+        }
+
+        /*
+         * Gson converts numbers and booleans into strings as well, so
+         * these are handled like the deserializer does.
+         */
+        private static String readString(JsonReader reader) throws IOException {
+            final JsonToken token = reader.peek();
+            if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                return reader.nextString();
+            }
+            if (token == JsonToken.BOOLEAN) {
+                return Boolean.toString(reader.nextBoolean());
+            }
+            reader.skipValue();
+            return null;
+        }
+    }
+}
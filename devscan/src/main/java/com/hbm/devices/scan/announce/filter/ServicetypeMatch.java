@@ -29,7 +29,7 @@
 package com.hbm.devices.scan.announce.filter;
 
 import com.hbm.devices.scan.announce.Announce;
-import com.hbm.devices.scan.announce.ServiceEntry;
+import com.hbm.devices.scan.announce.AnnounceParams;
 
 /**
  * This class matches family type information in Announce objects.
@@ -54,12 +54,10 @@ public final class ServicetypeMatch implements Matcher {
 
     @Override
     public boolean match(Announce announce) {
-        final Iterable<ServiceEntry> services = announce.getParams().getServices();
-        for (final ServiceEntry entry : services) {
-            for (String serviceType : serviceTypes) {
-                if (serviceType.equals(entry.getType())) {
-                    return true;
-                }
+        final AnnounceParams params = announce.getParams();
+        for (final String serviceType : serviceTypes) {
+            if (params.hasServiceType(serviceType)) {
+                return true;
             }
         }
         return false;
@@ -0,0 +1,129 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import java.net.NetworkInterface;
+import java.util.Collection;
+import java.util.concurrent.ScheduledFuture;
+
+class ConfigQuery {
+
+    private final ConfigurationRequest config;
+    private final long timeout;
+    private final ConfigurationCallback callback;
+    private final long sequence;
+    private final Collection<NetworkInterface> interfaces;
+    private final int maxRetransmissions;
+    private final long created;
+    private volatile int retransmissions;
+    private volatile ScheduledFuture<?> timer;
+    private volatile ScheduledFuture<?> retransmitTimer;
+
+    ConfigQuery(ConfigurationRequest config, ConfigurationCallback callback, long timeout, long sequence) {
+        this(config, callback, timeout, sequence, null, 0);
+    }
+
+    ConfigQuery(ConfigurationRequest config, ConfigurationCallback callback, long timeout, long sequence,
+        Collection<NetworkInterface> interfaces, int maxRetransmissions) {
+        this.config = config;
+        this.timeout = timeout;
+        this.callback = callback;
+        this.sequence = sequence;
+        this.interfaces = interfaces;
+        this.maxRetransmissions = maxRetransmissions;
+        created = System.nanoTime();
+    }
+
+    ConfigurationRequest getRequest() {
+        return config;
+    }
+
+    void setTimer(ScheduledFuture<?> timer) {
+        this.timer = timer;
+    }
+
+    void setRetransmitTimer(ScheduledFuture<?> timer) {
+        retransmitTimer = timer;
+    }
+
+    void cancelTimer() {
+        final ScheduledFuture<?> scheduled = timer;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        final ScheduledFuture<?> retransmit = retransmitTimer;
+        if (retransmit != null) {
+            retransmit.cancel(false);
+        }
+    }
+
+    Collection<NetworkInterface> getInterfaces() {
+        return interfaces;
+    }
+
+    String getDeviceUUID() {
+        return config.getParams().getDevice().getUUID();
+    }
+
+    /*
+     * Only called from the service's single timer thread.
+     */
+    int retransmitted() {
+        retransmissions++;
+        return retransmissions;
+    }
+
+    int getRetransmissions() {
+        return retransmissions;
+    }
+
+    int getMaxRetransmissions() {
+        return maxRetransmissions;
+    }
+
+    long getElapsedMillis() {
+        return (System.nanoTime() - created) / 1000000;
+    }
+
+    String getQueryID() {
+        return config.getQueryId();
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getTimeout() {
+        return this.timeout;
+    }
+
+    ConfigurationCallback getConfigCallback() {
+        return callback;
+    }
+}
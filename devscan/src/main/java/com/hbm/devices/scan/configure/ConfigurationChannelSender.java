@@ -0,0 +1,299 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.hbm.devices.scan.ScanConstants;
+
+/**
+ * This class sends configuration messages via multicast using one
+ * {@link DatagramChannel} per {@link NetworkInterface}.
+ * <p>
+ * In contrast to {@link ConfigurationMulticastSender}, the outgoing
+ * interface of each channel is fixed when the sender is created, so
+ * sending a message does not reconfigure a shared socket. A message is
+ * copied once into a direct {@link ByteBuffer} which is then written to
+ * all channels, optionally in parallel using an {@link
+ * ExecutorService}. Concurrent calls of the send methods are
+ * serialized.
+ *
+ * @since 2.3
+ */
+public final class ConfigurationChannelSender implements MulticastSender {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final List<NetworkInterface> interfaces;
+    private final List<DatagramChannel> channels;
+    private final InetSocketAddress target;
+    private final ExecutorService executor;
+    private ByteBuffer buffer;
+    private boolean closed;
+
+    /**
+     * Creates a {@link ConfigurationChannelSender} which sends on all
+     * interfaces one after another.
+     *
+     * @param ifs A {@link Collection} of {@link NetworkInterface}s over
+     * which the multicast messages will be send.
+     *
+     * @throws IOException if creating the underlying channels fails.
+     */
+    public ConfigurationChannelSender(Collection<NetworkInterface> ifs) throws IOException {
+        this(ifs, null);
+    }
+
+    /**
+     * Creates a {@link ConfigurationChannelSender}.
+     *
+     * @param ifs A {@link Collection} of {@link NetworkInterface}s over
+     * which the multicast messages will be send.
+     * @param executor If not null, messages are sent on all interfaces
+     * in parallel using this executor. The executor is not shut down
+     * when the sender is closed.
+     *
+     * @throws IOException if creating the underlying channels fails.
+     */
+    public ConfigurationChannelSender(Collection<NetworkInterface> ifs, ExecutorService executor)
+        throws IOException {
+
+        if (ifs == null) {
+            throw new IllegalArgumentException("no Collection of interfaces given");
+        }
+        this.executor = executor;
+        target = new InetSocketAddress(InetAddress.getByName(ScanConstants.CONFIGURATION_ADDRESS),
+            ScanConstants.CONFIGURATION_PORT);
+        buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        interfaces = new ArrayList<>(ifs);
+        channels = new ArrayList<>(ifs.size());
+        try {
+            for (final NetworkInterface iface : interfaces) {
+                channels.add(openChannel(iface));
+            }
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+    }
+
+    /*
+     * Creates a sender writing to already opened channels, one per
+     * interface, instead of the configuration multicast group.
+     */
+    ConfigurationChannelSender(List<NetworkInterface> ifs, List<DatagramChannel> channels,
+        InetSocketAddress target, ExecutorService executor) {
+        this.executor = executor;
+        this.target = target;
+        buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        interfaces = new ArrayList<>(ifs);
+        this.channels = new ArrayList<>(channels);
+    }
+
+    /**
+     * Sends a multicast message over all {@link NetworkInterface}s of
+     * this sender.
+     *
+     * @param message The JSON string to be send.
+     * @throws IOException if sending on one of the channels fails or
+     * the sender is closed.
+     */
+    @Override
+    public void sendMessage(String message) throws IOException {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        sendMessage(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Sends an encoded multicast message over all {@link
+     * NetworkInterface}s of this sender.
+     *
+     * @param message The buffer holding the UTF-8 encoded JSON string.
+     * @param offset The offset of the message in the buffer.
+     * @param length The length of the message in bytes.
+     * @throws IOException if sending on one of the channels fails or
+     * the sender is closed.
+     */
+    @Override
+    public synchronized void sendMessage(byte[] message, int offset, int length) throws IOException {
+        fillBuffer(message, offset, length);
+        send(channels);
+    }
+
+    /**
+     * Sends an encoded multicast message over those {@link
+     * NetworkInterface}s of this sender which are also contained in
+     * {@code selected}. If there are none, the message is sent on all
+     * interfaces.
+     *
+     * @param message The buffer holding the UTF-8 encoded JSON string.
+     * @param offset The offset of the message in the buffer.
+     * @param length The length of the message in bytes.
+     * @param selected The interfaces the message shall be sent on.
+     * @throws IOException if sending on one of the channels fails or
+     * the sender is closed.
+     */
+    @Override
+    public synchronized void sendMessage(byte[] message, int offset, int length,
+        Collection<NetworkInterface> selected) throws IOException {
+        final List<DatagramChannel> selectedChannels = new ArrayList<>(selected.size());
+        for (int i = 0; i < channels.size(); i++) {
+            if (selected.contains(interfaces.get(i))) {
+                selectedChannels.add(channels.get(i));
+            }
+        }
+        fillBuffer(message, offset, length);
+        send(selectedChannels.isEmpty() ? channels : selectedChannels);
+    }
+
+    /**
+     * Closes the {@link ConfigurationChannelSender} and all underlying
+     * channels.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closeChannels();
+            closed = true;
+        }
+    }
+
+    @Override
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private void fillBuffer(byte[] message, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Sender already closed");
+        }
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocateDirect(Math.max(length, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        buffer.put(message, offset, length);
+        buffer.flip();
+    }
+
+    private void send(List<DatagramChannel> targets) throws IOException {
+        if (executor == null || targets.size() < 2) {
+            for (final DatagramChannel channel : targets) {
+                channel.send(buffer.duplicate(), target);
+            }
+        } else {
+            sendParallel(targets);
+        }
+    }
+
+    private void sendParallel(List<DatagramChannel> targets) throws IOException {
+        final List<Future<Void>> results = new ArrayList<>(targets.size());
+        for (final DatagramChannel channel : targets) {
+            final ByteBuffer data = buffer.duplicate();
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    channel.send(data, target);
+                    return null;
+                }
+            }));
+        }
+
+        /*
+         * Wait for all sends, because the buffer is reused by the next
+         * message.
+         */
+        IOException failure = null;
+        boolean interrupted = false;
+        for (final Future<Void> result : results) {
+            while (true) {
+                try {
+                    result.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException
+                            ? (IOException)e.getCause() : new IOException(e.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static DatagramChannel openChannel(NetworkInterface iface) throws IOException {
+        final DatagramChannel channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, iface);
+            channel.bind(new InetSocketAddress(ScanConstants.CONFIGURATION_PORT));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private void closeChannels() {
+        for (final DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                /*
+                 * Nothing to be done if closing fails, the channel is
+                 * of no further use anyway.
+                 */
+            }
+        }
+        channels.clear();
+        interfaces.clear();
+    }
+}
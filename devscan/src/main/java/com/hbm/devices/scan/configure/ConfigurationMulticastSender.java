@@ -89,7 +89,22 @@ public final class ConfigurationMulticastSender implements MulticastSender {
     @Override
     public void sendMessage(String message) throws IOException {
         final byte[] bytes = message.getBytes(charset);
-        final DatagramPacket packet = new DatagramPacket(bytes, bytes.length, configureAddress,
+        sendMessage(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Sends an encoded multicast message over the {@link
+     * NetworkInterface}s specified in {@link
+     * #ConfigurationMulticastSender(Collection)}.
+     *
+     * @param message The buffer holding the UTF-8 encoded JSON string.
+     * @param offset The offset of the message in the buffer.
+     * @param length The length of the message in bytes.
+     * @throws IOException if the underlying socket send fails.
+     */
+    @Override
+    public void sendMessage(byte[] message, int offset, int length) throws IOException {
+        final DatagramPacket packet = new DatagramPacket(message, offset, length, configureAddress,
             ScanConstants.CONFIGURATION_PORT);
         for (final NetworkInterface iface : interfaces) {
             socket.setNetworkInterface(iface);
@@ -97,6 +112,37 @@ public final class ConfigurationMulticastSender implements MulticastSender {
         }
     }
 
+    /**
+     * Sends an encoded multicast message over those {@link
+     * NetworkInterface}s specified in {@link
+     * #ConfigurationMulticastSender(Collection)} which are also contained
+     * in {@code selected}. If there are none, the message is sent on all
+     * interfaces.
+     *
+     * @param message The buffer holding the UTF-8 encoded JSON string.
+     * @param offset The offset of the message in the buffer.
+     * @param length The length of the message in bytes.
+     * @param selected The interfaces the message shall be sent on.
+     * @throws IOException if the underlying socket send fails.
+     */
+    @Override
+    public void sendMessage(byte[] message, int offset, int length,
+        Collection<NetworkInterface> selected) throws IOException {
+        final DatagramPacket packet = new DatagramPacket(message, offset, length, configureAddress,
+            ScanConstants.CONFIGURATION_PORT);
+        boolean sent = false;
+        for (final NetworkInterface iface : interfaces) {
+            if (selected.contains(iface)) {
+                socket.setNetworkInterface(iface);
+                socket.send(packet);
+                sent = true;
+            }
+        }
+        if (!sent) {
+            sendMessage(message, offset, length);
+        }
+    }
+
     /**
      * Closes the {@link ConfigurationMulticastSender} and releases all
      * underlying resources.
@@ -0,0 +1,312 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * This class pushes configurations to many devices using a {@link
+ * ConfigurationService}.<p>
+ *
+ * At most {@code maxInFlight} queries are outstanding at any time.
+ * Queries which are not answered within the timeout or could not be
+ * sent are retried up to {@code maxRetries} times, waiting {@code
+ * backoff} ms before the first retry and doubling this delay for every
+ * further retry. Error responses from a device are final and not
+ * retried.<p>
+ *
+ * The progress of a rollout is reported to a {@link RolloutListener}.
+ *
+ * @since 2.3
+ *
+ */
+public final class ConfigurationRollout {
+
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    private final ConfigurationService service;
+    private final int maxInFlight;
+    private final long timeout;
+    private final int maxRetries;
+    private final long backoff;
+
+    /**
+     * Creates a rollout engine.
+     *
+     * @param service the {@link ConfigurationService} used to send the
+     *              configurations.
+     * @param maxInFlight the maximum number of outstanding queries.
+     *              Must be greater than 0.
+     * @param timeout the time in ms to wait for each response. Must be
+     *              greater than 0.
+     * @param maxRetries how often a query without response is repeated.
+     *              Must not be negative.
+     * @param backoff the delay in ms before the first retry. Must not
+     *              be negative.
+     */
+    public ConfigurationRollout(ConfigurationService service, int maxInFlight, long timeout,
+        int maxRetries, long backoff) {
+
+        if (service == null) {
+            throw new IllegalArgumentException("service must not be null");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be greater than 0");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        if (backoff < 0) {
+            throw new IllegalArgumentException("backoff must not be negative");
+        }
+        this.service = service;
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        this.maxRetries = maxRetries;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Starts sending the configurations.
+     *
+     * @param configs the configurations to be sent, one per device.
+     * @param listener the listener to be informed about the progress,
+     *              may be null.
+     * @return a future completed when all devices are done. The list
+     *              contains the {@link Response} for each entry of
+     *              {@code configs} at the same index, or null if the
+     *              device did not answer or the query could not be
+     *              sent. Cancelling the future stops the rollout and
+     *              withdraws all outstanding queries.
+     */
+    public CompletableFuture<List<Response>> start(List<ConfigurationParams> configs,
+        RolloutListener listener) {
+
+        if (configs == null) {
+            throw new IllegalArgumentException("configs must not be null");
+        }
+        for (final ConfigurationParams params : configs) {
+            if (params == null) {
+                throw new IllegalArgumentException("configs must not contain null");
+            }
+        }
+
+        final Run run = new Run(new ArrayList<>(configs), listener);
+        run.pump();
+        return run.result;
+    }
+
+    long getBackoff(int attempt) {
+        return backoff << Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+    }
+
+    private final class Run {
+        private final List<ConfigurationParams> configs;
+        private final RolloutListener listener;
+        private final CompletableFuture<List<Response>> result;
+        private final Response[] responses;
+        private final int[] attempts;
+        private final Deque<Integer> ready;
+        private final Set<CompletableFuture<Response>> outstanding;
+        private int inFlight;
+        private int succeeded;
+        private int failed;
+        private int timedOut;
+        private int retries;
+        private boolean pumping;
+        private boolean pumpAgain;
+
+        Run(List<ConfigurationParams> configs, RolloutListener listener) {
+            this.configs = configs;
+            this.listener = listener;
+            result = new CompletableFuture<>();
+            responses = new Response[configs.size()];
+            attempts = new int[configs.size()];
+            ready = new ArrayDeque<>(configs.size());
+            outstanding = new HashSet<>();
+            for (int i = 0; i < configs.size(); i++) {
+                ready.add(i);
+            }
+            if (configs.isEmpty()) {
+                result.complete(new ArrayList<Response>());
+            }
+            result.whenComplete(new BiConsumer<List<Response>, Throwable>() {
+                @Override
+                public void accept(List<Response> list, Throwable throwable) {
+                    if (result.isCancelled()) {
+                        cancelOutstanding();
+                    }
+                }
+            });
+        }
+
+        /*
+         * Sends queued configurations until the in-flight limit is
+         * reached. Queries answered synchronously while sending call
+         * pump() again, so only the outermost invocation loops.
+         */
+        void pump() {
+            synchronized (this) {
+                if (pumping) {
+                    pumpAgain = true;
+                    return;
+                }
+                pumping = true;
+            }
+            while (true) {
+                final int index;
+                synchronized (this) {
+                    if (result.isDone() || inFlight >= maxInFlight || ready.isEmpty()) {
+                        if (!pumpAgain) {
+                            pumping = false;
+                            return;
+                        }
+                        pumpAgain = false;
+                        continue;
+                    }
+                    index = ready.poll();
+                    inFlight++;
+                    attempts[index]++;
+                }
+                send(index);
+            }
+        }
+
+        private void send(final int index) {
+            final CompletableFuture<Response> future;
+            try {
+                future = service.sendConfigurationAsync(configs.get(index), timeout);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    inFlight--;
+                }
+                result.completeExceptionally(e);
+                return;
+            } catch (RuntimeException e) {
+                // the query was not sent, count it as a failed attempt
+                completed(index, null, null, e);
+                return;
+            }
+            synchronized (this) {
+                outstanding.add(future);
+            }
+            future.whenComplete(new BiConsumer<Response, Throwable>() {
+                @Override
+                public void accept(Response response, Throwable throwable) {
+                    completed(index, future, response, throwable);
+                }
+            });
+        }
+
+        private void completed(final int index, CompletableFuture<Response> future,
+            Response response, Throwable throwable) {
+
+            final RolloutProgress progress;
+            final boolean retry;
+            synchronized (this) {
+                outstanding.remove(future);
+                inFlight--;
+                if (result.isDone() || throwable instanceof CancellationException) {
+                    return;
+                }
+                retry = throwable != null && attempts[index] <= maxRetries;
+                if (retry) {
+                    retries++;
+                } else if (throwable == null) {
+                    responses[index] = response;
+                    if (response.getError() == null) {
+                        succeeded++;
+                    } else {
+                        failed++;
+                    }
+                } else if (throwable instanceof TimeoutException) {
+                    timedOut++;
+                } else {
+                    failed++;
+                }
+                progress = new RolloutProgress(configs.size(), succeeded, failed, timedOut, inFlight, retries);
+            }
+
+            if (retry) {
+                scheduleRetry(index);
+            }
+            if (listener != null) {
+                listener.onProgress(progress);
+            }
+            if (progress.isFinished()) {
+                result.complete(Arrays.asList(responses));
+            } else {
+                pump();
+            }
+        }
+
+        private void scheduleRetry(final int index) {
+            final Runnable requeue = new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (Run.this) {
+                        ready.add(index);
+                    }
+                    pump();
+                }
+            };
+            try {
+                service.schedule(requeue, getBackoff(attempts[index]));
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void cancelOutstanding() {
+            final List<CompletableFuture<Response>> pending;
+            synchronized (this) {
+                pending = new ArrayList<>(outstanding);
+                outstanding.clear();
+                ready.clear();
+            }
+            for (final CompletableFuture<Response> future : pending) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -28,13 +28,24 @@
 
 package com.hbm.devices.scan.configure;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * This class is able to send {@link ConfigurationRequest} messages via multicast.
+ * <p>
+ * Requests are written by a streaming writer as UTF-8 directly
+ * into a buffer which is reused for every request, so no intermediate
+ * String is created. Concurrent calls of {@link #sendConfiguration} are
+ * serialized.
  * 
  * @since 1.0
  *
@@ -42,7 +53,8 @@ import com.google.gson.Gson;
 public final class ConfigurationSerializer implements Closeable {
 
     private final MulticastSender sender;
-    private final Gson gson;
+    private final MessageBuffer buffer;
+    private final Writer bufferWriter;
 
     /**
      * Constructs a ConfigurationSerializer object.
@@ -52,7 +64,8 @@ public final class ConfigurationSerializer implements Closeable {
      */
     public ConfigurationSerializer(MulticastSender sender) {
         this.sender = sender;
-        gson = new Gson();
+        buffer = new MessageBuffer();
+        bufferWriter = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
     }
 
     /**
@@ -65,11 +78,40 @@ public final class ConfigurationSerializer implements Closeable {
      * @throws IllegalArgumentException if configuration == null
      */
     public void sendConfiguration(ConfigurationRequest configuration) throws IOException {
+        sendConfiguration(configuration, null);
+    }
+
+    /**
+     * Sends a network configuration via multicast on selected
+     * interfaces.
+     *
+     * @param configuration The network configuration which shall be
+     * send.
+     * @param interfaces The interfaces the configuration shall be sent
+     * on, or null to send it on all interfaces of the underlying {@link
+     * MulticastSender}.
+     *
+     * @throws IOException if sending of the configuration fails.
+     * @throws IllegalArgumentException if configuration == null
+     *
+     * @since 2.3
+     */
+    public synchronized void sendConfiguration(ConfigurationRequest configuration,
+        Collection<NetworkInterface> interfaces) throws IOException {
         if (configuration == null) {
             throw new IllegalArgumentException("configuration == null");
         }
-        final String message = getJsonString(configuration);
-        sender.sendMessage(message);
+        buffer.reset();
+        final JsonWriter writer = new JsonWriter(bufferWriter);
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+        ConfigurationRequestWriter.write(writer, configuration);
+        writer.flush();
+        if (interfaces == null) {
+            sender.sendMessage(buffer.array(), 0, buffer.size());
+        } else {
+            sender.sendMessage(buffer.array(), 0, buffer.size(), interfaces);
+        }
     }
 
     /**
@@ -87,7 +129,15 @@ public final class ConfigurationSerializer implements Closeable {
         return sender.isClosed();
     }
 
-    private String getJsonString(ConfigurationRequest configuration) {
-        return gson.toJson(configuration);
+    private static final class MessageBuffer extends ByteArrayOutputStream {
+        private static final int INITIAL_SIZE = 512;
+
+        MessageBuffer() {
+            super(INITIAL_SIZE);
+        }
+
+        byte[] array() {
+            return buf;
+        }
     }
 }
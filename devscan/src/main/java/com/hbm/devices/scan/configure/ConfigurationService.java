@@ -30,18 +30,30 @@ package com.hbm.devices.scan.configure;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.HashMap;
+import java.net.NetworkInterface;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.google.common.base.Predicate;
+
+import com.hbm.devices.scan.InterfaceChangeEvent;
 import com.hbm.devices.scan.ScanConstants;
+import com.hbm.devices.scan.announce.Announce;
+import com.hbm.devices.scan.announce.RoutingTable;
 
 /**
  *This is the main service which is used to configure a device.<p>
@@ -56,21 +68,75 @@ import com.hbm.devices.scan.ScanConstants;
  *
  * The main method, which is used to transmit configuration settings, is
  * {@link ConfigurationService#sendConfiguration(ConfigurationParams,
- * ConfigurationCallback, long)}.<p>
+ * ConfigurationCallback, long)}. If the outcome of a query shall be
+ * composed with other queries, {@link
+ * ConfigurationService#sendConfigurationAsync(ConfigurationParams, long)}
+ * returns a {@link CompletableFuture} instead.<p>
+ *
+ * If the {@link Announce} of the target device is known and a {@link
+ * RoutingTable} was set, a query can be sent only on the interfaces
+ * which reach the device, see {@link
+ * ConfigurationService#sendTargetedConfiguration(ConfigurationParams,
+ * Announce, ConfigurationCallback, long)}.<p>
+ *
+ * Outstanding queries are kept in a concurrent table. Matching a
+ * response, a timeout or a cancellation removes the query atomically,
+ * so exactly one of them wins. Callbacks are invoked afterwards without
+ * holding any lock, so a slow callback does not block the handling of
+ * other responses.<p>
+ *
+ * A device may answer a query more than once, for instance if the query
+ * reached it on several interfaces. Only the first response is handled,
+ * the ids of recently answered queries are remembered to drop further
+ * responses before they are parsed. Their number is available from
+ * {@link #getDuplicateResponseCount()}.<p>
+ *
+ * Queries are sent once by default. After {@link
+ * #setMaxRetransmissions(int)}, a query without response is repeated
+ * with the same id. The interval before the first retransmission is
+ * estimated per device from the response times of earlier queries and
+ * doubled for each further retransmission. Retransmissions never
+ * shorten the timeout given for a query.<p>
  *
  * @since 1.0
  *
  */
 public class ConfigurationService implements Observer, Closeable {
 
-    private final Map<String, ConfigQuery> awaitingResponses;
+    private final QueryIdGenerator queryIds;
+
+    private final PendingQueries awaitingResponses;
+
+    private final RecentIds answeredQueries;
+
+    private final AtomicLong duplicateResponses;
+
+    private final Map<String, RttEstimator> estimators;
+
+    private volatile int maxRetransmissions;
+
+    /**
+     * The maximum number of retransmissions per query.
+     *
+     * @since 2.3
+     */
+    public static final int MAX_RETRANSMISSIONS = 8;
+
+    /*
+     * Estimators are kept for the devices queried most recently only.
+     */
+    static final int MAX_ESTIMATORS = 1024;
 
     private final ResponseDeserializer responseParser;
 
+    private final Predicate<String> pendingFilter;
+
     private final ConfigurationSerializer serializer;
 
     private final ScheduledThreadPoolExecutor executor;
 
+    private volatile RoutingTable routingTable;
+
     private static final Logger LOGGER =
         Logger.getLogger(ScanConstants.LOGGER_NAME);
 
@@ -87,9 +153,32 @@ public class ConfigurationService implements Observer, Closeable {
      */
     public ConfigurationService(ConfigurationSerializer serializer, ResponseDeserializer parser) {
         executor = new ScheduledThreadPoolExecutor(1);
-        awaitingResponses = new HashMap<>();
+        executor.setRemoveOnCancelPolicy(true);
+        queryIds = new QueryIdGenerator();
+        awaitingResponses = new PendingQueries(queryIds);
+        answeredQueries = new RecentIds();
+        duplicateResponses = new AtomicLong();
+        estimators = new LinkedHashMap<String, RttEstimator>(MAX_ESTIMATORS, 0.75F, true) {
+            private static final long serialVersionUID = 5377536287093311743L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RttEstimator> eldest) {
+                return size() > MAX_ESTIMATORS;
+            }
+        };
         this.serializer = serializer;
         responseParser = parser;
+        pendingFilter = new Predicate<String>() {
+            @Override
+            public boolean apply(String queryID) {
+                if (awaitingResponses.get(queryID) != null) {
+                    return true;
+                }
+                countDuplicate(queryID);
+                return false;
+            }
+        };
+        responseParser.addIdFilter(pendingFilter);
         responseParser.addObserver(this);
     }
 
@@ -102,6 +191,7 @@ public class ConfigurationService implements Observer, Closeable {
     @Override
     public void close() {
         responseParser.deleteObserver(this);
+        responseParser.removeIdFilter(pendingFilter);
 
         executor.shutdown();
         try {
@@ -116,9 +206,7 @@ public class ConfigurationService implements Observer, Closeable {
             Thread.currentThread().interrupt();
         }
 
-        synchronized (awaitingResponses) {
-            awaitingResponses.clear();
-        }
+        awaitingResponses.clear();
         serializer.close();
     }
 
@@ -135,21 +223,119 @@ public class ConfigurationService implements Observer, Closeable {
         return !awaitingResponses.isEmpty();
     }
 
+    /**
+     * Returns the number of responses which were dropped because the
+     * corresponding query was already answered.
+     *
+     * @return the number of duplicate responses since the service was
+     *              created.
+     *
+     * @since 2.3
+     */
+    public long getDuplicateResponseCount() {
+        return duplicateResponses.get();
+    }
+
+    /**
+     * Sets how often a query without response is retransmitted.<p>
+     *
+     * The first retransmission happens after the retransmission timeout
+     * of the device, see {@link #getRetransmissionTimeout(String)}, every
+     * further one after twice the previous interval. Retransmissions are
+     * only sent within the timeout given for the query, which is not
+     * changed by retransmission. Only queries sent after this call are
+     * affected.
+     *
+     * @param retransmissions the number of retransmissions, 0 disables
+     *              retransmission. Must not exceed {@link
+     *              #MAX_RETRANSMISSIONS}.
+     *
+     * @since 2.3
+     */
+    public void setMaxRetransmissions(int retransmissions) {
+        if (retransmissions < 0 || retransmissions > MAX_RETRANSMISSIONS) {
+            throw new IllegalArgumentException("retransmissions must be between 0 and " + MAX_RETRANSMISSIONS);
+        }
+        maxRetransmissions = retransmissions;
+    }
+
+    /**
+     * Returns the current retransmission timeout of a device.<p>
+     *
+     * It is estimated from the response times of queries to the device
+     * which were answered without retransmission, and is 1 s as long as
+     * no response time was measured. It is doubled, up to 10 s, for each
+     * retransmission and for each query which timed out without being
+     * retransmitted, until the next response time is measured.
+     *
+     * @param uuid the uuid of the device.
+     * @return the retransmission timeout in ms.
+     *
+     * @since 2.3
+     */
+    public long getRetransmissionTimeout(String uuid) {
+        final RttEstimator estimator;
+        synchronized (estimators) {
+            estimator = estimators.get(uuid);
+        }
+        if (estimator == null) {
+            return RttEstimator.INITIAL_RTO;
+        }
+        return estimator.getRto();
+    }
+
+    RttEstimator getEstimator(String uuid) {
+        synchronized (estimators) {
+            RttEstimator estimator = estimators.get(uuid);
+            if (estimator == null) {
+                estimator = new RttEstimator();
+                estimators.put(uuid, estimator);
+            }
+            return estimator;
+        }
+    }
+
+    int getEstimatorCount() {
+        synchronized (estimators) {
+            return estimators.size();
+        }
+    }
+
+    /**
+     * Sets the routing table used to select the interfaces a targeted
+     * query is sent on.
+     *
+     * @param routingTable the routing table, or null to always send on
+     *              all interfaces.
+     *
+     * @since 2.3
+     */
+    public void setRoutingTable(RoutingTable routingTable) {
+        this.routingTable = routingTable;
+    }
+
     /**
      *
      * This method is called when any response packet is received. It
      * checks if the received response corresponds to an earlier sent
      * configuration query. If not, the response is dropped, otherwise
      * either the onSucess or onError callback function of the
-     * corresponding query object is called.
+     * corresponding query object is called.<p>
+     *
+     * If the service observes an {@link
+     * com.hbm.devices.scan.InterfaceWatcher}, the routing table is
+     * rebuilt whenever the set of interfaces changes.
      *
      * @param observable the observable object.
-     * @param arg the received response.
+     * @param arg the received response or interface change.
      */
     @Override
     public void update(Observable observable, Object arg) {
-        final Response response = (Response)arg;
-        handleCallbacks(response);
+        if (arg instanceof InterfaceChangeEvent) {
+            setRoutingTable(new RoutingTable(((InterfaceChangeEvent)arg).getInterfaces()));
+        } else if (arg instanceof Response) {
+            handleCallbacks((Response)arg);
+        }
     }
 
     /**
@@ -177,8 +363,7 @@ public class ConfigurationService implements Observer, Closeable {
     public void sendConfiguration(final ConfigurationParams configParams,
         final ConfigurationCallback callback, long timeout) throws IOException {
 
-        final String queryID = UUID.randomUUID().toString();
-        sendConfiguration(configParams, queryID, callback, timeout);
+        sendConfiguration(configParams, queryIds.next(), callback, timeout);
     }
 
     /**
@@ -207,50 +392,282 @@ public class ConfigurationService implements Observer, Closeable {
     public void sendConfiguration(final ConfigurationParams configParams, final String queryID,
         final ConfigurationCallback callback, long timeout) throws IOException {
 
+        send(configParams, queryID, null, callback, timeout);
+    }
+
+    /**
+     *
+     * This method sends a configuration via multicast only on the
+     * interfaces which reach the target device. The method generates
+     * a queryID itself and handles the response like {@link
+     * ConfigurationService#sendConfiguration(ConfigurationParams,
+     * ConfigurationCallback, long)}.<p>
+     *
+     * The interfaces are looked up in the {@link RoutingTable} set by
+     * {@link #setRoutingTable(RoutingTable)}. The query is sent on all
+     * interfaces if no routing table is set, if the device is announced
+     * behind a router or if none of the device's addresses is reachable
+     * directly, for instance because it is not configured for the
+     * local network yet.
+     *
+     * @param configParams
+     *              the configuration parameters, which are send via
+     *              multicast
+     * @param target
+     *              the last announce of the device to be configured.
+     *              It must carry the uuid of {@code configParams}.
+     * @param callback
+     *              the interface with the callback methods for error
+     *              handling
+     * @param timeout
+     *              the time in ms, the service waits for a response.
+     *              Must be greater than 0.
+     * @throws IOException
+     *              if the underlying socket send does not succeed.
+     *
+     * @since 2.3
+     */
+    public void sendTargetedConfiguration(final ConfigurationParams configParams, final Announce target,
+        final ConfigurationCallback callback, long timeout) throws IOException {
+
+        send(configParams, queryIds.next(), findInterfaces(configParams, target), callback, timeout);
+    }
+
+    /**
+     *
+     * This method sends a configuration via multicast and returns a
+     * future for the corresponding response. The method generates a
+     * queryID itself.
+     *
+     * @param configParams
+     *              the configuration parameters, which are send via
+     *              multicast
+     * @param timeout
+     *              the time in ms, the service waits for a response.
+     *              Must be greater than 0.
+     * @return a future which is completed as described in {@link
+     *              ConfigurationService#sendConfigurationAsync(ConfigurationParams,
+     *              String, long)}.
+     *
+     * @since 2.3
+     */
+    public CompletableFuture<Response> sendConfigurationAsync(final ConfigurationParams configParams,
+        long timeout) {
+
+        return sendConfigurationAsync(configParams, queryIds.next(), timeout);
+    }
+
+    /**
+     *
+     * This method sends a configuration via multicast and returns a
+     * future for the corresponding response.<p>
+     *
+     * The future is completed with the received {@link Response},
+     * regardless whether the device answered with a result or an error;
+     * use {@link Response#getError()} to distinguish both cases. If no
+     * response is received within the timeout, the future is completed
+     * exceptionally with a {@link TimeoutException}. If sending fails,
+     * the future is completed exceptionally with the {@link IOException}.
+     * Cancelling the future withdraws the query, so later responses
+     * are ignored and the timeout timer is discarded.<p>
+     *
+     * The future is always completed outside of the service's internal
+     * locks.
+     *
+     * @param configParams
+     *              the configuration parameters, which are send via
+     *              multicast
+     * @param queryID
+     *              the queryID to be sent via multicast
+     * @param timeout
+     *              the time in ms, the service waits for a response.
+     *              Must be greater than 0.
+     * @return a future which is completed with the device's response.
+     *
+     * @since 2.3
+     */
+    public CompletableFuture<Response> sendConfigurationAsync(final ConfigurationParams configParams,
+        final String queryID, long timeout) {
+
+        return sendAsync(configParams, queryID, null, timeout);
+    }
+
+    /**
+     *
+     * This method sends a configuration via multicast only on the
+     * interfaces which reach the target device, as described in {@link
+     * ConfigurationService#sendTargetedConfiguration(ConfigurationParams,
+     * Announce, ConfigurationCallback, long)}, and returns a future for
+     * the corresponding response.
+     *
+     * @param configParams
+     *              the configuration parameters, which are send via
+     *              multicast
+     * @param target
+     *              the last announce of the device to be configured.
+     *              It must carry the uuid of {@code configParams}.
+     * @param timeout
+     *              the time in ms, the service waits for a response.
+     *              Must be greater than 0.
+     * @return a future which is completed as described in {@link
+     *              ConfigurationService#sendConfigurationAsync(ConfigurationParams,
+     *              String, long)}.
+     *
+     * @since 2.3
+     */
+    public CompletableFuture<Response> sendTargetedConfigurationAsync(final ConfigurationParams configParams,
+        final Announce target, long timeout) {
+
+        return sendAsync(configParams, queryIds.next(), findInterfaces(configParams, target), timeout);
+    }
+
+    /**
+     * Returns the interfaces a query for the target device shall be
+     * sent on, or null if it shall be sent on all interfaces.
+     */
+    Collection<NetworkInterface> findInterfaces(ConfigurationParams configParams, Announce target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target must not be null");
+        }
+        if (configParams != null
+            && !configParams.getDevice().getUUID().equals(target.getParams().getDevice().getUuid())) {
+            throw new IllegalArgumentException("target announce does not belong to the configured device");
+        }
+
+        final RoutingTable table = routingTable;
+        if (table == null || target.getParams().getRouter() != null) {
+            return null;
+        }
+        final Collection<NetworkInterface> interfaces = table.getReachingInterfaces(target);
+        if (interfaces.isEmpty()) {
+            return null;
+        }
+        return interfaces;
+    }
+
+    private void send(final ConfigurationParams configParams, final String queryID,
+        final Collection<NetworkInterface> interfaces, final ConfigurationCallback callback,
+        long timeout) throws IOException {
+
+        if (callback == null) {
+            throw new IllegalArgumentException("the callback parameter must not be null");
+        }
+        final ConfigQuery configQuery = enqueue(configParams, queryID, interfaces, callback, timeout);
+        serializer.sendConfiguration(configQuery.getRequest(), interfaces);
+    }
+
+    private CompletableFuture<Response> sendAsync(final ConfigurationParams configParams,
+        final String queryID, final Collection<NetworkInterface> interfaces, long timeout) {
+
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        final ConfigQuery configQuery = enqueue(configParams, queryID, interfaces, new FutureCallback(future), timeout);
+        future.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(Response response, Throwable throwable) {
+                if (future.isCancelled()) {
+                    withdraw(configQuery);
+                }
+            }
+        });
+
+        try {
+            serializer.sendConfiguration(configQuery.getRequest(), interfaces);
+        } catch (IOException e) {
+            withdraw(configQuery);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private ConfigQuery enqueue(final ConfigurationParams configParams, final String queryID,
+        final Collection<NetworkInterface> interfaces, final ConfigurationCallback callback, long timeout) {
+
         if (configParams == null) {
             throw new IllegalArgumentException("configParams must not be null");
         }
         if (timeout <= 0) {
             throw new IllegalArgumentException("timeout must be greater than 0");
         }
-        if (callback == null) {
-            throw new IllegalArgumentException("the callback parameter must not be null");
-        }
         if (queryID == null || queryID.length() == 0) {
             throw new IllegalArgumentException("no queryID given");
         }
 
+        final int retransmissions = maxRetransmissions;
         final ConfigurationRequest config = new ConfigurationRequest(configParams, queryID);
-        final ConfigQuery configQuery = new ConfigQuery(config, callback, timeout);
+        final ConfigQuery configQuery = new ConfigQuery(config, callback, timeout, queryIds.sequenceOf(queryID),
+            interfaces, retransmissions);
 
-        synchronized (awaitingResponses) {
-            awaitingResponses.put(queryID, configQuery);
-        }
+        awaitingResponses.put(configQuery);
         final TimeoutTimerTask task = new TimeoutTimerTask(configQuery);
-        executor.schedule(task, timeout, TimeUnit.MILLISECONDS);
+        try {
+            configQuery.setTimer(executor.schedule(task, timeout, TimeUnit.MILLISECONDS));
+            if (retransmissions > 0) {
+                scheduleRetransmission(configQuery, getRetransmissionTimeout(configParams.getDevice().getUUID()));
+            }
+        } catch (RejectedExecutionException e) {
+            withdraw(configQuery);
+            throw e;
+        }
+        return configQuery;
+    }
 
-        serializer.sendConfiguration(config);
+    ScheduledFuture<?> schedule(Runnable task, long delay) {
+        return executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduleRetransmission(ConfigQuery configQuery, long interval) {
+        if (configQuery.getElapsedMillis() + interval >= configQuery.getTimeout()) {
+            return;
+        }
+        configQuery.setRetransmitTimer(
+            executor.schedule(new RetransmitTask(configQuery, interval), interval, TimeUnit.MILLISECONDS));
+    }
+
+    private void withdraw(ConfigQuery configQuery) {
+        awaitingResponses.remove(configQuery.getQueryID(), configQuery);
+        configQuery.cancelTimer();
     }
 
     private void handleCallbacks(Response response) {
         final String responseID = response.getId();
+        final ErrorObject error = response.getError();
+        final ConfigQuery configQuery = awaitingResponses.get(responseID);
+        if (configQuery == null) {
+            countDuplicate(responseID);
+            return;
+        }
+        if (error != null && errorMessageNotValid(error.getMessage())) {
+            return;
+        }
+        /*
+         * Only the thread that actually removes the query (response,
+         * timeout or cancellation) may invoke its callback.
+         */
+        if (!awaitingResponses.remove(responseID, configQuery)) {
+            countDuplicate(responseID);
+            return;
+        }
+        answeredQueries.add(responseID);
+        if (configQuery.getRetransmissions() == 0) {
+            /*
+             * Responses to retransmitted queries can't be assigned to a
+             * transmission, so they are not used as sample (Karn's
+             * algorithm).
+             */
+            getEstimator(configQuery.getDeviceUUID()).addSample(configQuery.getElapsedMillis());
+        }
 
-        synchronized (awaitingResponses) {
-            final ConfigQuery configQuery = awaitingResponses.get(responseID);
-
-            if (configQuery != null) {
-                final ErrorObject error = response.getError();
-                if (error == null) {
-                    configQuery.getConfigCallback().onSuccess(response);
-                } else {
-                    final String message = error.getMessage();
-                    if (errorMessageNotValid(message)){
-                        return;
-                    }
-                    configQuery.getConfigCallback().onError(response);
-                }
-                awaitingResponses.remove(responseID);
-            }
+        configQuery.cancelTimer();
+        if (error == null) {
+            configQuery.getConfigCallback().onSuccess(response);
+        } else {
+            configQuery.getConfigCallback().onError(response);
+        }
+    }
+
+    private void countDuplicate(String queryID) {
+        if (answeredQueries.contains(queryID)) {
+            duplicateResponses.incrementAndGet();
         }
     }
 
@@ -267,39 +684,64 @@ public class ConfigurationService implements Observer, Closeable {
 
         @Override
         public Void call() throws Exception {
-            synchronized (awaitingResponses) {
-                final String queryID = configQuery.getQueryID();
-                if (awaitingResponses.containsKey(queryID)) {
-                    awaitingResponses.remove(queryID);
-                    configQuery.getConfigCallback().onTimeout(configQuery.getTimeout());
-                }
+            if (!awaitingResponses.remove(configQuery.getQueryID(), configQuery)) {
+                return null;
             }
+            if (configQuery.getRetransmissions() == 0) {
+                getEstimator(configQuery.getDeviceUUID()).backoff();
+            }
+            configQuery.getConfigCallback().onTimeout(configQuery.getTimeout());
             return null;
         }
     }
-}
 
-class ConfigQuery {
+    private class RetransmitTask implements Runnable {
+        private final ConfigQuery configQuery;
+        private final long interval;
 
-    private final ConfigurationRequest config;
-    private final long timeout;
-    private final ConfigurationCallback callback;
+        RetransmitTask(ConfigQuery query, long interval) {
+            configQuery = query;
+            this.interval = interval;
+        }
 
-    ConfigQuery(ConfigurationRequest config, ConfigurationCallback callback, long timeout) {
-        this.config = config;
-        this.timeout = timeout;
-        this.callback = callback;
+        @Override
+        public void run() {
+            if (awaitingResponses.get(configQuery.getQueryID()) != configQuery) {
+                return;
+            }
+            final int retransmissions = configQuery.retransmitted();
+            getEstimator(configQuery.getDeviceUUID()).backoff();
+            try {
+                serializer.sendConfiguration(configQuery.getRequest(), configQuery.getInterfaces());
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Can't retransmit configuration query!", e);
+            }
+            if (retransmissions < configQuery.getMaxRetransmissions()) {
+                scheduleRetransmission(configQuery, interval * 2);
+            }
+        }
     }
 
-    String getQueryID() {
-        return config.getQueryId();
-    }
+    private static class FutureCallback implements ConfigurationCallback {
+        private final CompletableFuture<Response> future;
 
-    long getTimeout() {
-        return this.timeout;
-    }
+        FutureCallback(CompletableFuture<Response> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void onSuccess(Response response) {
+            future.complete(response);
+        }
+
+        @Override
+        public void onError(Response response) {
+            future.complete(response);
+        }
 
-    ConfigurationCallback getConfigCallback() {
-        return callback;
+        @Override
+        public void onTimeout(long timeout) {
+            future.completeExceptionally(new TimeoutException("No response within " + timeout + " ms"));
+        }
     }
 }
@@ -44,6 +44,12 @@ public final class ErrorObject implements Serializable {
     private ErrorObject() {
     }
 
+    ErrorObject(int code, String message, String data) {
+        this.code = code;
+        this.message = message;
+        this.data = data;
+    }
+
     public int getCode() {
         return code;
     }
@@ -30,6 +30,9 @@ package com.hbm.devices.scan.configure;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 
 /**
  * Interface all multicast sender have to implement.
@@ -44,6 +47,46 @@ public interface MulticastSender extends Closeable {
      */
     void sendMessage(String message) throws IOException;
 
+    /**
+     * Sends a multicast message which is already encoded as UTF-8.
+     *
+     * The buffer is reused by the caller after this method returned, so
+     * implementations must not keep a reference to it. The default
+     * implementation decodes the message and calls {@link
+     * #sendMessage(String)}.
+     *
+     * @param message The buffer holding the encoded JSON string.
+     * @param offset The offset of the message in the buffer.
+     * @param length The length of the message in bytes.
+     * @throws IOException if the underlying socket send fails.
+     *
+     * @since 2.3
+     */
+    default void sendMessage(byte[] message, int offset, int length) throws IOException {
+        sendMessage(new String(message, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a multicast message which is already encoded as UTF-8 only
+     * on some of the sender's interfaces.
+     *
+     * If none of the given interfaces belongs to the sender, the message
+     * is sent on all interfaces. The default implementation ignores the
+     * selection and calls {@link #sendMessage(byte[], int, int)}.
+     *
+     * @param message The buffer holding the encoded JSON string.
+     * @param offset The offset of the message in the buffer.
+     * @param length The length of the message in bytes.
+     * @param interfaces The interfaces the message shall be sent on.
+     * @throws IOException if the underlying socket send fails.
+     *
+     * @since 2.3
+     */
+    default void sendMessage(byte[] message, int offset, int length,
+        Collection<NetworkInterface> interfaces) throws IOException {
+        sendMessage(message, offset, length);
+    }
+
     /**
      * Closes the multicast sender.
      */
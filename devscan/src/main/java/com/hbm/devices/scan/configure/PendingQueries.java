@@ -0,0 +1,118 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent table of the queries awaiting a response.
+ * <p>
+ * Queries with an id from the service's {@link QueryIdGenerator} are
+ * stored in an array slot indexed by their sequence number, so looking
+ * up a response neither hashes nor compares the id string. Queries with
+ * foreign ids, or whose slot is still taken by an older query, are kept
+ * in a {@link ConcurrentHashMap}. All operations are lock-free; {@link
+ * #remove(String, ConfigQuery)} succeeds for exactly one caller.
+ *
+ * @since 2.3
+ */
+final class PendingQueries {
+
+    static final int DEFAULT_SLOTS = 1024;
+
+    private final QueryIdGenerator ids;
+    private final AtomicReferenceArray<ConfigQuery> slots;
+    private final int mask;
+    private final Map<String, ConfigQuery> others;
+    private final AtomicInteger slotsUsed;
+
+    PendingQueries(QueryIdGenerator ids) {
+        this(ids, DEFAULT_SLOTS);
+    }
+
+    PendingQueries(QueryIdGenerator ids, int slotCount) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("slotCount must be a power of 2");
+        }
+        this.ids = ids;
+        slots = new AtomicReferenceArray<>(slotCount);
+        mask = slotCount - 1;
+        others = new ConcurrentHashMap<>();
+        slotsUsed = new AtomicInteger();
+    }
+
+    void put(ConfigQuery query) {
+        final long sequence = query.getSequence();
+        if (sequence >= 0 && slots.compareAndSet(index(sequence), null, query)) {
+            slotsUsed.incrementAndGet();
+            return;
+        }
+        others.put(query.getQueryID(), query);
+    }
+
+    ConfigQuery get(String queryID) {
+        final long sequence = ids.sequenceOf(queryID);
+        if (sequence >= 0) {
+            final ConfigQuery query = slots.get(index(sequence));
+            if (query != null && query.getSequence() == sequence) {
+                return query;
+            }
+        }
+        return others.get(queryID);
+    }
+
+    boolean remove(String queryID, ConfigQuery query) {
+        final long sequence = query.getSequence();
+        if (sequence >= 0 && slots.compareAndSet(index(sequence), query, null)) {
+            slotsUsed.decrementAndGet();
+            return true;
+        }
+        return others.remove(queryID, query);
+    }
+
+    boolean isEmpty() {
+        return slotsUsed.get() == 0 && others.isEmpty();
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.getAndSet(i, null) != null) {
+                slotsUsed.decrementAndGet();
+            }
+        }
+        others.clear();
+    }
+
+    private int index(long sequence) {
+        return (int)sequence & mask;
+    }
+}
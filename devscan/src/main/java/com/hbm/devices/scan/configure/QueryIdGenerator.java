@@ -0,0 +1,85 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates query ids of the form {@code <prefix>-<sequence>}.
+ * <p>
+ * The prefix is drawn once per generator from a non-blocking random
+ * source, the sequence is a hexadecimal counter. So creating an id
+ * never waits for entropy, and ids from different generators only
+ * collide if their 64 bit prefixes do.
+ *
+ * @since 2.3
+ */
+final class QueryIdGenerator {
+
+    private static final int MAX_SEQUENCE_DIGITS = 15;
+
+    private final String prefix;
+    private final AtomicLong counter;
+
+    QueryIdGenerator() {
+        this(Long.toHexString(ThreadLocalRandom.current().nextLong()));
+    }
+
+    QueryIdGenerator(String prefix) {
+        this.prefix = prefix + '-';
+        counter = new AtomicLong();
+    }
+
+    String next() {
+        return prefix + Long.toHexString(counter.incrementAndGet());
+    }
+
+    /**
+     * @param queryID the id to be inspected.
+     * @return the sequence number of an id created by this generator,
+     * or -1 if the id was not created by this generator.
+     */
+    long sequenceOf(String queryID) {
+        final int length = queryID.length();
+        final int start = prefix.length();
+        if (length <= start || length - start > MAX_SEQUENCE_DIGITS || !queryID.startsWith(prefix)) {
+            return -1;
+        }
+        long sequence = 0;
+        for (int i = start; i < length; i++) {
+            final int digit = Character.digit(queryID.charAt(i), 16);
+            if (digit < 0 || (i == start && digit == 0)) {
+                return -1;
+            }
+            sequence = (sequence << 4) | digit;
+        }
+        return sequence;
+    }
+}
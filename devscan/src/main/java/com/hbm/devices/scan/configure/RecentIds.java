@@ -0,0 +1,82 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded set of the most recently added ids.
+ * <p>
+ * The ids are kept in a ring, when it is full the oldest id is evicted.
+ * All operations are lock-free. Concurrent additions may evict slightly
+ * out of order, which is fine for detecting duplicates.
+ *
+ * @since 2.3
+ */
+final class RecentIds {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final AtomicReferenceArray<String> ring;
+    private final int mask;
+    private final AtomicInteger next;
+    private final Set<String> ids;
+
+    RecentIds() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    RecentIds(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2");
+        }
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        next = new AtomicInteger();
+        ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
+    void add(String id) {
+        if (!ids.add(id)) {
+            return;
+        }
+        final String evicted = ring.getAndSet(next.getAndIncrement() & mask, id);
+        if (evicted != null) {
+            ids.remove(evicted);
+        }
+    }
+
+    boolean contains(String id) {
+        return ids.contains(id);
+    }
+}
@@ -54,6 +54,13 @@ public final class Response extends JsonRpc {
         super("response");
     }
 
+    Response(String responseID, String result, ErrorObject error) {
+        this();
+        this.responseID = responseID;
+        this.result = result;
+        this.error = error;
+    }
+
     public String getResult() {
         return result;
     }
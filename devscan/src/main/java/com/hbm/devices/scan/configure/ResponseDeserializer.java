@@ -28,21 +28,22 @@
 
 package com.hbm.devices.scan.configure;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.google.common.base.Predicate;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
-import com.hbm.devices.scan.JsonRpc;
 import com.hbm.devices.scan.ScanConstants;
 
 /**
@@ -52,12 +53,22 @@ import com.hbm.devices.scan.ScanConstants;
  * The whole class is designed as a best effort service. So invalid JSON messages, or messages that
  * do not conform to the HBM network discovery and configuration protocol are simply ignored. Users
  * of this class will <em>not</em> get any error messages or exceptions.
+ * <p>
+ * Responses are read in a single pass by a streaming type adapter. The
+ * received message itself is stored as JSON string of the response.
+ * <p>
+ * If {@link ConfigurationService}s are attached, the id of each message is
+ * extracted with a streaming reader before the message is parsed. Messages
+ * whose id is not awaited by any attached service, for instance requests
+ * and responses of other configurators on the same multicast group, are
+ * dropped without building an object tree.
  *
  * @since 1.0
  */
 public final class ResponseDeserializer extends Observable implements Observer {
 
     private final Gson gson;
+    private final List<Predicate<String>> idFilters;
     private static final Logger LOGGER = Logger.getLogger(ScanConstants.LOGGER_NAME);
 
     /**
@@ -67,18 +78,23 @@ public final class ResponseDeserializer extends Observable implements Observer {
         super();
 
         final GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapter(JsonRpc.class, new JsonRpcDeserializer());
+        builder.registerTypeAdapter(Response.class, new ResponseTypeAdapter());
         gson = builder.create();
+        idFilters = new CopyOnWriteArrayList<>();
     }
 
     @Override
     public void update(Observable observable, Object arg) {
         final String message = (String)arg;
+        if (!idFilters.isEmpty() && !isAwaited(message)) {
+            return;
+        }
         try {
-            final JsonRpc json = gson.fromJson(message, JsonRpc.class);
-            if (json != null) {
+            final Response response = gson.fromJson(message, Response.class);
+            if (response != null) {
+                response.setJSONString(message);
                 setChanged();
-                notifyObservers(json);
+                notifyObservers(response);
             }
         } catch (JsonSyntaxException e) {
             /*
@@ -89,30 +105,62 @@ public final class ResponseDeserializer extends Observable implements Observer {
         }
     }
 
-    private static final class JsonRpcDeserializer implements JsonDeserializer<JsonRpc> {
+    void addIdFilter(Predicate<String> filter) {
+        idFilters.add(filter);
+    }
+
+    void removeIdFilter(Predicate<String> filter) {
+        idFilters.remove(filter);
+    }
+
+    private boolean isAwaited(String message) {
+        final String identifier;
+        try {
+            identifier = extractId(message);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            /*
+             * Let the full parser deal with messages that are not valid JSON.
+             */
+            return true;
+        }
+        if (identifier == null) {
+            return false;
+        }
+        for (final Predicate<String> filter : idFilters) {
+            if (filter.apply(identifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        JsonRpcDeserializer() {
-            // This constructor is only use by the outer class.
+    /**
+     * Returns the top level "id" of a JSON object the same way Gson
+     * deserializes it into a String, or null if there is none.
+     */
+    static String extractId(String message) throws IOException {
+        if (message == null) {
+            return null;
+        }
+        final JsonReader reader = new JsonReader(new StringReader(message));
+        reader.setLenient(true);
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
         }
-    
-        @Override
-        public JsonRpc deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
-    
-            JsonRpc rpcObject = null;
-            final JsonObject jsonObject = json.getAsJsonObject();
-            
-            final JsonElement identifier = jsonObject.get("id");
-            if (identifier != null) {
-                final String value = identifier.toString();
-                if ((!"\"\"".equals(value)) && 
-                    (jsonObject.has("result") ^ jsonObject.has("error"))) {
-                    
-                    rpcObject = context.deserialize(json, Response.class);
-                    rpcObject.setJSONString(jsonObject.toString());
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("id".equals(reader.nextName())) {
+                final JsonToken token = reader.peek();
+                if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    return reader.nextString();
                 }
+                if (token == JsonToken.BOOLEAN) {
+                    return Boolean.toString(reader.nextBoolean());
+                }
+                return null;
             }
-            return rpcObject;
+            reader.skipValue();
         }
+        return null;
     }
 }
-
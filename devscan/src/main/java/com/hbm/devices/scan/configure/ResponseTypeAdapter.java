@@ -0,0 +1,180 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import java.io.IOException;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads {@link Response} objects in a single pass over the JSON
+ * stream, without building a {@link com.google.gson.JsonElement} tree,
+ * and writes them back in JSON-RPC 2.0 form.
+ * <p>
+ * Messages which are no valid response (no or an empty id, neither or
+ * both of result and error) are read as null.
+ *
+ * @since 2.3
+ */
+final class ResponseTypeAdapter extends TypeAdapter<Response> {
+
+    @Override
+    public Response read(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String responseID = null;
+        String result = null;
+        ErrorObject error = null;
+        boolean hasResult = false;
+        boolean hasError = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+            case "id":
+                responseID = readString(reader);
+                break;
+            case "result":
+                hasResult = true;
+                result = readString(reader);
+                break;
+            case "error":
+                hasError = true;
+                error = readError(reader);
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+
+        if (responseID == null || responseID.length() == 0 || hasResult == hasError) {
+            return null;
+        }
+        return new Response(responseID, result, error);
+    }
+
+    /*
+     * Writes a response as specified by JSON-RPC 2.0, i.e. with either a
+     * result or an error member.
+     */
+    @Override
+    public void write(JsonWriter writer, Response response) throws IOException {
+        if (response == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("jsonrpc").value(response.getJsonrpc());
+        writer.name("id").value(response.getId());
+        final ErrorObject error = response.getError();
+        if (error == null) {
+            writer.name("result").value(response.getResult());
+        } else {
+            writer.name("error").beginObject();
+            writer.name("code").value(error.getCode());
+            writer.name("message").value(error.getMessage());
+            if (error.getData() != null) {
+                writer.name("data").value(error.getData());
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    private static ErrorObject readError(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        int code = 0;
+        String message = null;
+        String data = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+            case "code":
+                code = readInt(reader);
+                break;
+            case "message":
+                message = readString(reader);
+                break;
+            case "data":
+                data = readString(reader);
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+        return new ErrorObject(code, message, data);
+    }
+
+    /*
+     * Follows Gson's conversions for String fields: numbers and
+     * booleans are taken literally, objects and arrays are rejected.
+     */
+    private static String readString(JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        switch (token) {
+        case NULL:
+            reader.nextNull();
+            return null;
+        case BOOLEAN:
+            return Boolean.toString(reader.nextBoolean());
+        case STRING:
+        case NUMBER:
+            return reader.nextString();
+        default:
+            throw new JsonSyntaxException("Expected a string but was " + token);
+        }
+    }
+
+    private static int readInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        try {
+            return reader.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+}
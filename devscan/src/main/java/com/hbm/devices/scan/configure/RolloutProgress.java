@@ -0,0 +1,118 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+/**
+ * Immutable snapshot of the state of a {@link ConfigurationRollout}.
+ *
+ * @since 2.3
+ *
+ */
+public final class RolloutProgress {
+
+    private final int total;
+    private final int succeeded;
+    private final int failed;
+    private final int timedOut;
+    private final int inFlight;
+    private final int retries;
+
+    RolloutProgress(int total, int succeeded, int failed, int timedOut, int inFlight, int retries) {
+        this.total = total;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.timedOut = timedOut;
+        this.inFlight = inFlight;
+        this.retries = retries;
+    }
+
+    /**
+     * @return the number of configurations in the rollout.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of devices which acknowledged the configuration.
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return the number of devices which answered with an error or
+     * whose query could not be sent.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of devices which did not answer, even after
+     * all retries.
+     */
+    public int getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return the number of queries currently awaiting a response.
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of retries issued so far.
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the number of devices which are done.
+     */
+    public int getCompleted() {
+        return succeeded + failed + timedOut;
+    }
+
+    /**
+     * @return true if all devices of the rollout are done.
+     */
+    public boolean isFinished() {
+        return getCompleted() == total;
+    }
+
+    @Override
+    public String toString() {
+        return getCompleted() + "/" + total + " done (succeeded: " + succeeded + ", failed: " + failed
+            + ", timed out: " + timedOut + ", in flight: " + inFlight + ", retries: " + retries + ")";
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+/**
+ * Estimates the retransmission timeout for queries to a single device
+ * from the observed response times, following the algorithm of RFC 6298.
+ *
+ * @since 2.3
+ */
+final class RttEstimator {
+
+    static final long INITIAL_RTO = 1000;
+    static final long MIN_RTO = 200;
+    static final long MAX_RTO = 10000;
+
+    private static final double ALPHA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+    private static final int K = 4;
+
+    private double srtt;
+    private double rttvar;
+    private long rto;
+    private boolean measured;
+
+    RttEstimator() {
+        rto = INITIAL_RTO;
+    }
+
+    /**
+     * Adds a response time measured for a query which was sent only
+     * once.
+     *
+     * @param rtt the response time in ms.
+     */
+    synchronized void addSample(long rtt) {
+        if (measured) {
+            rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rtt);
+            srtt = (1 - ALPHA) * srtt + ALPHA * rtt;
+        } else {
+            srtt = rtt;
+            rttvar = rtt / 2.0;
+            measured = true;
+        }
+        final long value = (long)Math.ceil(srtt + K * rttvar);
+        rto = Math.min(MAX_RTO, Math.max(MIN_RTO, value));
+    }
+
+    /**
+     * Doubles the retransmission timeout after a query to the device was
+     * retransmitted or timed out (RFC 6298, 5.5). The backed off value
+     * is kept until the next valid sample, so a device answering slower
+     * than estimated is given more time by the following queries.
+     */
+    synchronized void backoff() {
+        rto = Math.min(MAX_RTO, rto * 2);
+    }
+
+    synchronized long getRto() {
+        return rto;
+    }
+}
@@ -31,6 +31,8 @@ import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Observable;
@@ -428,6 +430,24 @@ public class AnnounceDeserializerTest {
         assertTrue(announce.getParams().getServices().isEmpty(), "Service list is not empty when service object is string!");
     }
 
+    @Test
+    public void repetitiveStringsAreShared() {
+        fsmmr.emitSingleCorrectMessage();
+        Announce first = announce;
+        fsmmr.emitSingleCorrentMessageDifferentIP();
+        Announce second = announce;
+        assertNotSame(first, second, "Second announce not parsed");
+
+        Device firstDevice = first.getParams().getDevice();
+        Device secondDevice = second.getParams().getDevice();
+        assertSame(firstDevice.getFamilyType(), secondDevice.getFamilyType(), "Family type not interned");
+        assertSame(firstDevice.getFirmwareVersion(), secondDevice.getFirmwareVersion(), "Firmware version not interned");
+        assertSame(first.getParams().getNetSettings().getInterface().getName(),
+            second.getParams().getNetSettings().getInterface().getName(), "Interface name not interned");
+        assertSame(first.getParams().getServices().get(0).getType(),
+            second.getParams().getServices().get(0).getType(), "Service type not interned");
+    }
+
     private static IPEntry findIpInList(Iterable<IPEntry> list, String ip) {
         try {
             InetAddress address = InetAddress.getByName(ip);
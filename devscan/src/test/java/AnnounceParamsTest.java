@@ -29,8 +29,10 @@
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Observable;
 import java.util.Observer;
@@ -90,4 +92,19 @@ public class AnnounceParamsTest {
         fsmmr.emitVersion2();
         assertNull(announce, "Got Announce object form message version 2");
     }
+
+    @Test
+    public void hasServiceType() {
+        fsmmr.emitSingleCorrectMessage();
+        assertNotNull(announce, "Got no Announce object after correct message");
+        assertTrue(announce.getParams().hasServiceType("http"), "Announced service not found");
+        assertFalse(announce.getParams().hasServiceType("gopher"), "Service found that was not announced");
+    }
+
+    @Test
+    public void hasNoServiceType() {
+        fsmmr.emitMissingServiceMessage();
+        assertNotNull(announce, "Got no Announce object after message without services");
+        assertFalse(announce.getParams().hasServiceType("http"), "Service found in announce without services");
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Observable;
+import java.util.Observer;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+import com.hbm.devices.scan.announce.Announce;
+import com.hbm.devices.scan.announce.AnnounceDeserializer;
+import com.hbm.devices.scan.announce.filter.AndMatch;
+import com.hbm.devices.scan.announce.filter.FamilytypeMatch;
+import com.hbm.devices.scan.announce.filter.Matcher;
+import com.hbm.devices.scan.announce.filter.NotMatch;
+import com.hbm.devices.scan.announce.filter.OrMatch;
+import com.hbm.devices.scan.announce.filter.ServicetypeMatch;
+import com.hbm.devices.scan.announce.filter.UUIDMatch;
+
+public class CompositeMatchTest {
+
+    private Announce announce;
+
+    @BeforeEach
+    public void setUp() {
+        FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+        AnnounceDeserializer parser = new AnnounceDeserializer();
+        fsmmr.addObserver(parser);
+        parser.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                announce = (Announce)arg;
+            }
+        });
+        fsmmr.emitSingleCorrectMessage();
+        assertNotNull(announce, "Didn't got a Announce object");
+    }
+
+    @Test
+    public void andMatch() {
+        Matcher matcher = new AndMatch(new UUIDMatch("0009E500123A"), new FamilytypeMatch("QuantumX"),
+            new ServicetypeMatch("http"));
+        assertTrue(matcher.match(announce), "AndMatch did not match");
+
+        matcher = new AndMatch(new UUIDMatch("0009E500123A"), new ServicetypeMatch("ftp"));
+        assertFalse(matcher.match(announce), "AndMatch matched although service is missing");
+    }
+
+    @Test
+    public void orMatch() {
+        Matcher matcher = new OrMatch(new UUIDMatch("fred"), new FamilytypeMatch("QuantumX"));
+        assertTrue(matcher.match(announce), "OrMatch did not match");
+
+        matcher = new OrMatch(new UUIDMatch("fred"), new FamilytypeMatch("PMX"));
+        assertFalse(matcher.match(announce), "OrMatch matched without any matching matcher");
+    }
+
+    @Test
+    public void notMatch() {
+        assertFalse(new NotMatch(new UUIDMatch("0009E500123A")).match(announce), "NotMatch did not invert");
+        assertTrue(new NotMatch(new UUIDMatch("fred")).match(announce), "NotMatch did not invert");
+    }
+
+    @Test
+    public void nestedMatch() {
+        Matcher matcher = new AndMatch(new FamilytypeMatch("QuantumX"),
+            new NotMatch(new OrMatch(new UUIDMatch("fred"), new ServicetypeMatch("ftp"))));
+        assertTrue(matcher.match(announce), "nested matchers did not match");
+    }
+
+    @Test
+    public void cheapMatchersFirst() {
+        Matcher service = new ServicetypeMatch("http");
+        Matcher uuid = new UUIDMatch("0009E500123A");
+        Matcher family = new FamilytypeMatch("QuantumX");
+        AndMatch matcher = new AndMatch(service, uuid, family);
+        Matcher[] ordered = matcher.getMatchers();
+        assertSame(uuid, ordered[0], "UUID check is not evaluated first");
+        assertSame(family, ordered[1], "family type check is not evaluated second");
+        assertSame(service, ordered[2], "service scan is not evaluated last");
+        assertArrayEquals(new String[] {"0009E500123A", "QuantumX", "http"}, matcher.getFilterStrings(),
+            "filter strings for AndMatch are not correct");
+    }
+
+    @Test
+    public void shortCircuit() {
+        CountingMatcher counting = new CountingMatcher();
+        new AndMatch(counting, new UUIDMatch("fred")).match(announce);
+        assertEquals(0, counting.calls, "AndMatch did not stop at first failing matcher");
+        new OrMatch(counting, new UUIDMatch("0009E500123A")).match(announce);
+        assertEquals(0, counting.calls, "OrMatch did not stop at first matching matcher");
+    }
+
+    @Test
+    public void illegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new AndMatch();
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new OrMatch(new UUIDMatch("fred"), null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new NotMatch(null);
+        });
+    }
+
+    private static class CountingMatcher implements Matcher {
+        private int calls;
+
+        @Override
+        public boolean match(Announce announce) {
+            calls++;
+            return true;
+        }
+
+        @Override
+        public String[] getFilterStrings() {
+            return new String[0];
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.net.NetworkInterface;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.Collection;
+
+import com.hbm.devices.scan.configure.ConfigurationChannelSender;
+import com.hbm.devices.scan.ScanInterfaces;
+
+public class ConfigurationChannelSenderTest {
+
+    @Test
+    public void createWithNoInterfaces() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            ConfigurationChannelSender sender = new ConfigurationChannelSender(null);
+            assertNotNull(sender, "Could not instantiate ConfigurationChannelSender");
+        });
+    }
+
+    @Test
+    public void createAndClose() {
+        try {
+            final Collection<NetworkInterface> sendInterfaces = new ScanInterfaces().getInterfaces();
+            ConfigurationChannelSender sender = new ConfigurationChannelSender(sendInterfaces);
+            sender.close();
+            assertTrue(sender.isClosed(), "ConfigurationChannelSender was not closed");
+        } catch (IOException e) {
+            fail("Can't instantiate ConfigurationChannelSender object");
+        }
+    }
+
+    @Test
+    public void createAndDoubleClose() {
+        try {
+            final Collection<NetworkInterface> sendInterfaces = new ScanInterfaces().getInterfaces();
+            ConfigurationChannelSender sender = new ConfigurationChannelSender(sendInterfaces);
+            sender.close();
+            assertTrue(sender.isClosed(), "ConfigurationChannelSender was not closed");
+            sender.close();
+            assertTrue(sender.isClosed(), "Second close failed");
+        } catch (IOException e) {
+            fail("Can't instantiate ConfigurationChannelSender object");
+        }
+    }
+    @Test
+    public void sendMessageTest() {
+        try {
+            final Collection<NetworkInterface> sendInterfaces = new ScanInterfaces().getInterfaces();
+            ConfigurationChannelSender sender = new ConfigurationChannelSender(sendInterfaces);
+            sender.sendMessage("hello world");
+            sender.close();
+            assertTrue(sender.isClosed(), "ConfigurationChannelSender was not closed");
+        } catch (IOException e) {
+            fail("Can't instantiate ConfigurationChannelSender object or send message");
+        }
+    }
+
+    @Test
+    public void sendMessageParallelTest() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Collection<NetworkInterface> sendInterfaces = new ScanInterfaces().getInterfaces();
+            ConfigurationChannelSender sender = new ConfigurationChannelSender(sendInterfaces, executor);
+            byte[] message = new byte[2000];
+            sender.sendMessage("hello world");
+            sender.sendMessage(message, 10, message.length - 10);
+            sender.close();
+            assertTrue(sender.isClosed(), "ConfigurationChannelSender was not closed");
+        } catch (IOException e) {
+            fail("Can't instantiate ConfigurationChannelSender object or send message");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
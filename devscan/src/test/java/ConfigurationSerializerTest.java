@@ -45,6 +45,9 @@ import com.hbm.devices.scan.configure.ConfigurationInterface;
 import com.hbm.devices.scan.configure.ConfigurationInterface.Method;
 import com.hbm.devices.scan.configure.ConfigurationNetSettings;
 import com.hbm.devices.scan.configure.ConfigurationParams;
+import com.hbm.devices.scan.configure.ConfigurationDefaultGateway;
+import com.hbm.devices.scan.configure.IPv4EntryManual;
+import com.google.gson.Gson;
 
 public class ConfigurationSerializerTest {
 
@@ -92,4 +95,21 @@ public class ConfigurationSerializerTest {
         cs.close();
         assertTrue(cs.isClosed(), "Sender was not closed");
     }
+
+    @Test
+    public void streamingMatchesReflectiveSerialization() throws IOException {
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationInterface iface = new ConfigurationInterface("eth0", Method.MANUAL, new IPv4EntryManual("172.19.1.2", "255.255.0.0"));
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(iface, new ConfigurationDefaultGateway("172.19.0.1"));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings, 3);
+        ConfigurationRequest conf = new ConfigurationRequest(configParams, "\u00e4\"quoted\"");
+
+        cs.sendConfiguration(conf);
+        JsonElement expected = parser.parse(new Gson().toJson(conf));
+        assertEquals(expected, parser.parse(fs.getLastSent()), "Streaming and reflective serialization differ");
+
+        ConfigurationRequest second = new ConfigurationRequest(new ConfigurationParams(device, new ConfigurationNetSettings(new ConfigurationInterface("eth1", Method.DHCP))), "2");
+        cs.sendConfiguration(second);
+        assertEquals(parser.parse(new Gson().toJson(second)), parser.parse(fs.getLastSent()), "Reused buffer corrupted message");
+    }
 }
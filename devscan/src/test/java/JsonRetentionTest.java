@@ -0,0 +1,173 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.google.gson.JsonParser;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+import com.hbm.devices.scan.announce.Announce;
+import com.hbm.devices.scan.announce.AnnounceDeserializer;
+import com.hbm.devices.scan.announce.DeviceMonitor;
+import com.hbm.devices.scan.announce.JsonRetention;
+import com.hbm.devices.scan.announce.NewDeviceEvent;
+import com.hbm.devices.scan.announce.UpdateDeviceEvent;
+
+public class JsonRetentionTest {
+
+    @Test
+    public void compressedJsonIsRestored() {
+        List<Announce> full = parse(JsonRetention.FULL);
+        List<Announce> compressed = parse(JsonRetention.COMPRESSED);
+        assertEquals(full.get(0).getJSONString(), compressed.get(0).getJSONString(),
+            "Inflated JSON differs from original");
+        assertEquals(full.get(0), compressed.get(0), "Compressed announce not equal to original");
+        assertEquals(full.get(0).hashCode(), compressed.get(0).hashCode(), "Hash codes differ");
+    }
+
+    @Test
+    public void droppedJsonKeepsEquality() {
+        List<Announce> full = parse(JsonRetention.FULL);
+        List<Announce> lean = parse(JsonRetention.NONE);
+        assertEquals(full.get(0), lean.get(0), "Lean announce not equal to original");
+        assertEquals(full.get(0).hashCode(), lean.get(0).hashCode(), "Hash codes differ");
+        assertNotEquals(lean.get(0), lean.get(2), "Different announces are equal");
+        assertNotNull(new JsonParser().parse(lean.get(0).getJSONString()), "No JSON rebuilt");
+        assertEquals(full.get(0).getParams().getDevice().getUuid(),
+            new JsonParser().parse(lean.get(0).getJSONString()).getAsJsonObject().getAsJsonObject("params")
+                .getAsJsonObject("device").get("uuid").getAsString(), "Rebuilt JSON lost the UUID");
+    }
+
+    @Test
+    public void leanCacheHit() {
+        List<Announce> lean = parse(JsonRetention.NONE);
+        assertSame(lean.get(0), lean.get(1), "Repeated message not served from cache");
+    }
+
+    @Test
+    public void internalFieldsNotReadFromMessage() {
+        String hash = "\"contentHash\":[1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16]";
+        for (JsonRetention retention : JsonRetention.values()) {
+            final List<Object> events = new ArrayList<>();
+            FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+            AnnounceDeserializer parser = new AnnounceDeserializer(retention);
+            DeviceMonitor monitor = new DeviceMonitor();
+            fsmmr.addObserver(parser);
+            parser.addObserver(monitor);
+            monitor.addObserver(new Observer() {
+                @Override
+                public void update(Observable o, Object arg) {
+                    events.add(arg);
+                }
+            });
+            fsmmr.emitString(message("device1", hash));
+            fsmmr.emitString(message("device2", hash));
+            assertEquals(2, events.size(), "Wrong number of events with " + retention);
+            assertTrue(events.get(0) instanceof NewDeviceEvent, "No new device event with " + retention);
+            assertTrue(events.get(1) instanceof UpdateDeviceEvent, "Changed device hidden with " + retention);
+            UpdateDeviceEvent update = (UpdateDeviceEvent) events.get(1);
+            assertNotEquals(update.getNewAnnounce(), update.getOldAnnounce(),
+                "Injected content hash used with " + retention);
+            monitor.close();
+
+            final List<Announce> announces = new ArrayList<>();
+            parser.deleteObserver(monitor);
+            parser.addObserver(new Observer() {
+                @Override
+                public void update(Observable o, Object arg) {
+                    announces.add((Announce) arg);
+                }
+            });
+            fsmmr.emitString(message("device3", "\"compressedJson\":[1,2,3]"));
+            assertNotNull(new JsonParser().parse(announces.get(0).getJSONString()), "No JSON with " + retention);
+        }
+    }
+
+    @Test
+    public void serializationKeepsEquality() throws IOException, ClassNotFoundException {
+        for (JsonRetention retention : JsonRetention.values()) {
+            Announce announce = parse(retention).get(0);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(announce);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                Announce copy = (Announce) in.readObject();
+                assertEquals(announce, copy, "Deserialized announce differs with " + retention);
+                assertEquals(announce.getJSONString(), copy.getJSONString(), "JSON differs with " + retention);
+            }
+        }
+    }
+
+    @Test
+    public void noRetention() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new AnnounceDeserializer(null);
+        });
+    }
+
+    private static String message(String name, String extra) {
+        return "{\"jsonrpc\":\"2.0\",\"method\":\"announce\"," + extra + ",\"params\":{\"apiVersion\":\"1.0\","
+            + "\"device\":{\"uuid\":\"0009E5000B39\",\"name\":\"" + name + "\"},"
+            + "\"netSettings\":{\"interface\":{\"name\":\"eth0\","
+            + "\"ipv4\":[{\"address\":\"172.19.190.171\",\"netmask\":\"255.255.0.0\"}]}}}}";
+    }
+
+    private static List<Announce> parse(JsonRetention retention) {
+        final List<Announce> announces = new ArrayList<>();
+        FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+        AnnounceDeserializer parser = new AnnounceDeserializer(retention);
+        fsmmr.addObserver(parser);
+        parser.addObserver(new Observer() {
+            @Override
+            public void update(Observable o, Object arg) {
+                announces.add((Announce) arg);
+            }
+        });
+        fsmmr.emitSingleCorrectMessage();
+        fsmmr.emitSingleCorrectMessage();
+        fsmmr.emitSingleCorrentMessageDifferentIP();
+        return announces;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Observable;
+import java.util.Observer;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+import com.hbm.devices.scan.announce.Announce;
+import com.hbm.devices.scan.announce.AnnounceDeserializer;
+import com.hbm.devices.scan.announce.filter.AndMatch;
+import com.hbm.devices.scan.announce.filter.FamilytypeMatch;
+import com.hbm.devices.scan.announce.filter.Matcher;
+import com.hbm.devices.scan.announce.filter.NotMatch;
+import com.hbm.devices.scan.announce.filter.PreParseFilter;
+import com.hbm.devices.scan.announce.filter.ServicetypeMatch;
+import com.hbm.devices.scan.announce.filter.UUIDMatch;
+
+public class PreParseFilterTest {
+
+    private Announce announce;
+    private int forwarded;
+    private FakeMessageReceiver fsmmr;
+
+    @BeforeEach
+    public void setUp() {
+        announce = null;
+        forwarded = 0;
+        fsmmr = new FakeMessageReceiver();
+    }
+
+    private void connect(Matcher matcher) {
+        PreParseFilter filter = new PreParseFilter(matcher);
+        AnnounceDeserializer parser = new AnnounceDeserializer();
+        fsmmr.addObserver(filter);
+        filter.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                forwarded++;
+            }
+        });
+        filter.addObserver(parser);
+        parser.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                announce = (Announce)arg;
+            }
+        });
+    }
+
+    @Test
+    public void matchingUUID() {
+        connect(new UUIDMatch("fred", "0009E500123A"));
+        fsmmr.emitSingleCorrectMessage();
+        assertEquals(1, forwarded, "Matching message was not forwarded");
+        assertNotNull(announce, "Didn't got a Announce object");
+    }
+
+    @Test
+    public void notMatchingUUID() {
+        connect(new UUIDMatch("fred"));
+        fsmmr.emitSingleCorrectMessage();
+        assertEquals(0, forwarded, "Not matching message was forwarded");
+        assertNull(announce, "Got Announce object despite not matching");
+    }
+
+    @Test
+    public void notMatchingFamilyType() {
+        connect(new AndMatch(new FamilytypeMatch("QuantumX"), new NotMatch(new UUIDMatch("0009E500123A"))));
+        fsmmr.emitSingleCorrectMessage();
+        assertEquals(0, forwarded, "Not matching message was forwarded");
+    }
+
+    @Test
+    public void undecidedMatcherIsForwarded() {
+        connect(new AndMatch(new FamilytypeMatch("QuantumX"), new ServicetypeMatch("ftp")));
+        fsmmr.emitSingleCorrectMessage();
+        assertEquals(1, forwarded, "Message was dropped although matcher can't be decided before parsing");
+    }
+
+    @Test
+    public void invalidMessagesAreForwarded() {
+        connect(new UUIDMatch("0009E500123A"));
+        fsmmr.emitInvalidJsonMessage();
+        fsmmr.emitNull();
+        assertEquals(2, forwarded, "Invalid messages were not left to the deserializer");
+        assertNull(announce, "Got Announce object from invalid message");
+    }
+
+    @Test
+    public void missingUUIDIsDropped() {
+        connect(new UUIDMatch("0009E500123A"));
+        fsmmr.emitMissingDeviceUuidMessage();
+        assertEquals(0, forwarded, "Message without device UUID was forwarded");
+    }
+}
@@ -134,4 +134,26 @@ public class ResponseDeserializerTest {
         assertEquals(checkError.getMessage(), errorMessage, "error message not equal");
         assertEquals(checkError.getData(), errorData, "error data not equal");
     }
+
+    @Test
+    public void parseNumericIdAndResult() {
+        final String message = "{\"jsonrpc\":\"2.0\", \"id\":17, \"result\":0, \"extra\":[1,{\"a\":2}]}";
+        fsmmr.emitString(message);
+        assertNotNull(res, "No result object after response with numeric id");
+        assertEquals("17", res.getId(), "Numeric id not converted");
+        assertEquals("0", res.getResult(), "Numeric result not converted");
+        assertEquals(message, res.getJSONString(), "Received message not kept as JSON string");
+    }
+
+    @Test
+    public void parseObjectIdMessage() {
+        fsmmr.emitString("{\"jsonrpc\":\"2.0\",\"id\":{\"a\":1},\"result\":0}");
+        assertNull(res, "Got result object from response with object id");
+    }
+
+    @Test
+    public void parseArrayMessage() {
+        fsmmr.emitString("[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":0}]");
+        assertNull(res, "Got result object from JSON array");
+    }
 }
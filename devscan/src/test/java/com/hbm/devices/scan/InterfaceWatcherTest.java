@@ -0,0 +1,116 @@
+package com.hbm.devices.scan;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Predicates;
+
+public class InterfaceWatcherTest {
+
+    private InterfaceChangeEvent event;
+    private List<NetworkInterface> allInterfaces;
+
+    @BeforeEach
+    public void setUp() throws SocketException {
+        event = null;
+        allInterfaces = Collections.list(NetworkInterface.getNetworkInterfaces());
+    }
+
+    private InterfaceWatcher createWatcher(List<NetworkInterface> initial) {
+        InterfaceWatcher watcher = new InterfaceWatcher(Predicates.<NetworkInterface>alwaysTrue(), initial);
+        watcher.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                event = (InterfaceChangeEvent) arg;
+            }
+        });
+        return watcher;
+    }
+
+    @Test
+    public void noChange() {
+        InterfaceWatcher watcher = createWatcher(allInterfaces);
+        watcher.update(allInterfaces);
+        assertNull(event, "Got event although interfaces did not change");
+        watcher.close();
+    }
+
+    @Test
+    public void interfaceAdded() {
+        InterfaceWatcher watcher = createWatcher(Collections.<NetworkInterface>emptyList());
+        watcher.update(allInterfaces);
+        assertNotNull(event, "No event for new interfaces");
+        assertEquals(allInterfaces.size(), event.getAddedInterfaces().size(), "Wrong number of added interfaces");
+        assertTrue(event.getRemovedInterfaces().isEmpty(), "Got removed interfaces");
+        assertEquals(allInterfaces, event.getInterfaces(), "Current interfaces not reported");
+        watcher.close();
+    }
+
+    @Test
+    public void interfaceRemoved() {
+        InterfaceWatcher watcher = createWatcher(allInterfaces);
+        watcher.update(Collections.<NetworkInterface>emptyList());
+        assertNotNull(event, "No event for removed interfaces");
+        assertEquals(allInterfaces.size(), event.getRemovedInterfaces().size(), "Wrong number of removed interfaces");
+        assertTrue(event.getAddedInterfaces().isEmpty(), "Got added interfaces");
+        assertTrue(watcher.getInterfaces().isEmpty(), "Interfaces not updated");
+        watcher.close();
+    }
+
+    @Test
+    public void noEventAfterClose() {
+        InterfaceWatcher watcher = createWatcher(Collections.<NetworkInterface>emptyList());
+        watcher.close();
+        assertTrue(watcher.isClosed(), "Watcher was not closed");
+        watcher.update(allInterfaces);
+        assertNull(event, "Got event after close");
+    }
+
+    @Test
+    public void observerCallsBackFromOtherThread() throws InterruptedException {
+        final InterfaceWatcher watcher = new InterfaceWatcher(Predicates.<NetworkInterface>alwaysTrue(),
+            Collections.<NetworkInterface>emptyList());
+        final AtomicReference<Collection<NetworkInterface>> seen = new AtomicReference<>();
+        watcher.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                Thread reader = new Thread(new Runnable() {
+                    public void run() {
+                        seen.set(watcher.getInterfaces());
+                    }
+                });
+                reader.start();
+                try {
+                    reader.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        watcher.update(allInterfaces);
+        assertEquals(allInterfaces, seen.get(), "Observer blocked while reading interfaces");
+        watcher.close();
+    }
+
+    @Test
+    public void scanInterfaces() throws SocketException {
+        InterfaceWatcher watcher = new InterfaceWatcher();
+        assertNotNull(watcher.getInterfaces(), "No interfaces scanned");
+        watcher.close();
+        assertThrows(IllegalArgumentException.class, () -> {
+            new InterfaceWatcher(Predicates.<NetworkInterface>alwaysTrue(), 0);
+        });
+    }
+}
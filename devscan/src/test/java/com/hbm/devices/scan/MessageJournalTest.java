@@ -0,0 +1,175 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+public class MessageJournalTest {
+
+    private static final int ADDRESS_LENGTH_OFFSET = MessageJournal.HEADER_SIZE + Integer.BYTES + Long.BYTES;
+
+    private File file;
+    private List<String> messages;
+    private List<Long> timestamps;
+    private List<InetAddress> sources;
+    private List<Integer> ports;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = File.createTempFile("messages", ".journal");
+        file.delete();
+        messages = new ArrayList<>();
+        timestamps = new ArrayList<>();
+        sources = new ArrayList<>();
+        ports = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void appendAndReplay() throws IOException {
+        InetAddress source = InetAddress.getByName("172.19.1.2");
+        try (MessageJournal journal = new MessageJournal(file)) {
+            append(journal, 1000, source, "first");
+            append(journal, 2000, null, "second");
+        }
+        try (MessageJournal journal = new MessageJournal(file)) {
+            append(journal, 3000, InetAddress.getByName("fe80::1"), "third");
+        }
+
+        replay(new JournalMessageReceiver(file));
+        assertEquals(3, messages.size(), "Not all messages replayed");
+        assertEquals("first", messages.get(0), "Wrong message replayed");
+        assertEquals("second", messages.get(1), "Wrong message replayed");
+        assertEquals("third", messages.get(2), "Wrong message replayed");
+        assertEquals(Long.valueOf(1000), timestamps.get(0), "Wrong timestamp");
+        assertEquals(Long.valueOf(3000), timestamps.get(2), "Wrong timestamp");
+        assertEquals(source, sources.get(0), "Wrong source address");
+        assertNull(sources.get(1), "Source address invented");
+        assertEquals(InetAddress.getByName("fe80::1"), sources.get(2), "Wrong source address");
+        assertEquals(Integer.valueOf(30000), ports.get(0), "Wrong source port");
+    }
+
+    @Test
+    public void highSourcePort() throws IOException {
+        byte[] bytes = "message".getBytes(StandardCharsets.UTF_8);
+        try (MessageJournal journal = new MessageJournal(file)) {
+            journal.append(0, null, 65000, bytes, 0, bytes.length);
+        }
+        replay(new JournalMessageReceiver(file));
+        assertEquals(Integer.valueOf(65000), ports.get(0), "Wrong source port");
+    }
+
+    @Test
+    public void corruptedAddressLength() throws IOException {
+        try (MessageJournal journal = new MessageJournal(file)) {
+            append(journal, 0, InetAddress.getByName("172.19.1.2"), "first");
+            append(journal, 0, null, "second");
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(ADDRESS_LENGTH_OFFSET);
+            raf.write(16);
+        }
+        replay(new JournalMessageReceiver(file));
+        assertTrue(messages.isEmpty(), "Corrupted record replayed");
+    }
+
+    @Test
+    public void acceleratedReplay() throws IOException {
+        try (MessageJournal journal = new MessageJournal(file)) {
+            append(journal, 0, null, "first");
+            append(journal, 1000, null, "second");
+        }
+        long start = System.nanoTime();
+        replay(new JournalMessageReceiver(file, 10));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertEquals(2, messages.size(), "Not all messages replayed");
+        assertTrue(elapsedMillis >= 90, "Replay not delayed");
+        assertTrue(elapsedMillis < 1000, "Replay not accelerated");
+    }
+
+    @Test
+    public void largeJournal() throws IOException {
+        byte[] payload = new byte[60000];
+        try (MessageJournal journal = new MessageJournal(file)) {
+            for (int i = 0; i < 40; i++) {
+                journal.append(i, null, 0, payload, 0, payload.length);
+            }
+        }
+        replay(new JournalMessageReceiver(file));
+        assertEquals(40, messages.size(), "Not all messages replayed across chunks");
+    }
+
+    @Test
+    public void noJournal() throws IOException {
+        Files.write(file.toPath(), "no journal at all".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> {
+            new MessageJournal(file);
+        });
+    }
+
+    private static void append(MessageJournal journal, long timestamp, InetAddress source, String message)
+        throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        journal.append(timestamp, source, 30000, bytes, 0, bytes.length);
+    }
+
+    private void replay(final JournalMessageReceiver receiver) {
+        receiver.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                messages.add((String) arg);
+                timestamps.add(receiver.getTimestamp());
+                sources.add(receiver.getSource());
+                ports.add(receiver.getSourcePort());
+            }
+        });
+        receiver.run();
+        receiver.close();
+    }
+}
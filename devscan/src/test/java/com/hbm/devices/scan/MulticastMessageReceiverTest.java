@@ -0,0 +1,73 @@
+package com.hbm.devices.scan;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class MulticastMessageReceiverTest {
+
+    private MulticastMessageReceiver receiver;
+    private List<NetworkInterface> joined;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        receiver = new MulticastMessageReceiver(ScanConstants.ANNOUNCE_ADDRESS, 0);
+        joined = new ArrayList<>(receiver.getJoinedInterfaces());
+        assumeFalse(joined.isEmpty(), "No multicast capable interface");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (receiver != null) {
+            receiver.close();
+        }
+    }
+
+    @Test
+    public void leaveAndJoinOnInterfaceChange() {
+        NetworkInterface first = joined.get(0);
+        List<NetworkInterface> remaining = new ArrayList<>(joined);
+        remaining.remove(first);
+
+        receiver.update(null, change(remaining, Collections.<NetworkInterface>emptyList(),
+            Collections.singletonList(first)));
+        Set<NetworkInterface> afterRemoval = receiver.getJoinedInterfaces();
+        assertTrue(!afterRemoval.contains(first), "Group not left on removed interface");
+        assertEquals(remaining.size(), afterRemoval.size(), "Group left on remaining interfaces");
+
+        receiver.update(null, change(joined, Collections.singletonList(first),
+            Collections.<NetworkInterface>emptyList()));
+        assertEquals(joined.size(), receiver.getJoinedInterfaces().size(), "Group not joined on added interface");
+        assertTrue(receiver.getJoinedInterfaces().contains(first), "Group not joined on added interface");
+    }
+
+    @Test
+    public void otherEventsIgnored() {
+        receiver.update(null, "no interface change");
+        assertEquals(joined.size(), receiver.getJoinedInterfaces().size(), "Joined interfaces changed");
+    }
+
+    @Test
+    public void noJoinAfterClose() {
+        receiver.update(null, change(Collections.<NetworkInterface>emptyList(),
+            Collections.<NetworkInterface>emptyList(), joined));
+        receiver.close();
+        receiver.update(null, change(joined, joined, Collections.<NetworkInterface>emptyList()));
+        assertTrue(receiver.getJoinedInterfaces().isEmpty(), "Group joined after close");
+    }
+
+    private static InterfaceChangeEvent change(List<NetworkInterface> interfaces, List<NetworkInterface> added,
+        List<NetworkInterface> removed) {
+        return new InterfaceChangeEvent(interfaces, added, removed);
+    }
+}
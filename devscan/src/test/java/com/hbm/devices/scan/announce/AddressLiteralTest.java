@@ -0,0 +1,106 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public class AddressLiteralTest {
+
+    private static final String[] VALID = {
+        "0.0.0.0", "10.1.2.3", "255.255.255.255", "172.19.169.254",
+        "::", "::1", "1::", "fe80::222:4dff:feaa:4c1e", "FE80::222:4DFF:FEAA:4C1E",
+        "2a01:238:20a:202:6660:0000:0198:0033", "1:2:3:4:5:6:7:8", "1:2:3:4:5:6:7::",
+        "::2:3:4:5:6:7:8", "::ffff:10.1.2.3", "::10.1.2.3", "64:ff9b::192.0.2.33",
+    };
+
+    private static final String[] INVALID = {
+        "", "-----", "-----------", "localhost", "1.2.3", "1.2.3.4.5", "256.1.1.1",
+        "1..2.3", ".1.2.3", "1.2.3.", "0001.2.3.4", "1.2.3.4:80", ":", ":::", "1:::2",
+        "1::2::3", ":1:2:3:4:5:6:7", "1:2:3:4:5:6:7:", "1:2:3:4:5:6:7:8:9",
+        "1:2:3:4:5:6:7:8::", "12345::", "g::1", "::1.2.3", "1.2.3.4::", "::%",
+        "fe80::1%", "\uff11.2.3.4",
+    };
+
+    @Test
+    public void validLiteralsMatchInetAddress() throws UnknownHostException {
+        long[] address = new long[2];
+        for (String literal : VALID) {
+            assertTrue(AddressLiteral.parse(literal, address), "Rejected " + literal);
+            byte[] expected = InetAddress.getByName(literal).getAddress();
+            assertArrayEquals(expected, toBytes(address, expected.length), "Wrong address for " + literal);
+            assertEquals(InetAddress.getByName(literal) instanceof Inet4Address,
+                AddressLiteral.isIPv4(address[0], address[1]), "Wrong family for " + literal);
+        }
+    }
+
+    @Test
+    public void invalidLiteralsRejected() {
+        long[] address = new long[2];
+        for (String literal : INVALID) {
+            assertFalse(AddressLiteral.parse(literal, address), "Accepted " + literal);
+        }
+    }
+
+    @Test
+    public void zoneIdIgnored() {
+        long[] address = new long[2];
+        assertTrue(AddressLiteral.parse("fe80::1%eth0", address), "Zone id not accepted");
+        assertEquals(0xfe80000000000000L, address[0], "Wrong high bits");
+        assertEquals(1L, address[1], "Wrong low bits");
+    }
+
+    @Test
+    public void netmaskBits() {
+        long[] address = new long[2];
+        AddressLiteral.parse("255.255.255.0", address);
+        assertEquals(24, AddressLiteral.bitCount(address[0], address[1]), "Wrong IPv4 prefix");
+        AddressLiteral.parse("255.255.0.0", address);
+        assertEquals(16, AddressLiteral.bitCount(address[0], address[1]), "Wrong IPv4 prefix");
+        AddressLiteral.parse("ffff:ffff:ffff:ffff::", address);
+        assertEquals(64, AddressLiteral.bitCount(address[0], address[1]), "Wrong IPv6 prefix");
+    }
+
+    private static byte[] toBytes(long[] address, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int shift = (length - 1 - i) * Byte.SIZE;
+            long word = shift >= Long.SIZE ? address[0] : address[1];
+            bytes[i] = (byte) (word >>> (shift % Long.SIZE));
+        }
+        return bytes;
+    }
+}
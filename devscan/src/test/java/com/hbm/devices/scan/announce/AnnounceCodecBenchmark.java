@@ -0,0 +1,109 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * Compares {@link AnnounceCodec} with Java serialization and JSON
+ * parsing regarding payload size and encode/decode throughput.
+ * <p>
+ * This is not a unit test. Run it with
+ * {@code java com.hbm.devices.scan.announce.AnnounceCodecBenchmark [iterations]}.
+ */
+public final class AnnounceCodecBenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 100000;
+
+    private AnnounceCodecBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        final Properties props = new Properties();
+        try (InputStream is = AnnounceCodecBenchmark.class.getResourceAsStream("/fakemessages.properties")) {
+            props.load(is);
+        }
+        final String json = props.getProperty("scan.announce.device5");
+        final AnnounceDeserializer deserializer = new AnnounceDeserializer();
+        final Announce announce = deserializer.parse(json);
+
+        final byte[] codec = AnnounceCodec.encode(announce);
+        final byte[] serialized = serialize(announce);
+        System.out.printf("payload size: codec %d bytes, java serialization %d bytes, json %d bytes%n",
+            codec.length, serialized.length, json.getBytes(StandardCharsets.UTF_8).length);
+
+        for (int round = 0; round < 2; round++) {
+            final String label = round == 0 ? "warm-up" : "measure";
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                AnnounceCodec.decode(AnnounceCodec.encode(announce));
+            }
+            report(label, "codec", start, iterations);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                deserialize(serialize(announce));
+            }
+            report(label, "java serialization", start, iterations);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                deserializer.parse(announce.getJSONString());
+            }
+            report(label, "json", start, iterations);
+        }
+    }
+
+    private static void report(String label, String name, long start, int iterations) {
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%s %-20s %8.0f ns/round trip%n", label, name, (double) elapsed / iterations);
+    }
+
+    private static byte[] serialize(Announce announce) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(announce);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
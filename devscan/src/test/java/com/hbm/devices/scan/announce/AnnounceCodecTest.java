@@ -0,0 +1,241 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+
+public class AnnounceCodecTest {
+
+    // version, content hash and check hash
+    private static final int HEADER_LENGTH = 33;
+
+    private FakeMessageReceiver fsmmr;
+    private Announce announce;
+
+    @BeforeEach
+    public void setUp() {
+        announce = null;
+        fsmmr = new FakeMessageReceiver();
+        AnnounceDeserializer parser = new AnnounceDeserializer();
+        fsmmr.addObserver(parser);
+        parser.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                announce = (Announce) arg;
+            }
+        });
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        fsmmr.emitSingleCorrectMessage();
+        assertNotNull(announce, "No announce parsed");
+        Announce decoded = AnnounceCodec.decode(AnnounceCodec.encode(announce));
+
+        AnnounceParams params = announce.getParams();
+        AnnounceParams decodedParams = decoded.getParams();
+        assertEquals(params.getApiVersion(), decodedParams.getApiVersion(), "API version differs");
+        assertEquals(params.getExpiration(), decodedParams.getExpiration(), "Expiration differs");
+        assertEquals(params.getDevice().getUuid(), decodedParams.getDevice().getUuid(), "UUID differs");
+        assertEquals(params.getDevice().getFirmwareVersion(), decodedParams.getDevice().getFirmwareVersion(),
+            "Firmware version differs");
+        assertEquals(params.getDevice().isRouter(), decodedParams.getDevice().isRouter(), "Router flag differs");
+
+        Interface iface = params.getNetSettings().getInterface();
+        Interface decodedIface = decodedParams.getNetSettings().getInterface();
+        assertEquals(iface.getName(), decodedIface.getName(), "Interface name differs");
+        assertEquals(iface.getIPList().size(), decodedIface.getIPList().size(), "Number of IP addresses differs");
+        for (int i = 0; i < iface.getIPList().size(); i++) {
+            assertEquals(iface.getIPList().get(i).getAddress(), decodedIface.getIPList().get(i).getAddress(),
+                "IP address differs");
+            assertEquals(iface.getIPList().get(i).getPrefix(), decodedIface.getIPList().get(i).getPrefix(),
+                "Prefix differs");
+        }
+        assertEquals(params.getServices().size(), decodedParams.getServices().size(), "Number of services differs");
+        assertEquals(params.getServices().get(0).getPort(), decodedParams.getServices().get(0).getPort(),
+            "Service port differs");
+        assertTrue(announce.sameCommunicationPath(decoded), "Communication path differs");
+    }
+
+    @Test
+    public void routerRoundTrip() throws IOException {
+        fsmmr.emitString("{\"jsonrpc\":\"2.0\",\"method\":\"announce\",\"params\":{\"apiVersion\":\"1.0\","
+            + "\"device\":{\"uuid\":\"0009E5000B39\"},\"netSettings\":{\"interface\":{\"name\":\"eth0\","
+            + "\"ipv4\":[{\"address\":\"172.19.190.171\",\"netmask\":\"255.255.0.0\"}]}},"
+            + "\"router\":{\"uuid\":\"0009E50013E9\"}}}");
+        assertNotNull(announce, "No announce parsed");
+        Announce decoded = AnnounceCodec.decode(AnnounceCodec.encode(announce));
+        assertEquals(announce.getParams().getRouter().getUuid(), decoded.getParams().getRouter().getUuid(),
+            "Router UUID differs");
+        assertTrue(announce.sameCommunicationPath(decoded), "Communication path differs");
+    }
+
+    @Test
+    public void decodingIsStable() throws IOException {
+        fsmmr.emitSingleCorrectMessage();
+        byte[] encoded = AnnounceCodec.encode(announce);
+        Announce first = AnnounceCodec.decode(encoded);
+        Announce second = AnnounceCodec.decode(encoded);
+        assertEquals(first, second, "Decoded announces differ");
+        assertArrayEquals(encoded, AnnounceCodec.encode(first), "Re-encoding changed the encoding");
+
+        Announce reparsed = new AnnounceDeserializer().parse(first.getJSONString());
+        assertNotNull(reparsed, "Canonical JSON can't be parsed");
+        assertArrayEquals(withoutHash(encoded), withoutHash(AnnounceCodec.encode(reparsed)),
+            "Canonical JSON loses information");
+    }
+
+    @Test
+    public void decodedEqualsReceived() throws IOException {
+        fsmmr.emitSingleCorrectMessage();
+        Announce received = announce;
+        Announce decoded = AnnounceCodec.decode(AnnounceCodec.encode(received));
+        assertEquals(received, decoded, "Decoded announce differs from received one");
+        assertEquals(received.hashCode(), decoded.hashCode(), "Hash codes differ");
+
+        fsmmr.emitSingleCorrentMessageDifferentIP();
+        assertTrue(!announce.equals(decoded), "Changed announce equals decoded one");
+    }
+
+    @Test
+    public void mismatchingContentHashRejected() {
+        fsmmr.emitSingleCorrectMessage();
+        byte[] encoded = AnnounceCodec.encode(announce);
+        byte[] forgedHash = encoded.clone();
+        forgedHash[1] ^= 1;
+        assertThrows(IOException.class, () -> AnnounceCodec.decode(forgedHash));
+        byte[] changedContent = encoded.clone();
+        changedContent[encoded.length - 2] ^= 1;
+        assertThrows(IOException.class, () -> AnnounceCodec.decode(changedContent));
+    }
+
+    @Test
+    public void uncheckedContentHashRecomputed() throws IOException {
+        fsmmr.emitSingleCorrectMessage();
+        byte[] encoded = AnnounceCodec.encode(announce);
+        // the previous version without a check hash
+        byte[] unchecked = new byte[encoded.length - 16];
+        unchecked[0] = 2;
+        System.arraycopy(encoded, 1, unchecked, 1, 16);
+        System.arraycopy(encoded, HEADER_LENGTH, unchecked, 17, encoded.length - HEADER_LENGTH);
+        Announce decoded = AnnounceCodec.decode(unchecked);
+        assertTrue(!announce.equals(decoded), "Unchecked content hash trusted");
+        assertEquals(AnnounceCodec.decode(encoded).getJSONString(), decoded.getJSONString(), "Content differs");
+        assertEquals(decoded, AnnounceCodec.decode(AnnounceCodec.encode(decoded)), "Recomputed hash not encoded");
+    }
+
+    @Test
+    public void oversizedLengthsRejected() {
+        // header, API version string of 2^31 - 2 bytes
+        assertThrows(IOException.class, () -> AnnounceCodec.decode(encoding(0xff, 0xff, 0xff, 0xff, 0x07)));
+        // length varint overflowing to a negative value
+        assertThrows(IOException.class, () -> AnnounceCodec.decode(encoding(0xff, 0xff, 0xff, 0xff, 0x0f)));
+        // 16382 bytes announced, but only a few follow
+        assertThrows(IOException.class, () -> AnnounceCodec.decode(encoding(0xff, 0x7f, 'a', 'b')));
+        // without a known size only the maximum length applies
+        assertThrows(IOException.class, () -> AnnounceCodec.decode(
+            new DataInputStream(new ByteArrayInputStream(encoding(0x80, 0x80, 0x40)))));
+    }
+
+    @Test
+    public void oversizedCountsRejected() {
+        fsmmr.emitString("{\"jsonrpc\":\"2.0\",\"method\":\"announce\",\"params\":{\"apiVersion\":\"1.0\","
+            + "\"device\":{\"uuid\":\"0009E5000B39\"},\"netSettings\":{\"interface\":{\"name\":\"eth0\"}}}}");
+        byte[] encoded = AnnounceCodec.encode(announce);
+        assertEquals(0, encoded[encoded.length - 1], "Encoding doesn't end with empty services section");
+        // 65534 services announced, but none follow
+        byte[] hostile = Arrays.copyOf(encoded, encoded.length + 2);
+        hostile[encoded.length - 1] = (byte) 0xff;
+        hostile[encoded.length] = (byte) 0xff;
+        hostile[encoded.length + 1] = (byte) 0x03;
+        assertThrows(IOException.class, () -> AnnounceCodec.decode(hostile));
+    }
+
+    @Test
+    public void encodingIsCompact() throws IOException {
+        fsmmr.emitSingleCorrectMessage();
+        byte[] encoded = AnnounceCodec.encode(announce);
+        byte[] json = announce.getJSONString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(announce);
+        }
+        assertTrue(encoded.length < json.length, "Encoding not smaller than JSON");
+        assertTrue(encoded.length < serialized.size(), "Encoding not smaller than Java serialization");
+    }
+
+    @Test
+    public void unknownVersion() {
+        fsmmr.emitSingleCorrectMessage();
+        byte[] encoded = AnnounceCodec.encode(announce);
+        encoded[0] = (byte) (AnnounceCodec.VERSION + 1);
+        assertThrows(IOException.class, () -> {
+            AnnounceCodec.decode(encoded);
+        });
+    }
+
+    private static byte[] withoutHash(byte[] encoded) {
+        return Arrays.copyOfRange(encoded, HEADER_LENGTH, encoded.length);
+    }
+
+    private static byte[] encoding(int... apiVersion) {
+        byte[] data = new byte[HEADER_LENGTH + apiVersion.length];
+        data[0] = (byte) AnnounceCodec.VERSION;
+        for (int i = 0; i < apiVersion.length; i++) {
+            data[HEADER_LENGTH + i] = (byte) apiVersion[i];
+        }
+        return data;
+    }
+
+    @Test
+    public void truncatedEncoding() {
+        fsmmr.emitSingleCorrectMessage();
+        byte[] encoded = AnnounceCodec.encode(announce);
+        assertThrows(IOException.class, () -> {
+            AnnounceCodec.decode(Arrays.copyOf(encoded, encoded.length / 2));
+        });
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+public class AnnounceParamsSerializationTest {
+
+    /*
+     * AnnounceParams of the fake correct message, serialized by a
+     * version still storing the IP list and services as lists.
+     */
+    private static final String LIST_FORM =
+        "rO0ABXNyACxjb20uaGJtLmRldmljZXMuc2Nhbi5hbm5vdW5jZS5Bbm5vdW5jZVBhcmFtcyMjhKYJCZ28AgAGSQAKZXhwaXJh" +
+        "dGlvbkwACmFwaVZlcnNpb250ABJMamF2YS9sYW5nL1N0cmluZztMAAZkZXZpY2V0ACZMY29tL2hibS9kZXZpY2VzL3NjYW4v" +
+        "YW5ub3VuY2UvRGV2aWNlO0wAC25ldFNldHRpbmdzdAArTGNvbS9oYm0vZGV2aWNlcy9zY2FuL2Fubm91bmNlL05ldFNldHRp" +
+        "bmdzO0wABnJvdXRlcnQAJkxjb20vaGJtL2RldmljZXMvc2Nhbi9hbm5vdW5jZS9Sb3V0ZXI7TAAIc2VydmljZXN0ABBMamF2" +
+        "YS91dGlsL0xpc3Q7eHAAAAAPdAADMS4wc3IAJGNvbS5oYm0uZGV2aWNlcy5zY2FuLmFubm91bmNlLkRldmljZeLcqW20kakT" +
+        "AgAIWgAGcm91dGVyTAAKZmFtaWx5VHlwZXEAfgABTAAPZmlybXdhcmVWZXJzaW9ucQB+AAFMAApoYXJkd2FyZUlkcQB+AAFM" +
+        "AAVsYWJlbHEAfgABTAAEbmFtZXEAfgABTAAEdHlwZXEAfgABTAAEdXVpZHEAfgABeHAAdAAIUXVhbnR1bVh0AA00LjEuMS4x" +
+        "ODYxMC4xdAAITVg0MTBfUjBwdAAOTVg0MTAgTWF0dGhpYXN0AAVNWDQxMHQADDAwMDlFNTAwMTIzQXNyACljb20uaGJtLmRl" +
+        "dmljZXMuc2Nhbi5hbm5vdW5jZS5OZXRTZXR0aW5nc2axf8IMIlG5AgACTAAOZGVmYXVsdEdhdGV3YXl0AC5MY29tL2hibS9k" +
+        "ZXZpY2VzL3NjYW4vYW5ub3VuY2UvRGVmYXVsdEdhdGV3YXk7TAAFaWZhY2V0AClMY29tL2hibS9kZXZpY2VzL3NjYW4vYW5u" +
+        "b3VuY2UvSW50ZXJmYWNlO3hwc3IALGNvbS5oYm0uZGV2aWNlcy5zY2FuLmFubm91bmNlLkRlZmF1bHRHYXRld2F5gLg6NX0k" +
+        "ArsCAAJMAAtpcHY0QWRkcmVzc3EAfgABTAALaXB2NkFkZHJlc3NxAH4AAXhwdAAOMTcyLjE5LjE2OS4yNTRwc3IAJ2NvbS5o" +
+        "Ym0uZGV2aWNlcy5zY2FuLmFubm91bmNlLkludGVyZmFjZXCN7y43ExtnAgAETAALZGVzY3JpcHRpb25xAH4AAUwABmlwTGlz" +
+        "dHEAfgAFTAAEbmFtZXEAfgABTAAEdHlwZXEAfgABeHB0ABdldGhlcm5ldCBiYWNrcGxhbmUgc2lkZXNyABRqYXZhLnV0aWwu" +
+        "TGlua2VkTGlzdAwpU11KYIgiAwAAeHB3BAAAAAJzcgAlY29tLmhibS5kZXZpY2VzLnNjYW4uYW5ub3VuY2UuSVBFbnRyeX62" +
+        "F1zFE1A2AgACSQAGcHJlZml4TAAHYWRkcmVzc3QAFkxqYXZhL25ldC9JbmV0QWRkcmVzczt4cAAAABBzcgAUamF2YS5uZXQu" +
+        "SW5ldEFkZHJlc3Mtm1evn+Pr2wMAA0kAB2FkZHJlc3NJAAZmYW1pbHlMAAhob3N0TmFtZXEAfgABeHCsE8A5AAAAAnB4c3EA" +
+        "fgAcAAAAQHNyABVqYXZhLm5ldC5JbmV0NkFkZHJlc3NffCCBUiyAIQMABUkACHNjb3BlX2lkWgAMc2NvcGVfaWRfc2V0WgAQ" +
+        "c2NvcGVfaWZuYW1lX3NldEwABmlmbmFtZXEAfgABWwAJaXBhZGRyZXNzdAACW0J4cQB+AB8AAAAAAAAAAnB4AAAAAAAAcHVy" +
+        "AAJbQqzzF/gGCFTgAgAAeHAAAAAQ/oAAAAAAAAACCeX//gASOnh4dAAEZXRoMHQACGV0aGVybmV0cHNyABNqYXZhLnV0aWwu" +
+        "QXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAAHdwQAAAAHc3IAKmNvbS5oYm0uZGV2aWNlcy5zY2FuLmFubm91bmNl" +
+        "LlNlcnZpY2VFbnRyeXtkRTSpCSfEAgACSQAEcG9ydEwABHR5cGVxAH4AAXhwAAAc83QACWRhcVN0cmVhbXNxAH4AKwAAH5B0" +
+        "AAtkYXFTdHJlYW1XU3NxAH4AKwAAE4l0AAtoYm1Qcm90b2NvbHNxAH4AKwAAAFB0AARodHRwc3EAfgArAAArcnQABGpldGRz" +
+        "cQB+ACsAACtzdAAFamV0d3NzcQB+ACsAAAAWdAADc3NoeA==";
+
+    @Test
+    public void listFormDeserialized() throws IOException, ClassNotFoundException {
+        AnnounceParams params = (AnnounceParams) deserialize(Base64.getDecoder().decode(LIST_FORM));
+        assertEquals("0009E500123A", params.getDevice().getUuid(), "Wrong device");
+
+        Interface iface = params.getNetSettings().getInterface();
+        assertEquals("eth0", iface.getName(), "Wrong interface name");
+        assertEquals(2, iface.getAddressCount(), "Wrong number of addresses");
+        List<IPEntry> ipList = iface.getIPList();
+        assertEquals("172.19.192.57", ipList.get(0).getAddress().getHostAddress(), "Wrong IPv4 address");
+        assertEquals(16, ipList.get(0).getPrefix(), "Wrong IPv4 prefix");
+        assertTrue(iface.isIPv4(0), "IPv4 address not packed as IPv4");
+        assertEquals("fe80:0:0:0:209:e5ff:fe00:123a", ipList.get(1).getAddress().getHostAddress(), "Wrong IPv6 address");
+        assertEquals(64, ipList.get(1).getPrefix(), "Wrong IPv6 prefix");
+
+        List<ServiceEntry> services = params.getServices();
+        assertEquals(7, services.size(), "Wrong number of services");
+        assertEquals("daqStream", services.get(0).getType(), "Wrong service type");
+        assertEquals(7411, services.get(0).getPort(), "Wrong service port");
+        assertTrue(params.hasServiceType("ssh"), "Service not found");
+        assertFalse(params.hasServiceType("ftp"), "Unannounced service found");
+    }
+
+    @Test
+    public void packedFormRoundTrip() throws IOException, ClassNotFoundException {
+        AnnounceParams params = (AnnounceParams) deserialize(Base64.getDecoder().decode(LIST_FORM));
+        AnnounceParams copy = (AnnounceParams) deserialize(serialize(params));
+
+        Interface iface = params.getNetSettings().getInterface();
+        Interface ifaceCopy = copy.getNetSettings().getInterface();
+        assertEquals(iface.getAddressCount(), ifaceCopy.getAddressCount(), "Wrong number of addresses");
+        for (int i = 0; i < iface.getAddressCount(); i++) {
+            assertEquals(iface.getAddress(i), ifaceCopy.getAddress(i), "Address changed by serialization");
+            assertEquals(iface.getPrefix(i), ifaceCopy.getPrefix(i), "Prefix changed by serialization");
+        }
+        List<ServiceEntry> services = params.getServices();
+        List<ServiceEntry> servicesCopy = copy.getServices();
+        assertEquals(services.size(), servicesCopy.size(), "Wrong number of services");
+        for (int i = 0; i < services.size(); i++) {
+            assertEquals(services.get(i).getType(), servicesCopy.get(i).getType(), "Service type changed by serialization");
+            assertEquals(services.get(i).getPort(), servicesCopy.get(i).getPort(), "Service port changed by serialization");
+        }
+    }
+
+    @Test
+    public void noServicesRoundTrip() throws IOException, ClassNotFoundException {
+        AnnounceParams params = new AnnounceParams();
+        params.setServices(null);
+        AnnounceParams copy = (AnnounceParams) deserialize(serialize(params));
+        assertTrue(copy.getServices().isEmpty(), "Services without services section");
+
+        params.setServices(new ArrayList<ServiceEntry>());
+        copy = (AnnounceParams) deserialize(serialize(params));
+        assertTrue(copy.getServices().isEmpty(), "Services from empty services section");
+    }
+
+    @Test
+    public void emptyInterfaceRoundTrip() throws IOException, ClassNotFoundException {
+        Interface iface = (Interface) deserialize(serialize(new Interface()));
+        assertEquals(0, iface.getAddressCount(), "Addresses without addresses announced");
+        assertTrue(iface.getIPList().isEmpty(), "IP list without addresses announced");
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
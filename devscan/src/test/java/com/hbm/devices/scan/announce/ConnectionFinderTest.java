@@ -2,8 +2,11 @@ package com.hbm.devices.scan.announce;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.net.InetAddress;
@@ -12,6 +15,7 @@ import java.net.Inet6Address;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Observer;
 import java.util.Observable;
 
@@ -71,4 +75,41 @@ public class ConnectionFinderTest {
             fail("name resolution failed");
         }
     }
+
+    @Test
+    public void cachedResultTest() {
+        LinkedList<NetworkInterfaceAddress> ipv4List = new LinkedList<NetworkInterfaceAddress>();
+        try {
+            ipv4List.push(new NetworkInterfaceAddress(InetAddress.getByName("172.19.1.2"), 16));
+            ConnectionFinder finder = new ConnectionFinder(ipv4List, new LinkedList<NetworkInterfaceAddress>());
+
+            fsmmr.emitSingleCorrectMessage();
+            assertNotNull(announce, "No Announce object after correct message");
+            List<InetAddress> first = finder.findSameNetworkAddresses(announce);
+            assertEquals(1, first.size(), "Device address not found");
+            assertSame(first, finder.findSameNetworkAddresses(announce), "Result not cached for same announce");
+
+            List<InetAddress> copy = finder.getSameNetworkAddresses(announce);
+            copy.clear();
+            assertEquals(first, finder.getSameNetworkAddresses(announce), "Returned list shares cached result");
+
+            fsmmr.emitSingleCorrentMessageDifferentIP();
+            assertNotSame(first, finder.findSameNetworkAddresses(announce), "Cached result used for changed announce");
+        } catch (UnknownHostException e) {
+            fail("name resolution failed");
+        }
+    }
+
+    @Test
+    public void maskTest() {
+        assertEquals(0, ConnectionFinder.ipv4Mask(0), "wrong IPv4 mask");
+        assertEquals(0xffff0000, ConnectionFinder.ipv4Mask(16), "wrong IPv4 mask");
+        assertEquals(-1, ConnectionFinder.ipv4Mask(32), "wrong IPv4 mask");
+        assertEquals(0xffffffffffffff80L, ConnectionFinder.ipv6MaskHigh(57), "wrong IPv6 mask");
+        assertEquals(0L, ConnectionFinder.ipv6MaskLow(57), "wrong IPv6 mask");
+        assertEquals(-1L, ConnectionFinder.ipv6MaskHigh(64), "wrong IPv6 mask");
+        assertEquals(0L, ConnectionFinder.ipv6MaskLow(64), "wrong IPv6 mask");
+        assertEquals(0xffff000000000000L, ConnectionFinder.ipv6MaskLow(80), "wrong IPv6 mask");
+        assertEquals(-1L, ConnectionFinder.ipv6MaskLow(128), "wrong IPv6 mask");
+    }
 }
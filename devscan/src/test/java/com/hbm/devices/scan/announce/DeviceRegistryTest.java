@@ -0,0 +1,192 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+import com.hbm.devices.scan.announce.filter.UUIDMatch;
+
+public class DeviceRegistryTest {
+
+    private FakeMessageReceiver fsmmr;
+    private DeviceMonitor monitor;
+    private DeviceRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        fsmmr = new FakeMessageReceiver();
+        AnnounceDeserializer parser = new AnnounceDeserializer();
+        fsmmr.addObserver(parser);
+        monitor = new DeviceMonitor();
+        parser.addObserver(monitor);
+        registry = monitor.getRegistry();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    public void registryIsShared() {
+        assertTrue(registry == monitor.getRegistry(), "Registry created twice");
+    }
+
+    @Test
+    public void queryByIndexedCriteria() throws UnknownHostException {
+        emit("0009E5000001", "QuantumX", "MX840", "4.14.0.1", "10.1.2.3", "255.255.0.0", null, "http");
+        emit("0009E5000002", "QuantumX", "MX410", "4.9.2.0", "10.1.7.8", "255.255.0.0", null, "ssh");
+        emit("0009E5000003", "PMX", "WGX001", "1.0.0.0", "192.168.1.2", "255.255.255.0", "0009E50013E9", "http");
+
+        assertEquals(3, registry.size(), "Wrong number of devices");
+        assertEquals(3, registry.query().list().size(), "Query without criteria doesn't return all devices");
+        assertEquals(2, registry.query().familyType("QuantumX").list().size(), "Wrong family type match");
+        assertEquals(1, registry.query().deviceType("MX410").list().size(), "Wrong device type match");
+        assertEquals(1, registry.query().firmwareVersion("1.0.0.0").list().size(), "Wrong firmware match");
+        assertEquals(2, registry.query().serviceType("http").list().size(), "Wrong service type match");
+        assertEquals(1, registry.query().routerUuid("0009E50013E9").list().size(), "Wrong router match");
+        assertEquals(2, registry.query().subnet(InetAddress.getByName("10.1.0.0"), 16).list().size(),
+            "Wrong subnet match");
+        assertTrue(registry.query().subnet(InetAddress.getByName("10.1.0.0"), 24).list().isEmpty(),
+            "Matched subnet with different prefix");
+
+        List<Announce> result = registry.query().familyType("QuantumX").firmwareBelow("4.10")
+            .subnet(InetAddress.getByName("10.1.255.255"), 16).list();
+        assertEquals(1, result.size(), "Wrong combined match");
+        assertEquals("0009E5000002", result.get(0).getParams().getDevice().getUuid(), "Wrong device found");
+
+        assertTrue(registry.query().familyType("QuantumX").serviceType("none").list().isEmpty(),
+            "Matched unknown service type");
+        assertEquals(1, registry.query().familyType("QuantumX").matching(new UUIDMatch("0009E5000001"))
+            .list().size(), "Matcher not applied");
+    }
+
+    @Test
+    public void updatesReplaceIndexEntries() {
+        emit("0009E5000001", "QuantumX", "MX840", "4.14.0.1", "10.1.2.3", "255.255.0.0", null, "http");
+        emit("0009E5000001", "QuantumX", "MX840", "4.16.0.1", "10.1.2.3", "255.255.0.0", null, "http");
+        assertEquals(1, registry.size(), "Update added a device");
+        assertTrue(registry.query().firmwareVersion("4.14.0.1").list().isEmpty(), "Stale index entry");
+        assertEquals(1, registry.query().firmwareVersion("4.16.0.1").list().size(), "Index not updated");
+    }
+
+    @Test
+    public void lostDevicesRemoved() throws InterruptedException {
+        fsmmr.emitSingleCorrectMessageShortExpire();
+        assertEquals(1, registry.size(), "Device not registered");
+        Thread.sleep(2000);
+        assertEquals(0, registry.size(), "Lost device not removed");
+        assertTrue(registry.query().familyType("QuantumX").list().isEmpty(), "Lost device still indexed");
+    }
+
+    @Test
+    public void registryCreatedLaterContainsKnownDevices() {
+        DeviceMonitor other = new DeviceMonitor();
+        try {
+            AnnounceDeserializer parser = new AnnounceDeserializer();
+            fsmmr.addObserver(parser);
+            parser.addObserver(other);
+            fsmmr.emitSingleCorrectMessage();
+            Announce announce = other.getRegistry().query().list().get(0);
+            assertNotNull(other.getRegistry().get(announce.getPath()), "Device not found by path");
+            assertNull(other.getRegistry().get("unknown"), "Unknown path found");
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void snapshotsAreImmutable() {
+        DeviceRegistry.Snapshot empty = registry.snapshot();
+        emit("0009E5000001", "QuantumX", "MX840", "4.14.0.1", "10.1.2.3", "255.255.0.0", null, "http");
+        DeviceRegistry.Snapshot one = registry.snapshot();
+        emit("0009E5000002", "QuantumX", "MX410", "4.9.2.0", "10.1.7.8", "255.255.0.0", null, "ssh");
+        DeviceRegistry.Snapshot two = registry.snapshot();
+
+        assertEquals(0, empty.size(), "Empty snapshot changed");
+        assertEquals(1, one.size(), "Snapshot changed after publishing");
+        assertEquals(1, one.query().familyType("QuantumX").list().size(), "Index of old snapshot changed");
+        assertEquals(2, two.query().familyType("QuantumX").list().size(), "New device not indexed");
+        assertTrue(empty.getVersion() < one.getVersion() && one.getVersion() < two.getVersion(),
+            "Versions not increasing");
+
+        int count = 0;
+        for (Announce announce : two) {
+            assertTrue(announce == two.get(announce.getPath()), "Iterated announce not found by path");
+            count++;
+        }
+        assertEquals(2, count, "Iteration doesn't visit all devices");
+    }
+
+    @Test
+    public void unchangedAnnounceKeepsSnapshot() {
+        fsmmr.emitSingleCorrectMessage();
+        DeviceRegistry.Snapshot snapshot = registry.snapshot();
+        fsmmr.emitSingleCorrectMessage();
+        assertTrue(snapshot == registry.snapshot(), "Unchanged announce published a new snapshot");
+    }
+
+    @Test
+    public void firmwareOrder() {
+        assertTrue(DeviceRegistry.FIRMWARE_ORDER.compare("1.9", "1.10") < 0, "1.9 not before 1.10");
+        assertTrue(DeviceRegistry.FIRMWARE_ORDER.compare("1.10", "1.10.1") < 0, "Prefix not first");
+        assertTrue(DeviceRegistry.FIRMWARE_ORDER.compare("2.0", "02.0") == 0, "Leading zeros not ignored");
+        assertTrue(DeviceRegistry.FIRMWARE_ORDER.compare("1.2a", "1.2b") < 0, "Suffix not compared");
+    }
+
+    @Test
+    public void illegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> registry.query().familyType(null));
+        assertThrows(IllegalArgumentException.class, () -> registry.query().subnet(null, 8));
+        assertThrows(IllegalArgumentException.class,
+            () -> registry.query().subnet(InetAddress.getByName("10.0.0.0"), 33));
+    }
+
+    private void emit(String uuid, String family, String type, String firmware, String address, String netmask,
+            String router, String service) {
+        fsmmr.emitString("{\"jsonrpc\":\"2.0\",\"method\":\"announce\",\"params\":{\"apiVersion\":\"1.0\","
+            + "\"device\":{\"uuid\":\"" + uuid + "\",\"familyType\":\"" + family + "\",\"type\":\"" + type
+            + "\",\"firmwareVersion\":\"" + firmware + "\"},\"netSettings\":{\"interface\":{\"name\":\"eth0\","
+            + "\"ipv4\":[{\"address\":\"" + address + "\",\"netmask\":\"" + netmask + "\"}]}},"
+            + (router == null ? "" : "\"router\":{\"uuid\":\"" + router + "\"},")
+            + "\"services\":[{\"type\":\"" + service + "\",\"port\":80}],\"expiration\":15}}");
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+
+public class DeviceSnapshotTest {
+
+    private File file;
+    private Object event;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = File.createTempFile("devices", ".snapshot");
+        event = null;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void warmStartWithoutNewDeviceEvent() throws IOException {
+        FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+        DeviceMonitor monitor = createMonitor(fsmmr);
+        fsmmr.emitSingleCorrectMessage();
+        assertTrue(event instanceof NewDeviceEvent, "No new device event fired");
+        new DeviceSnapshot(monitor, file).close();
+        monitor.close();
+
+        event = null;
+        fsmmr = new FakeMessageReceiver();
+        monitor = createMonitor(fsmmr);
+        List<Announce> restored = new DeviceSnapshot(monitor, file).restore();
+        assertEquals(1, restored.size(), "Device not restored");
+        assertTrue(event == null, "Event fired during restore");
+
+        fsmmr.emitSingleCorrectMessage();
+        assertTrue(event == null, "Event fired for unchanged restored device");
+
+        fsmmr.emitSingleCorrentMessageDifferentIP();
+        assertTrue(event instanceof UpdateDeviceEvent, "No update device event fired");
+        assertEquals(restored.get(0), ((UpdateDeviceEvent)event).getOldAnnounce(), "Wrong old announce");
+        monitor.close();
+    }
+
+    @Test
+    public void restoredAnnounceEqualsReceived() throws IOException {
+        FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+        DeviceMonitor monitor = createMonitor(fsmmr);
+        fsmmr.emitSingleCorrectMessage();
+        Announce received = ((NewDeviceEvent)event).getAnnounce();
+        new DeviceSnapshot(monitor, file).close();
+        monitor.close();
+
+        monitor = new DeviceMonitor();
+        List<Announce> restored = new DeviceSnapshot(monitor, file).restore();
+        assertEquals(1, restored.size(), "Device not restored");
+        assertEquals(received, restored.get(0), "Restored announce differs from received one");
+        assertEquals(received.getParams().getDevice().getUuid(),
+            restored.get(0).getParams().getDevice().getUuid(), "Wrong device restored");
+        monitor.close();
+    }
+
+    @Test
+    public void foreignEncodingVersionIgnored() throws IOException {
+        FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+        DeviceMonitor monitor = createMonitor(fsmmr);
+        fsmmr.emitSingleCorrectMessage();
+        new DeviceSnapshot(monitor, file).close();
+        monitor.close();
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[7] = (byte)(AnnounceCodec.VERSION + 1);
+        Files.write(file.toPath(), bytes);
+        monitor = new DeviceMonitor();
+        assertTrue(new DeviceSnapshot(monitor, file).restore().isEmpty(),
+            "Devices restored from snapshot with foreign encoding");
+        monitor.close();
+    }
+
+    @Test
+    public void corruptedDeviceSkipped() throws IOException {
+        FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+        DeviceMonitor monitor = createMonitor(fsmmr);
+        fsmmr.emitSingleCorrectMessage();
+        new DeviceSnapshot(monitor, file).close();
+        monitor.close();
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // header, last seen, record length, encoding version, first byte of the content hash
+        bytes[12 + 8 + 4 + 1] ^= 1;
+        Files.write(file.toPath(), bytes);
+        monitor = new DeviceMonitor();
+        assertTrue(new DeviceSnapshot(monitor, file).restore().isEmpty(), "Corrupted device restored");
+        monitor.close();
+    }
+
+    @Test
+    public void restoreTwiceIgnoresKnownDevices() throws IOException {
+        FakeMessageReceiver fsmmr = new FakeMessageReceiver();
+        DeviceMonitor monitor = createMonitor(fsmmr);
+        fsmmr.emitSingleCorrectMessage();
+        DeviceSnapshot snapshot = new DeviceSnapshot(monitor, file);
+        snapshot.write();
+        assertTrue(snapshot.restore().isEmpty(), "Already known device restored");
+        monitor.close();
+    }
+
+    @Test
+    public void missingFile() throws IOException {
+        DeviceMonitor monitor = new DeviceMonitor();
+        file.delete();
+        assertTrue(new DeviceSnapshot(monitor, file).restore().isEmpty(), "Devices restored from missing file");
+        monitor.close();
+    }
+
+    @Test
+    public void invalidFile() throws IOException {
+        DeviceMonitor monitor = new DeviceMonitor();
+        Files.write(file.toPath(), "no snapshot at all".getBytes("UTF-8"));
+        DeviceSnapshot snapshot = new DeviceSnapshot(monitor, file);
+        assertThrows(IOException.class, () -> {
+            snapshot.restore();
+        });
+        monitor.close();
+    }
+
+    @Test
+    public void emptySnapshot() throws IOException {
+        DeviceMonitor monitor = new DeviceMonitor();
+        DeviceSnapshot snapshot = new DeviceSnapshot(monitor, file);
+        snapshot.write();
+        assertTrue(snapshot.restore().isEmpty(), "Devices restored from empty snapshot");
+        monitor.close();
+    }
+
+    private DeviceMonitor createMonitor(FakeMessageReceiver fsmmr) {
+        AnnounceDeserializer parser = new AnnounceDeserializer();
+        fsmmr.addObserver(parser);
+        DeviceMonitor monitor = new DeviceMonitor();
+        parser.addObserver(monitor);
+        monitor.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                event = arg;
+            }
+        });
+        return monitor;
+    }
+}
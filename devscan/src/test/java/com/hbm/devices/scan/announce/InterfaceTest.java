@@ -0,0 +1,78 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InterfaceTest {
+
+    @Test
+    public void packedAddressesKeepOrder() throws UnknownHostException {
+        List<IPEntry> entries = new ArrayList<>();
+        entries.add(entry("172.19.190.171", 16));
+        entries.add(entry("fe80::209:e5ff:fe00:13e9", 64));
+        entries.add(entry("10.1.2.3", 8));
+        Interface iface = new Interface();
+        iface.setIPList(entries);
+
+        assertEquals(3, iface.getAddressCount(), "Wrong number of addresses");
+        assertTrue(iface.isIPv4(0), "IPv4 address not recognized");
+        assertFalse(iface.isIPv4(1), "IPv6 address taken as IPv4");
+        assertEquals(0xac13beab, iface.getIPv4Address(0), "Wrong packed IPv4 address");
+        assertEquals(0xfe80000000000000L, iface.getAddressHigh(1), "Wrong packed IPv6 address");
+
+        List<IPEntry> list = iface.getIPList();
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(entries.get(i).getAddress(), list.get(i).getAddress(), "Address changed by packing");
+            assertEquals(entries.get(i).getPrefix(), list.get(i).getPrefix(), "Prefix changed by packing");
+        }
+    }
+
+    @Test
+    public void noAddresses() {
+        Interface iface = new Interface();
+        assertTrue(iface.getIPList().isEmpty(), "Addresses in empty interface");
+        assertEquals(0, iface.getAddressCount(), "Addresses in empty interface");
+    }
+
+    private static IPEntry entry(String address, int prefix) throws UnknownHostException {
+        IPEntry entry = new IPEntry();
+        entry.address = InetAddress.getByName(address);
+        entry.prefix = prefix;
+        return entry;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+
+public class LazyAnnounceTest {
+
+    // version, content hash and check hash
+    private static final int HEADER_LENGTH = 33;
+
+    private Announce eager;
+    private Announce lazy;
+    private FakeMessageReceiver fsmmr;
+
+    @BeforeEach
+    public void setUp() {
+        fsmmr = new FakeMessageReceiver();
+        AnnounceDeserializer eagerParser = new AnnounceDeserializer();
+        AnnounceDeserializer lazyParser = new AnnounceDeserializer();
+        lazyParser.setLazyDecoding(true);
+        fsmmr.addObserver(eagerParser);
+        fsmmr.addObserver(lazyParser);
+        eagerParser.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                eager = (Announce) arg;
+            }
+        });
+        lazyParser.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                lazy = (Announce) arg;
+            }
+        });
+    }
+
+    @Test
+    public void sectionsDecodedOnAccess() {
+        fsmmr.emitSingleCorrectMessage();
+        assertNotNull(lazy, "No lazy announce");
+        assertFalse(lazy.isDecoded(), "Announce decoded eagerly");
+        assertEquals(eager.getPath(), lazy.getPath(), "Communication path differs");
+        assertEquals(eager.getParams().getExpiration(), lazy.getExpiration(), "Expiration differs");
+        assertFalse(lazy.isDecoded(), "Expiration decoded the announce");
+
+        assertEquals(eager.getParams().getDevice().getUuid(), lazy.getParams().getDevice().getUuid(), "UUID differs");
+        assertTrue(lazy.isDecoded(), "Announce not decoded on access");
+    }
+
+    @Test
+    public void refreshWithoutDecoding() {
+        DeviceMonitor monitor = new DeviceMonitor();
+        fsmmr.emitSingleCorrectMessage();
+        monitor.update(null, lazy);
+        fsmmr.emitSingleCorrentMessageDifferentIP();
+        monitor.update(null, lazy);
+        assertFalse(lazy.isDecoded(), "Device monitor decoded the announce");
+        monitor.close();
+    }
+
+    @Test
+    public void lazyAndEagerAgree() throws IllegalAccessException {
+        for (Method method : FakeMessageReceiver.class.getMethods()) {
+            if (!method.getName().startsWith("emit") || method.getParameterCount() != 0) {
+                continue;
+            }
+            eager = null;
+            lazy = null;
+            try {
+                method.invoke(fsmmr);
+            } catch (InvocationTargetException e) {
+                // the eager deserializer lets some malformed messages escape as exceptions
+                continue;
+            }
+            if (eager == null) {
+                assertNull(lazy, "Lazy deserializer accepted " + method.getName());
+                continue;
+            }
+            assertNotNull(lazy, "Lazy deserializer rejected " + method.getName());
+            assertEquals(eager.getPath(), lazy.getPath(), "Communication path differs for " + method.getName());
+            // the content hashes differ, as the eager JSON string is normalized
+            assertArrayEquals(withoutHash(AnnounceCodec.encode(eager)), withoutHash(AnnounceCodec.encode(lazy)),
+                "Decoded content differs for " + method.getName());
+        }
+    }
+
+    @Test
+    public void malformedOptionalSectionsRejected() {
+        String[] sections = {
+            "\"services\":[{\"type\":\"http\",\"port\":\"eighty\"}]",
+            "\"services\":[\"http\"]",
+            "\"netSettings\":{\"defaultGateway\":[],\"interface\":{\"name\":\"eth0\"}}",
+            "\"netSettings\":{\"interface\":{\"name\":\"eth0\",\"ipv4\":null}}",
+            "\"netSettings\":{\"interface\":{\"name\":\"eth0\",\"description\":null}}",
+            "\"netSettings\":{\"interface\":{\"name\":\"eth0\","
+                + "\"ipv6\":[{\"address\":\"fe80::1\",\"prefix\":\"sixty-four\"}]}}",
+            "\"device\":{\"uuid\":\"0009E5000B39\",\"name\":{\"first\":\"x\"}}",
+            "\"device\":{\"uuid\":\"0009E5000B39\",\"isRouter\":1}",
+            "\"expiration\":\"never\"",
+        };
+        AnnounceDeserializer eagerParser = new AnnounceDeserializer();
+        AnnounceDeserializer lazyParser = new AnnounceDeserializer();
+        lazyParser.setLazyDecoding(true);
+        for (String section : sections) {
+            String message = announce(section);
+            assertNull(lazyParser.parse(message), "Lazy deserializer accepted " + section);
+            try {
+                assertNull(eagerParser.parse(message), "Eager deserializer accepted " + section);
+            } catch (RuntimeException e) {
+                // the eager deserializer lets some malformed messages escape as exceptions
+            }
+        }
+    }
+
+    @Test
+    public void validOptionalSectionsAccepted() {
+        String[] sections = {
+            "\"services\":{\"http\":80}",
+            "\"services\":[null,{\"type\":\"http\",\"port\":\"80\"}]",
+            "\"netSettings\":{\"interface\":{\"name\":\"eth0\",\"ipv4\":[{\"address\":\"10.0.0.1\"}]}}",
+            "\"device\":{\"uuid\":\"0009E5000B39\",\"isRouter\":\"true\",\"name\":42}",
+            "\"expiration\":\"20\"",
+        };
+        AnnounceDeserializer eagerParser = new AnnounceDeserializer();
+        AnnounceDeserializer lazyParser = new AnnounceDeserializer();
+        lazyParser.setLazyDecoding(true);
+        for (String section : sections) {
+            String message = announce(section);
+            Announce eagerAnnounce = eagerParser.parse(message);
+            Announce lazyAnnounce = lazyParser.parse(message);
+            assertNotNull(eagerAnnounce, "Eager deserializer rejected " + section);
+            assertNotNull(lazyAnnounce, "Lazy deserializer rejected " + section);
+            assertEquals(eagerAnnounce.getPath(), lazyAnnounce.getPath(), "Communication path differs for " + section);
+            assertEquals(eagerAnnounce.getParams().getExpiration(), lazyAnnounce.getExpiration(),
+                "Expiration differs for " + section);
+            assertArrayEquals(withoutHash(AnnounceCodec.encode(eagerAnnounce)),
+                withoutHash(AnnounceCodec.encode(lazyAnnounce)), "Decoded content differs for " + section);
+        }
+    }
+
+    @Test
+    public void internalFieldsIgnored() {
+        String message = announce("\"expiration\":20").replace("\"method\":\"announce\",",
+            "\"method\":\"announce\",\"contentHash\":\"forged\",\"compressedJson\":{},");
+        AnnounceDeserializer eagerParser = new AnnounceDeserializer();
+        AnnounceDeserializer lazyParser = new AnnounceDeserializer();
+        lazyParser.setLazyDecoding(true);
+        Announce eagerAnnounce = eagerParser.parse(message);
+        Announce lazyAnnounce = lazyParser.parse(message);
+        assertNotNull(eagerAnnounce, "Eager deserializer rejected internal fields");
+        assertNotNull(lazyAnnounce, "Lazy deserializer rejected internal fields");
+        assertArrayEquals(withoutHash(AnnounceCodec.encode(eagerAnnounce)),
+            withoutHash(AnnounceCodec.encode(lazyAnnounce)), "Decoded content differs");
+    }
+
+    @Test
+    public void undecodableAnnounceNotCompleted() {
+        AnnounceDeserializer lazyParser = new AnnounceDeserializer();
+        lazyParser.setLazyDecoding(true);
+        Announce announce = new Announce();
+        announce.setJSONString(announce("\"services\":[\"http\"]"));
+        announce.decodeLazily(lazyParser, "0009E5000B39eth0", 0);
+        assertThrows(IllegalStateException.class, () -> {
+            announce.getParams();
+        });
+    }
+
+    /*
+     * Builds an announce of a device with a single interface, in which
+     * the given section replaces the default one.
+     */
+    private static String announce(String section) {
+        String name = section.substring(1, section.indexOf('"', 1));
+        StringBuilder params = new StringBuilder("{\"apiVersion\":\"1.0\",").append(section);
+        if (!"device".equals(name)) {
+            params.append(",\"device\":{\"uuid\":\"0009E5000B39\"}");
+        }
+        if (!"netSettings".equals(name)) {
+            params.append(",\"netSettings\":{\"interface\":{\"name\":\"eth0\","
+                + "\"ipv4\":[{\"address\":\"172.19.190.171\",\"netmask\":\"255.255.0.0\"}]}}");
+        }
+        return "{\"jsonrpc\":\"2.0\",\"method\":\"announce\",\"params\":" + params.append('}') + "}";
+    }
+
+    private static byte[] withoutHash(byte[] encoded) {
+        return Arrays.copyOfRange(encoded, HEADER_LENGTH, encoded.length);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentMapTest {
+
+    @Test
+    public void behavesLikeHashMap() {
+        Random random = new Random(4711);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            Integer key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+            assertEquals(expected.size(), map.size(), "Size differs");
+        }
+        assertContentEquals(expected, map);
+    }
+
+    @Test
+    public void collidingKeys() {
+        Map<Key, String> expected = new HashMap<>();
+        PersistentMap<Key, String> map = PersistentMap.empty();
+        for (int i = 0; i < 100; i++) {
+            Key key = new Key(i, i % 3);
+            expected.put(key, "v" + i);
+            map = map.plus(key, "v" + i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            expected.remove(new Key(i, i % 3));
+            map = map.minus(new Key(i, i % 3));
+        }
+        assertNull(map.get(new Key(0, 0)), "Removed key found");
+        assertContentEquals(expected, map);
+    }
+
+    @Test
+    public void oldVersionsUnchanged() {
+        PersistentMap<String, String> empty = PersistentMap.empty();
+        PersistentMap<String, String> one = empty.plus("a", "1");
+        PersistentMap<String, String> two = one.plus("b", "2");
+        PersistentMap<String, String> changed = two.plus("a", "3");
+        PersistentMap<String, String> removed = changed.minus("b");
+
+        assertEquals(0, empty.size(), "Empty map changed");
+        assertEquals("1", two.get("a"), "Old version sees new value");
+        assertEquals("3", changed.get("a"), "Value not replaced");
+        assertEquals(2, changed.size(), "Replacing changed the size");
+        assertEquals("2", changed.get("b"), "Removal visible in old version");
+        assertNull(removed.get("b"), "Key not removed");
+        assertEquals(1, removed.size(), "Wrong size after removal");
+    }
+
+    @Test
+    public void unchangedMapsAreReused() {
+        String value = "1";
+        PersistentMap<String, String> map = PersistentMap.<String, String>empty().plus("a", value);
+        assertSame(map, map.plus("a", value), "Same mapping copied the map");
+        assertSame(map, map.minus("b"), "Removing an unknown key copied the map");
+        assertTrue(map.minus("a").isEmpty(), "Map not empty after removing the only key");
+    }
+
+    @Test
+    public void nullsRejected() {
+        PersistentMap<String, String> map = PersistentMap.empty();
+        assertThrows(IllegalArgumentException.class, () -> map.plus(null, "1"));
+        assertThrows(IllegalArgumentException.class, () -> map.plus("a", null));
+    }
+
+    private static <K, V> void assertContentEquals(Map<K, V> expected, PersistentMap<K, V> map) {
+        int count = 0;
+        for (Map.Entry<K, V> entry : map) {
+            assertEquals(expected.get(entry.getKey()), entry.getValue(), "Wrong value for " + entry.getKey());
+            count++;
+        }
+        assertEquals(expected.size(), count, "Iteration doesn't visit all entries");
+        for (Map.Entry<K, V> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()), "Lookup failed for " + entry.getKey());
+        }
+    }
+
+    private static final class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Key) && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + id;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+import com.hbm.devices.scan.ScanInterfaces;
+
+public class RoutingTableTest {
+
+    private Announce announce;
+    private FakeMessageReceiver fsmmr;
+    private RoutingTable table;
+
+    @BeforeEach
+    public void setUp() throws UnknownHostException {
+        announce = null;
+        fsmmr = new FakeMessageReceiver();
+        AnnounceDeserializer parser = new AnnounceDeserializer();
+        fsmmr.addObserver(parser);
+        parser.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                announce = (Announce) arg;
+            }
+        });
+
+        table = new RoutingTable();
+        table.add(null, InetAddress.getByName("10.1.2.3"), 8);
+        table.add(null, InetAddress.getByName("172.19.1.2"), 16);
+        table.add(null, InetAddress.getByName("172.19.192.1"), 24);
+        table.add(null, InetAddress.getByName("192.168.4.5"), 24);
+        table.add(null, InetAddress.getByName("fe80::222:4dff:feaa:4c1e"), 64);
+        table.add(null, InetAddress.getByName("2a01:238:20a:202:6660:0000:0198:0033"), 48);
+    }
+
+    @Test
+    public void constructFromInterfaces() {
+        try {
+            assertNotNull(new RoutingTable(new ScanInterfaces().getInterfaces()), "RoutingTable cannot be constructed");
+        } catch (SocketException e) {
+            fail("Got SocketException while building list of scan interfaces");
+        }
+    }
+
+    @Test
+    public void longestPrefixMatch() throws UnknownHostException {
+        RoutingTable.Route route = table.lookup(InetAddress.getByName("172.19.192.57"));
+        assertNotNull(route, "No route found");
+        assertEquals(24, route.getPrefix(), "Longest prefix not chosen");
+        assertEquals(InetAddress.getByName("172.19.192.1"), route.getSourceAddress(), "Wrong source address");
+
+        route = table.lookup(InetAddress.getByName("172.19.10.57"));
+        assertNotNull(route, "No route found");
+        assertEquals(16, route.getPrefix(), "Wrong route chosen");
+
+        route = table.lookup(InetAddress.getByName("10.200.1.1"));
+        assertNotNull(route, "No route found");
+        assertEquals(InetAddress.getByName("10.1.2.3"), route.getSourceAddress(), "Wrong source address");
+    }
+
+    @Test
+    public void noRoute() throws UnknownHostException {
+        assertNull(table.lookup(InetAddress.getByName("192.168.5.1")), "Found route to unreachable address");
+        assertNull(table.lookup(InetAddress.getByName("2a01:238:20b::1")), "Found route to unreachable address");
+        assertNull(new RoutingTable().lookup(InetAddress.getByName("10.1.2.3")), "Found route in empty table");
+    }
+
+    @Test
+    public void ipv6Route() throws UnknownHostException {
+        RoutingTable.Route route = table.lookup(InetAddress.getByName("2a01:238:20a:ffff::1"));
+        assertNotNull(route, "No route found");
+        assertEquals(48, route.getPrefix(), "Wrong route chosen");
+    }
+
+    @Test
+    public void announceRoute() {
+        fsmmr.emitSingleCorrectMessage();
+        assertNotNull(announce, "No Announce object after correct message");
+        RoutingTable.Route route = table.lookup(announce);
+        assertNotNull(route, "No route to announced device");
+        assertEquals(64, route.getPrefix(), "Longest prefix over all announced addresses not chosen");
+        assertTrue(table.getReachingInterfaces(announce).isEmpty(), "Got interfaces although none was given");
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.announce;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StringInternerTest {
+
+    @Test
+    public void equalStringsShareInstance() {
+        StringInterner interner = new StringInterner(16);
+        String first = interner.intern(new String("QuantumX"));
+        String second = interner.intern(new String("QuantumX"));
+        assertSame(first, second, "Equal strings not shared");
+        assertNull(interner.intern(null), "null not passed through");
+    }
+
+    @Test
+    public void capacityIsBounded() {
+        StringInterner interner = new StringInterner(100);
+        assertEquals(128, interner.capacity(), "Capacity not rounded to power of two");
+        for (int i = 0; i < 10000; i++) {
+            interner.intern("value" + i);
+        }
+        assertEquals(128, interner.capacity(), "Interner grew beyond its capacity");
+        String value = "value" + 42;
+        assertEquals(value, interner.intern(value), "Interned string differs");
+    }
+
+    @Test
+    public void illegalCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new StringInterner(0);
+        });
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Sends through loopback channels standing in for the per interface
+ * multicast channels and checks what a receiver actually gets.
+ */
+public class ConfigurationChannelSenderLoopbackTest {
+
+    private static final int CHANNELS = 2;
+    private static final int RECEIVE_TIMEOUT = 2000;
+    private static final int SILENCE_TIMEOUT = 200;
+
+    private DatagramSocket receiver;
+    private List<NetworkInterface> interfaces;
+    private List<DatagramChannel> channels;
+    private List<Integer> ports;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        interfaces = Collections.list(NetworkInterface.getNetworkInterfaces());
+        assumeTrue(interfaces.size() >= CHANNELS, "Not enough network interfaces");
+        final InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        receiver = new DatagramSocket(new InetSocketAddress(loopback, 0));
+        interfaces = interfaces.subList(0, CHANNELS);
+        channels = new ArrayList<>();
+        ports = new ArrayList<>();
+        for (int i = 0; i < CHANNELS; i++) {
+            DatagramChannel channel = DatagramChannel.open(StandardProtocolFamily.INET);
+            channel.bind(new InetSocketAddress(loopback, 0));
+            channels.add(channel);
+            ports.add(((InetSocketAddress) channel.getLocalAddress()).getPort());
+        }
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (receiver != null) {
+            receiver.close();
+            executor.shutdown();
+            for (DatagramChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    @Test
+    public void sendsSliceOnAllChannels() throws IOException {
+        byte[] message = "xxxhello worldyy".getBytes(StandardCharsets.UTF_8);
+        ConfigurationChannelSender sender = createSender(null);
+        sender.sendMessage(message, 3, 11);
+        assertReceived(ports, "hello world".getBytes(StandardCharsets.UTF_8));
+        sender.close();
+    }
+
+    @Test
+    public void sendsStringOnAllChannels() throws IOException {
+        ConfigurationChannelSender sender = createSender(null);
+        sender.sendMessage("{\"jsonrpc\":\"2.0\"}");
+        assertReceived(ports, "{\"jsonrpc\":\"2.0\"}".getBytes(StandardCharsets.UTF_8));
+        sender.close();
+    }
+
+    @Test
+    public void sendsOnSelectedInterfacesOnly() throws IOException {
+        byte[] message = "selected".getBytes(StandardCharsets.UTF_8);
+        ConfigurationChannelSender sender = createSender(null);
+        sender.sendMessage(message, 0, message.length, Arrays.asList(interfaces.get(1)));
+        assertReceived(Arrays.asList(ports.get(1)), message);
+        sender.close();
+    }
+
+    @Test
+    public void fallsBackToAllInterfaces() throws IOException {
+        byte[] message = "fallback".getBytes(StandardCharsets.UTF_8);
+        ConfigurationChannelSender sender = createSender(null);
+        sender.sendMessage(message, 0, message.length, Collections.<NetworkInterface>emptyList());
+        assertReceived(ports, message);
+        sender.close();
+    }
+
+    @Test
+    public void sendsInParallel() throws IOException {
+        byte[] message = new byte[2000];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) i;
+        }
+        ConfigurationChannelSender sender = createSender(executor);
+        sender.sendMessage(message, 10, message.length - 10);
+        assertReceived(ports, Arrays.copyOfRange(message, 10, message.length));
+
+        byte[] second = "second".getBytes(StandardCharsets.UTF_8);
+        sender.sendMessage(second, 0, second.length, interfaces);
+        assertReceived(ports, second);
+        sender.close();
+    }
+
+    @Test
+    public void sendingAfterCloseFails() {
+        ConfigurationChannelSender sender = createSender(null);
+        sender.close();
+        assertThrows(IOException.class, () -> sender.sendMessage("closed"));
+    }
+
+    private ConfigurationChannelSender createSender(ExecutorService parallel) {
+        return new ConfigurationChannelSender(interfaces, channels,
+            (InetSocketAddress) receiver.getLocalSocketAddress(), parallel);
+    }
+
+    private void assertReceived(List<Integer> expectedPorts, byte[] expected) throws IOException {
+        Map<Integer, byte[]> received = new HashMap<>();
+        byte[] buffer = new byte[4096];
+        receiver.setSoTimeout(RECEIVE_TIMEOUT);
+        for (int i = 0; i < expectedPorts.size(); i++) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            receiver.receive(packet);
+            received.put(packet.getPort(), Arrays.copyOfRange(packet.getData(), packet.getOffset(),
+                packet.getOffset() + packet.getLength()));
+        }
+        assertEquals(expectedPorts.size(), received.size(), "Message received twice from one channel");
+        for (Integer port : expectedPorts) {
+            assertArrayEquals(expected, received.get(port), "Wrong payload from channel " + port);
+        }
+        receiver.setSoTimeout(SILENCE_TIMEOUT);
+        try {
+            receiver.receive(new DatagramPacket(buffer, buffer.length));
+            throw new AssertionError("Message sent on an unselected channel");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+    }
+}
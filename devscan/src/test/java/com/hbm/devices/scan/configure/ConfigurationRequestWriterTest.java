@@ -0,0 +1,78 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+import static com.hbm.devices.scan.configure.ConfigurationInterface.Method;
+
+public class ConfigurationRequestWriterTest {
+
+    private final Gson gson = new Gson();
+    private final JsonParser parser = new JsonParser();
+
+    @Test
+    public void dhcpLikeGson() throws IOException {
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        assertLikeGson(new ConfigurationRequest(new ConfigurationParams(new ConfigurationDevice("0009E5001234"),
+            settings), "TEST-1"));
+    }
+
+    @Test
+    public void manualLikeGson() throws IOException {
+        ConfigurationInterface iface = new ConfigurationInterface("eth1", Method.MANUAL,
+            new IPv4EntryManual("172.19.1.2", "255.255.0.0"));
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(iface,
+            new ConfigurationDefaultGateway("172.19.1.1"));
+        assertLikeGson(new ConfigurationRequest(new ConfigurationParams(new ConfigurationDevice("0009E5001234"),
+            settings, 3), "TEST-2"));
+    }
+
+    @Test
+    public void escapedLikeGson() throws IOException {
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(
+            new ConfigurationInterface("eth<0>&'=\"\u00e4 ", Method.DHCP));
+        assertLikeGson(new ConfigurationRequest(new ConfigurationParams(new ConfigurationDevice("<uuid>"),
+            settings), "id=\"&\""));
+    }
+
+    private void assertLikeGson(ConfigurationRequest request) throws IOException {
+        FakeMulticastSender sender = new FakeMulticastSender();
+        new ConfigurationSerializer(sender).sendConfiguration(request);
+        String expected = gson.toJson(request);
+        assertEquals(parser.parse(expected), parser.parse(sender.getLastSent()), "Written request differs");
+        assertEquals(expected, sender.getLastSent(), "Written request not identical to Gson's");
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonParser;
+
+import static com.hbm.devices.scan.configure.ConfigurationInterface.Method;
+
+public class ConfigurationRetransmissionTest {
+
+    private static final String UUID = "0009E5001571";
+
+    private ResponseDeserializer parser;
+    private CountingDevice device;
+    private ConfigurationService service;
+    private ConfigurationParams configParams;
+
+    @BeforeEach
+    public void setUp() {
+        parser = new ResponseDeserializer();
+        device = new CountingDevice(parser);
+        service = new ConfigurationService(new ConfigurationSerializer(device), parser);
+        configParams = new ConfigurationParams(new ConfigurationDevice(UUID),
+            new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP)));
+    }
+
+    @Test
+    public void estimatorFollowsSamples() {
+        RttEstimator estimator = new RttEstimator();
+        assertEquals(RttEstimator.INITIAL_RTO, estimator.getRto());
+        estimator.addSample(10);
+        assertEquals(RttEstimator.MIN_RTO, estimator.getRto(), "Minimum timeout not applied");
+
+        estimator = new RttEstimator();
+        estimator.addSample(1000);
+        assertEquals(3000, estimator.getRto());
+        estimator.addSample(1000);
+        assertEquals(2500, estimator.getRto());
+        for (int i = 0; i < 100; i++) {
+            estimator.addSample(20000);
+        }
+        assertEquals(RttEstimator.MAX_RTO, estimator.getRto(), "Maximum timeout not applied");
+    }
+
+    @Test
+    public void estimatorBacksOff() {
+        RttEstimator estimator = new RttEstimator();
+        estimator.backoff();
+        assertEquals(2 * RttEstimator.INITIAL_RTO, estimator.getRto(), "Timeout not doubled");
+        for (int i = 0; i < 10; i++) {
+            estimator.backoff();
+        }
+        assertEquals(RttEstimator.MAX_RTO, estimator.getRto(), "Maximum timeout not applied");
+        estimator.addSample(10);
+        assertEquals(RttEstimator.MIN_RTO, estimator.getRto(), "Sample doesn't replace backed off timeout");
+    }
+
+    @Test
+    public void retransmitUntilMaximum() throws Exception {
+        service.getEstimator(UUID).addSample(1);
+        service.setMaxRetransmissions(2);
+        device.answerOn = 0;
+
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, 1000);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(3, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException, "Future not completed with timeout");
+        assertTrue(e.getCause().getMessage().contains("1000"), "Timeout of the query not reported");
+        assertEquals(3, device.sent.get(), "Query not retransmitted twice");
+        assertEquals(4 * RttEstimator.MIN_RTO, service.getRetransmissionTimeout(UUID),
+            "Timeout not backed off for each retransmission");
+        service.close();
+    }
+
+    @Test
+    public void retransmissionKeepsTimeout() throws Exception {
+        service.getEstimator(UUID).addSample(1);
+        service.setMaxRetransmissions(1);
+        device.answerOn = 0;
+
+        long start = System.nanoTime();
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, 1500);
+        assertThrows(ExecutionException.class, () -> future.get(3, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 1500, "Timeout shortened to " + elapsed + " ms");
+        assertEquals(2, device.sent.get(), "Query not retransmitted once");
+        service.close();
+    }
+
+    @Test
+    public void noRetransmissionAfterTimeout() throws Exception {
+        service.getEstimator(UUID).addSample(1);
+        service.setMaxRetransmissions(ConfigurationService.MAX_RETRANSMISSIONS);
+        device.answerOn = 0;
+
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, 700);
+        assertThrows(ExecutionException.class, () -> future.get(3, TimeUnit.SECONDS));
+        Thread.sleep(1000);
+        assertEquals(3, device.sent.get(), "Retransmitted beyond the timeout");
+        service.close();
+    }
+
+    @Test
+    public void slowDeviceAdapts() throws Exception {
+        device.answerOn = 0;
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, 300);
+        assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertEquals(2 * RttEstimator.INITIAL_RTO, service.getRetransmissionTimeout(UUID),
+            "Timeout not backed off after timed out query");
+        service.close();
+    }
+
+    @Test
+    public void estimatorsBounded() {
+        for (int i = 0; i < ConfigurationService.MAX_ESTIMATORS + 10; i++) {
+            service.getEstimator("device" + i).addSample(1);
+        }
+        assertEquals(ConfigurationService.MAX_ESTIMATORS, service.getEstimatorCount(), "Estimators not evicted");
+        assertEquals(RttEstimator.INITIAL_RTO, service.getRetransmissionTimeout("device0"),
+            "Least recently used estimator not evicted");
+        assertEquals(RttEstimator.MIN_RTO, service.getRetransmissionTimeout("device20"), "Recent estimator evicted");
+        service.close();
+    }
+
+    @Test
+    public void retransmittedQueryAnswered() throws Exception {
+        service.getEstimator(UUID).addSample(1);
+        service.setMaxRetransmissions(3);
+        device.answerOn = 2;
+
+        Response response = service.sendConfigurationAsync(configParams, 5000).get(2, TimeUnit.SECONDS);
+        assertEquals(null, response.getError(), "Unexpected error response");
+        assertEquals(2, device.sent.get(), "Retransmitted after response");
+        assertEquals(2 * RttEstimator.MIN_RTO, service.getRetransmissionTimeout(UUID),
+            "Response to retransmitted query used as sample");
+        service.close();
+    }
+
+    @Test
+    public void responseTimeMeasured() throws Exception {
+        assertEquals(RttEstimator.INITIAL_RTO, service.getRetransmissionTimeout(UUID));
+        device.answerOn = 1;
+        service.sendConfigurationAsync(configParams, 1000).get(1, TimeUnit.SECONDS);
+        assertEquals(RttEstimator.MIN_RTO, service.getRetransmissionTimeout(UUID), "Response time not measured");
+        service.close();
+    }
+
+    @Test
+    public void noRetransmissionByDefault() throws Exception {
+        device.answerOn = 0;
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, 300);
+        assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertEquals(1, device.sent.get(), "Query retransmitted although disabled");
+        service.close();
+    }
+
+    @Test
+    public void illegalRetransmissions() {
+        assertThrows(IllegalArgumentException.class, () -> service.setMaxRetransmissions(-1));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.setMaxRetransmissions(ConfigurationService.MAX_RETRANSMISSIONS + 1));
+        service.close();
+    }
+
+    /**
+     * Answers the n-th transmission of a query, or never if n is 0.
+     */
+    private static class CountingDevice implements MulticastSender {
+        final ResponseDeserializer parser;
+        final AtomicInteger sent = new AtomicInteger();
+        volatile int answerOn;
+
+        CountingDevice(ResponseDeserializer parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public void sendMessage(String message) {
+            if (sent.incrementAndGet() == answerOn) {
+                String id = new JsonParser().parse(message).getAsJsonObject().get("id").getAsString();
+                parser.update(null, "{\"id\":\"" + id + "\",\"jsonrpc\":\"2.0\",\"result\":0}");
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import static com.hbm.devices.scan.configure.ConfigurationInterface.Method;
+
+public class ConfigurationRolloutTest {
+
+    private static List<ConfigurationParams> createConfigs(int count) {
+        final List<ConfigurationParams> configs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ConfigurationDevice device = new ConfigurationDevice("0009E50015" + (10 + i));
+            ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+            configs.add(new ConfigurationParams(device, settings));
+        }
+        return configs;
+    }
+
+    @Test
+    public void allDevicesAnswer() throws Exception {
+        ResponseDeserializer parser = new ResponseDeserializer();
+        EchoDevice device = new EchoDevice(parser);
+        device.dropOnce.add("0009E5001512");
+        device.errors.add("0009E5001513");
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(device), parser);
+        ConfigurationRollout rollout = new ConfigurationRollout(service, 2, 50, 2, 1);
+
+        final List<RolloutProgress> reports = new ArrayList<>();
+        List<Response> responses = rollout.start(createConfigs(5), new RolloutListener() {
+            @Override
+            public void onProgress(RolloutProgress progress) {
+                synchronized (reports) {
+                    reports.add(progress);
+                }
+            }
+        }).get(2, TimeUnit.SECONDS);
+
+        assertEquals(5, responses.size());
+        for (Response response : responses) {
+            assertTrue(response != null, "Missing response");
+        }
+        assertTrue(responses.get(3).getError() != null, "Error response not kept");
+        RolloutProgress last = reports.get(reports.size() - 1);
+        assertTrue(last.isFinished());
+        assertEquals(4, last.getSucceeded());
+        assertEquals(1, last.getFailed());
+        assertEquals(0, last.getTimedOut());
+        assertEquals(1, last.getRetries());
+        assertEquals(6, device.sent.get());
+        for (RolloutProgress progress : reports) {
+            assertTrue(progress.getInFlight() <= 2, "In-flight limit exceeded");
+        }
+        service.close();
+    }
+
+    @Test
+    public void devicesTimeOutAfterRetries() throws Exception {
+        ResponseDeserializer parser = new ResponseDeserializer();
+        EchoDevice device = new EchoDevice(parser);
+        device.silent = true;
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(device), parser);
+        ConfigurationRollout rollout = new ConfigurationRollout(service, 2, 20, 1, 5);
+
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        List<Response> responses = rollout.start(createConfigs(3), new RolloutListener() {
+            @Override
+            public void onProgress(RolloutProgress progress) {
+                maxInFlight.accumulateAndGet(progress.getInFlight(), Math::max);
+            }
+        }).get(2, TimeUnit.SECONDS);
+
+        for (Response response : responses) {
+            assertNull(response, "Unexpected response");
+        }
+        assertEquals(6, device.sent.get(), "Each device not tried twice");
+        assertTrue(maxInFlight.get() <= 2, "In-flight limit exceeded");
+        assertTrue(!service.awaitingResponse(), "Queries still pending");
+        service.close();
+    }
+
+    @Test
+    public void cancelRollout() {
+        ResponseDeserializer parser = new ResponseDeserializer();
+        EchoDevice device = new EchoDevice(parser);
+        device.silent = true;
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(device), parser);
+        ConfigurationRollout rollout = new ConfigurationRollout(service, 3, 5000, 0, 0);
+
+        CompletableFuture<List<Response>> result = rollout.start(createConfigs(10), null);
+        assertEquals(3, device.sent.get(), "In-flight limit not applied");
+        assertTrue(service.awaitingResponse());
+        result.cancel(false);
+        assertTrue(!service.awaitingResponse(), "Outstanding queries not withdrawn");
+        assertEquals(3, device.sent.get(), "Sent after cancellation");
+        service.close();
+    }
+
+    @Test
+    public void failingSendCountedAsFailure() throws Exception {
+        ResponseDeserializer parser = new ResponseDeserializer();
+        EchoDevice device = new EchoDevice(parser);
+        device.failing.add("0009E5001511");
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(device), parser);
+        ConfigurationRollout rollout = new ConfigurationRollout(service, 1, 50, 1, 1);
+
+        final List<RolloutProgress> reports = new ArrayList<>();
+        List<Response> responses = rollout.start(createConfigs(3), new RolloutListener() {
+            @Override
+            public void onProgress(RolloutProgress progress) {
+                synchronized (reports) {
+                    reports.add(progress);
+                }
+            }
+        }).get(2, TimeUnit.SECONDS);
+
+        assertTrue(responses.get(0) != null, "Missing response");
+        assertNull(responses.get(1), "Response for failing send");
+        assertTrue(responses.get(2) != null, "Rollout stopped after failing send");
+        RolloutProgress last = reports.get(reports.size() - 1);
+        assertTrue(last.isFinished());
+        assertEquals(2, last.getSucceeded());
+        assertEquals(1, last.getFailed());
+        assertEquals(1, last.getRetries());
+        assertEquals(0, last.getInFlight());
+        service.close();
+    }
+
+    @Test
+    public void emptyRollout() throws Exception {
+        ResponseDeserializer parser = new ResponseDeserializer();
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(new FakeMulticastSender()), parser);
+        ConfigurationRollout rollout = new ConfigurationRollout(service, 1, 100, 0, 0);
+        assertTrue(rollout.start(new ArrayList<ConfigurationParams>(), null).get().isEmpty());
+        service.close();
+    }
+
+    @Test
+    public void illegalParameters() {
+        ResponseDeserializer parser = new ResponseDeserializer();
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(new FakeMulticastSender()), parser);
+        assertThrows(IllegalArgumentException.class, () -> new ConfigurationRollout(null, 1, 100, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ConfigurationRollout(service, 0, 100, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ConfigurationRollout(service, 1, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ConfigurationRollout(service, 1, 100, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ConfigurationRollout(service, 1, 100, 0, -1));
+        ConfigurationRollout rollout = new ConfigurationRollout(service, 1, 100, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> rollout.start(null, null));
+        List<ConfigurationParams> configs = new ArrayList<>();
+        configs.add(null);
+        assertThrows(IllegalArgumentException.class, () -> rollout.start(configs, null));
+        service.close();
+    }
+
+    @Test
+    public void backoffDoubles() {
+        ResponseDeserializer parser = new ResponseDeserializer();
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(new FakeMulticastSender()), parser);
+        ConfigurationRollout rollout = new ConfigurationRollout(service, 1, 100, 10, 10);
+        assertEquals(10, rollout.getBackoff(1));
+        assertEquals(20, rollout.getBackoff(2));
+        assertEquals(40, rollout.getBackoff(3));
+        assertEquals(640, rollout.getBackoff(10));
+        service.close();
+    }
+
+    /**
+     * Answers each request instantly with its own id, unless told
+     * otherwise.
+     */
+    private static class EchoDevice implements MulticastSender {
+        final ResponseDeserializer parser;
+        final Set<String> dropOnce = new HashSet<>();
+        final Set<String> errors = new HashSet<>();
+        final Set<String> failing = new HashSet<>();
+        final AtomicInteger sent = new AtomicInteger();
+        volatile boolean silent;
+
+        EchoDevice(ResponseDeserializer parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public void sendMessage(String message) {
+            sent.incrementAndGet();
+            if (silent) {
+                return;
+            }
+            JsonObject request = new JsonParser().parse(message).getAsJsonObject();
+            String id = request.get("id").getAsString();
+            String uuid = request.getAsJsonObject("params").getAsJsonObject("device").get("uuid").getAsString();
+            if (failing.contains(uuid)) {
+                throw new IllegalStateException("Can't send to " + uuid);
+            }
+            synchronized (dropOnce) {
+                if (dropOnce.remove(uuid)) {
+                    return;
+                }
+            }
+            String response;
+            if (errors.contains(uuid)) {
+                response = "{\"id\":\"" + id + "\",\"jsonrpc\":\"2.0\",\"error\":{\"code\":2,\"message\":\"failed\"}}";
+            } else {
+                response = "{\"id\":\"" + id + "\",\"jsonrpc\":\"2.0\",\"result\":0}";
+            }
+            parser.update(null, response);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+    }
+}
@@ -39,6 +39,12 @@ import static org.junit.jupiter.api.Assertions.assertTimeout;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
@@ -427,4 +433,260 @@ public class ConfigurationServiceTest {
         assertTrue(!timeout && !error && !success, "Illegal response not ignored");
         service.close();
     }
+
+    @Test
+    public void asyncSuccessTest() throws Exception {
+        final String queryID = "test-id";
+
+        FakeDeviceEmulator fakeDevice = new FakeDeviceEmulator(queryID);
+        ConfigurationSerializer sender = new ConfigurationSerializer(fakeDevice);
+        fakeDevice.addObserver(messageParser);
+        ConfigurationService service = new ConfigurationService(sender, messageParser);
+
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings);
+
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, queryID, 1000);
+        Response response = future.get(1, TimeUnit.SECONDS);
+        assertEquals(queryID, response.getId(), "Future not completed with matching response");
+        assertEquals(null, response.getError(), "Success response carries an error");
+        assertFalse(service.awaitingResponse(), "Service is still waiting for responses");
+        service.close();
+    }
+
+    @Test
+    public void asyncErrorTest() throws Exception {
+        final String queryID = "error";
+
+        FakeDeviceEmulator fakeDevice = new FakeDeviceEmulator(queryID);
+        ConfigurationSerializer sender = new ConfigurationSerializer(fakeDevice);
+        fakeDevice.addObserver(messageParser);
+        ConfigurationService service = new ConfigurationService(sender, messageParser);
+
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings);
+
+        Response response = service.sendConfigurationAsync(configParams, queryID, 1000).get(1, TimeUnit.SECONDS);
+        assertEquals("hello", response.getError().getMessage(), "Error response not delivered");
+        service.close();
+    }
+
+    @Test
+    public void asyncTimeoutTest() {
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings);
+
+        FakeMulticastSender fakeSender = new FakeMulticastSender();
+        ConfigurationSerializer sender = new ConfigurationSerializer(fakeSender);
+        ConfigurationService service = new ConfigurationService(sender, messageParser);
+
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, 50);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException, "Future not completed with timeout");
+        assertFalse(service.awaitingResponse(), "Service is still waiting for responses");
+        service.close();
+    }
+
+    @Test
+    public void asyncCancelTest() {
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings);
+
+        FakeMulticastSender fakeSender = new FakeMulticastSender();
+        ConfigurationSerializer sender = new ConfigurationSerializer(fakeSender);
+        ConfigurationService service = new ConfigurationService(sender, messageParser);
+
+        CompletableFuture<Response> future = service.sendConfigurationAsync(configParams, 5000);
+        assertTrue(service.awaitingResponse(), "Service is not waiting for responses");
+        assertTrue(future.cancel(false), "Future could not be cancelled");
+        assertFalse(service.awaitingResponse(), "Cancelled query still pending");
+        service.close();
+    }
+
+    @Test
+    public void slowCallbackDoesNotBlockResponses() throws Exception {
+        FakeMulticastSender fakeSender = new FakeMulticastSender();
+        ConfigurationSerializer sender = new ConfigurationSerializer(fakeSender);
+        ConfigurationService service = new ConfigurationService(sender, messageParser);
+
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings);
+
+        final CountDownLatch inCallback = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        service.sendConfiguration(configParams, "slow", new ConfigurationCallback() {
+            public void onSuccess(Response response) {
+                inCallback.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            public void onError(Response response) {}
+            public void onTimeout(long t) {}
+        }, 5000);
+        CompletableFuture<Response> fast = service.sendConfigurationAsync(configParams, "fast", 5000);
+
+        Thread slowThread = new Thread(() -> messageParser.update(null, "{\"id\":\"slow\",\"jsonrpc\":\"2.0\",\"result\":0}"));
+        slowThread.start();
+        assertTrue(inCallback.await(1, TimeUnit.SECONDS), "Slow callback not invoked");
+
+        messageParser.update(null, "{\"id\":\"fast\",\"jsonrpc\":\"2.0\",\"result\":0}");
+        assertEquals("fast", fast.get(1, TimeUnit.SECONDS).getId(), "Response blocked by slow callback");
+
+        release.countDown();
+        slowThread.join();
+        assertFalse(service.awaitingResponse(), "Service is still waiting for responses");
+        service.close();
+    }
+
+    @Test
+    public void concurrentResponsesCompleteOnce() throws Exception {
+        FakeMulticastSender fakeSender = new FakeMulticastSender();
+        ConfigurationSerializer sender = new ConfigurationSerializer(fakeSender);
+        ConfigurationService service = new ConfigurationService(sender, messageParser);
+
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings);
+
+        final int queries = 500;
+        final AtomicInteger callbacks = new AtomicInteger();
+        ConfigurationCallback counting = new ConfigurationCallback() {
+            public void onSuccess(Response response) {
+                callbacks.incrementAndGet();
+            }
+            public void onError(Response response) {
+                callbacks.incrementAndGet();
+            }
+            public void onTimeout(long t) {
+                callbacks.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < queries; i++) {
+            service.sendConfiguration(configParams, "id-" + i, counting, 5000);
+        }
+
+        ResponseDeserializer responseParser = new ResponseDeserializer();
+        Response[] responses = new Response[queries];
+        responseParser.addObserver((o, arg) -> {
+            Response response = (Response)arg;
+            responses[Integer.parseInt(response.getId().substring(3))] = response;
+        });
+        for (int i = 0; i < queries; i++) {
+            responseParser.update(null, "{\"id\":\"id-" + i + "\",\"jsonrpc\":\"2.0\",\"result\":0}");
+        }
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (Response response : responses) {
+                    service.update(null, response);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(queries, callbacks.get(), "Callbacks not invoked exactly once per query");
+        assertFalse(service.awaitingResponse(), "Service is still waiting for responses");
+        service.close();
+    }
+
+    @Test
+    public void foreignResponsesDroppedBeforeParsing() throws Exception {
+        final AtomicInteger parsed = new AtomicInteger();
+        messageParser.addObserver((o, arg) -> parsed.incrementAndGet());
+
+        messageParser.update(null, "{\"id\":\"foreign\",\"jsonrpc\":\"2.0\",\"result\":0}");
+        assertEquals(1, parsed.get(), "Parser without service must forward all responses");
+
+        FakeMulticastSender fakeSender = new FakeMulticastSender();
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(fakeSender), messageParser);
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        CompletableFuture<Response> future = service.sendConfigurationAsync(new ConfigurationParams(device, settings), "mine", 5000);
+
+        messageParser.update(null, "{\"id\":\"foreign\",\"jsonrpc\":\"2.0\",\"result\":0}");
+        messageParser.update(null, fakeSender.getLastSent());
+        messageParser.update(null, "{\"jsonrpc\":\"2.0\",\"result\":0}");
+        assertEquals(1, parsed.get(), "Response not awaited by the service was parsed");
+
+        messageParser.update(null, "{\"jsonrpc\":\"2.0\",\"result\":0,\"id\":\"mine\"}");
+        assertEquals(2, parsed.get(), "Awaited response was dropped");
+        assertTrue(future.isDone(), "Future not completed");
+
+        messageParser.update(null, "{\"id\":\"mine\",\"jsonrpc\":\"2.0\",\"result\":0}");
+        assertEquals(2, parsed.get(), "Response for finished query was parsed");
+
+        service.close();
+        messageParser.update(null, "{\"id\":\"foreign\",\"jsonrpc\":\"2.0\",\"result\":0}");
+        assertEquals(3, parsed.get(), "Filter not removed when closing the service");
+    }
+
+    @Test
+    public void extractIdTest() throws Exception {
+        assertEquals("abc", ResponseDeserializer.extractId("{\"jsonrpc\":\"2.0\",\"params\":{\"id\":\"x\"},\"id\":\"abc\"}"));
+        assertEquals("12", ResponseDeserializer.extractId("{\"id\":12}"));
+        assertEquals(null, ResponseDeserializer.extractId("{\"id\":{\"a\":1}}"));
+        assertEquals(null, ResponseDeserializer.extractId("{\"result\":0}"));
+        assertEquals(null, ResponseDeserializer.extractId("[1,2]"));
+        assertEquals(null, ResponseDeserializer.extractId(null));
+    }
+
+    @Test
+    public void duplicateResponsesHandledOnce() throws Exception {
+        FakeMulticastSender fakeSender = new FakeMulticastSender();
+        ConfigurationService service = new ConfigurationService(new ConfigurationSerializer(fakeSender), messageParser);
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationParams configParams = new ConfigurationParams(device, settings);
+
+        final AtomicInteger callbacks = new AtomicInteger();
+        service.sendConfiguration(configParams, "dup", new ConfigurationCallback() {
+            public void onSuccess(Response response) {
+                callbacks.incrementAndGet();
+            }
+            public void onError(Response response) {
+                callbacks.incrementAndGet();
+            }
+            public void onTimeout(long t) {
+                callbacks.incrementAndGet();
+            }
+        }, 5000);
+
+        final String response = "{\"id\":\"dup\",\"jsonrpc\":\"2.0\",\"result\":0}";
+        messageParser.update(null, response);
+        messageParser.update(null, response);
+        messageParser.update(null, response);
+        assertEquals(1, callbacks.get(), "Duplicate response handled");
+        assertEquals(2, service.getDuplicateResponseCount(), "Duplicates not counted");
+
+        messageParser.update(null, "{\"id\":\"other\",\"jsonrpc\":\"2.0\",\"result\":0}");
+        assertEquals(2, service.getDuplicateResponseCount(), "Foreign response counted as duplicate");
+        service.close();
+    }
+
+    @Test
+    public void recentIdsEvictOldest() {
+        RecentIds ids = new RecentIds(4);
+        for (int i = 0; i < 4; i++) {
+            ids.add("id-" + i);
+        }
+        ids.add("id-0");
+        assertTrue(ids.contains("id-0"));
+        ids.add("id-4");
+        assertFalse(ids.contains("id-0"), "Oldest id not evicted");
+        assertTrue(ids.contains("id-1"));
+        assertTrue(ids.contains("id-4"));
+        assertThrows(IllegalArgumentException.class, () -> new RecentIds(5));
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.hbm.devices.scan.configure.ConfigurationInterface.Method;
+
+public class PendingQueriesTest {
+
+    private static ConfigQuery createQuery(QueryIdGenerator ids, String queryID) {
+        ConfigurationDevice device = new ConfigurationDevice("0009E5001571");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        ConfigurationRequest request = new ConfigurationRequest(new ConfigurationParams(device, settings), queryID);
+        return new ConfigQuery(request, null, 100, ids.sequenceOf(queryID));
+    }
+
+    @Test
+    public void generatedIdsAreUniqueAndParsable() {
+        QueryIdGenerator ids = new QueryIdGenerator("abc");
+        Set<String> seen = new HashSet<>();
+        for (int i = 1; i <= 1000; i++) {
+            String id = ids.next();
+            assertTrue(seen.add(id), "Duplicate id generated");
+            assertTrue(id.startsWith("abc-"));
+            assertEquals(i, ids.sequenceOf(id));
+        }
+    }
+
+    @Test
+    public void foreignIdsAreRejected() {
+        QueryIdGenerator ids = new QueryIdGenerator("abc");
+        assertEquals(-1, ids.sequenceOf("abd-1"));
+        assertEquals(-1, ids.sequenceOf("abc-"));
+        assertEquals(-1, ids.sequenceOf("abc-01"));
+        assertEquals(-1, ids.sequenceOf("abc-xyz"));
+        assertEquals(-1, ids.sequenceOf("abc-1000000000000000"));
+        assertEquals(-1, ids.sequenceOf("0f5f2a9e-3f44-4a3a-b7e4-4a8fb0c1c2b1"));
+        assertEquals(0xff, ids.sequenceOf("abc-ff"));
+    }
+
+    @Test
+    public void generatorsUseDifferentPrefixes() {
+        assertNotEquals(new QueryIdGenerator().next(), new QueryIdGenerator().next());
+    }
+
+    @Test
+    public void slotAndMapEntries() {
+        QueryIdGenerator ids = new QueryIdGenerator("abc");
+        PendingQueries table = new PendingQueries(ids, 4);
+        assertTrue(table.isEmpty());
+
+        ConfigQuery first = createQuery(ids, ids.next());
+        ConfigQuery foreign = createQuery(ids, "foreign-id");
+        table.put(first);
+        table.put(foreign);
+        for (int i = 0; i < 3; i++) {
+            table.put(createQuery(ids, ids.next()));
+        }
+        /* Sequence 5 maps to the slot still taken by sequence 1. */
+        ConfigQuery colliding = createQuery(ids, ids.next());
+        table.put(colliding);
+
+        assertSame(first, table.get(first.getQueryID()));
+        assertSame(foreign, table.get("foreign-id"));
+        assertSame(colliding, table.get(colliding.getQueryID()));
+        assertNull(table.get("abc-9"));
+        assertNull(table.get("unknown"));
+
+        assertTrue(table.remove(first.getQueryID(), first));
+        assertFalse(table.remove(first.getQueryID(), first), "Query removed twice");
+        assertNull(table.get(first.getQueryID()));
+        assertTrue(table.remove(colliding.getQueryID(), colliding));
+        assertTrue(table.remove("foreign-id", foreign));
+        assertFalse(table.isEmpty());
+
+        table.clear();
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void illegalSlotCount() {
+        assertThrows(IllegalArgumentException.class, () -> new PendingQueries(new QueryIdGenerator(), 1000));
+    }
+}
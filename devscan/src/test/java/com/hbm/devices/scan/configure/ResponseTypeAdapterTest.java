@@ -0,0 +1,67 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+public class ResponseTypeAdapterTest {
+
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(Response.class, new ResponseTypeAdapter()).create();
+
+    @Test
+    public void writeResult() {
+        Response response = gson.fromJson("{\"jsonrpc\":\"2.0\",\"id\":\"TEST-1\",\"result\":0}", Response.class);
+        assertEquals("{\"jsonrpc\":\"2.0\",\"id\":\"TEST-1\",\"result\":\"0\"}", gson.toJson(response),
+            "Wrong JSON for result response");
+    }
+
+    @Test
+    public void writeErrorRoundTrip() {
+        Response response = gson.fromJson("{\"jsonrpc\":\"2.0\",\"id\":\"TEST-2\","
+            + "\"error\":{\"code\":-32602,\"message\":\"Invalid params\",\"data\":\"ttl\"}}", Response.class);
+        Response copy = gson.fromJson(gson.toJson(response), Response.class);
+        assertNotNull(copy, "Written response can't be read");
+        assertEquals("TEST-2", copy.getId(), "Id differs");
+        assertNull(copy.getResult(), "Result written for error response");
+        assertEquals(-32602, copy.getError().getCode(), "Error code differs");
+        assertEquals("Invalid params", copy.getError().getMessage(), "Error message differs");
+        assertEquals("ttl", copy.getError().getData(), "Error data differs");
+    }
+
+    @Test
+    public void writeNull() {
+        assertEquals("null", gson.toJson(null, Response.class), "Null response not written as null");
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Java Scan, a library for scanning and configuring HBM devices.
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) Hottinger Baldwin Messtechnik GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hbm.devices.scan.configure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Observable;
+import java.util.Observer;
+
+import com.hbm.devices.scan.FakeMessageReceiver;
+import com.hbm.devices.scan.announce.Announce;
+import com.hbm.devices.scan.announce.AnnounceDeserializer;
+import com.hbm.devices.scan.announce.RoutingTable;
+
+import static com.hbm.devices.scan.configure.ConfigurationInterface.Method;
+
+public class TargetedConfigurationTest {
+
+    private static final String LOOPBACK_DEVICE = "{\"jsonrpc\":\"2.0\",\"method\":\"announce\",\"params\":{\"apiVersion\":\"1.0\","
+        + "\"device\":{\"familyType\":\"QuantumX\",\"type\":\"MX410\",\"uuid\":\"0009E500123A\"},\"expiration\":15,"
+        + "\"netSettings\":{\"interface\":{\"configurationMethod\":\"dhcp\",\"name\":\"eth0\","
+        + "\"ipv4\":[{\"address\":\"127.0.0.5\",\"netmask\":\"255.0.0.0\"}]}}}}";
+    private static final String REMOTE_DEVICE = LOOPBACK_DEVICE.replace("127.0.0.5", "172.19.192.57");
+    private static final String ROUTED_DEVICE = LOOPBACK_DEVICE.replace("\"expiration\":15,",
+        "\"expiration\":15,\"router\":{\"uuid\":\"0009E5001111\"},");
+
+    private ConfigurationService service;
+    private RecordingSender sender;
+    private FakeMessageReceiver fsmmr;
+    private Announce announce;
+    private ConfigurationParams configParams;
+    private NetworkInterface loopback;
+
+    @BeforeEach
+    public void setUp() throws SocketException {
+        sender = new RecordingSender();
+        service = new ConfigurationService(new ConfigurationSerializer(sender), new ResponseDeserializer());
+
+        fsmmr = new FakeMessageReceiver();
+        AnnounceDeserializer parser = new AnnounceDeserializer();
+        fsmmr.addObserver(parser);
+        parser.addObserver(new Observer() {
+            public void update(Observable o, Object arg) {
+                announce = (Announce)arg;
+            }
+        });
+
+        ConfigurationDevice device = new ConfigurationDevice("0009E500123A");
+        ConfigurationNetSettings settings = new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP));
+        configParams = new ConfigurationParams(device, settings);
+
+        loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+    }
+
+    @Test
+    public void sendOnReachingInterface() throws Exception {
+        assumeTrue(loopback != null, "No loopback interface");
+        service.setRoutingTable(new RoutingTable(Collections.singletonList(loopback)));
+        fsmmr.emitString(LOOPBACK_DEVICE);
+        assertNotNull(announce, "No announce parsed");
+
+        service.sendTargetedConfigurationAsync(configParams, announce, 1000);
+        assertEquals(Collections.singletonList(loopback), sender.selected, "Not sent on reaching interface");
+        service.close();
+    }
+
+    @Test
+    public void fallbackToAllInterfaces() throws Exception {
+        fsmmr.emitString(LOOPBACK_DEVICE);
+        assertNull(service.findInterfaces(configParams, announce), "Targeted without routing table");
+
+        service.setRoutingTable(new RoutingTable(loopback == null
+            ? Collections.<NetworkInterface>emptyList() : Collections.singletonList(loopback)));
+        fsmmr.emitString(REMOTE_DEVICE);
+        assertNull(service.findInterfaces(configParams, announce), "Targeted to unreachable device");
+
+        fsmmr.emitString(ROUTED_DEVICE);
+        assertNotNull(announce.getParams().getRouter(), "Router not parsed");
+        assertNull(service.findInterfaces(configParams, announce), "Targeted to device behind router");
+
+        service.sendTargetedConfiguration(configParams, announce, new ConfigurationCallback() {
+            public void onSuccess(Response response) {}
+            public void onError(Response response) {}
+            public void onTimeout(long t) {}
+        }, 1000);
+        assertEquals(1, sender.sent, "Message not sent");
+        assertNull(sender.selected, "Not sent on all interfaces");
+        service.close();
+    }
+
+    @Test
+    public void wrongTarget() {
+        fsmmr.emitString(LOOPBACK_DEVICE);
+        ConfigurationParams other = new ConfigurationParams(new ConfigurationDevice("0009E5001571"),
+            new ConfigurationNetSettings(new ConfigurationInterface("eth0", Method.DHCP)));
+        assertThrows(IllegalArgumentException.class, () -> service.sendTargetedConfigurationAsync(other, announce, 1000));
+        assertThrows(IllegalArgumentException.class, () -> service.sendTargetedConfigurationAsync(configParams, null, 1000));
+        service.close();
+    }
+
+    private static class RecordingSender implements MulticastSender {
+        Collection<NetworkInterface> selected;
+        int sent;
+
+        @Override
+        public void sendMessage(String message) {
+            selected = null;
+            sent++;
+        }
+
+        @Override
+        public void sendMessage(byte[] message, int offset, int length, Collection<NetworkInterface> interfaces) {
+            selected = interfaces;
+            sent++;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+    }
+}